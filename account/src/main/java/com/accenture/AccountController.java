@@ -2,6 +2,7 @@ package com.accenture;
 
 import com.accenture.entity.Account;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -101,8 +102,8 @@ public class AccountController {
      * Maps the resource's route (/accounts/id={accountId}) to the editAccount() method.
      * Updates one account by calling the appropiate function in service class.
      * @param accountId the id of the account to be updated.
-     * @param accountUpdate the content of the account to be changed.
-     * @return ResponseEntity with feedback message.
+     * @param accountUpdate the content of the account to be changed, with the version of the account it was based on.
+     * @return ResponseEntity with feedback message; conflict when the account was changed by someone else.
      */
     @PutMapping("/id={accountId}")
     public ResponseEntity<?> editAccount(@PathVariable("accountId") Integer accountId, @RequestBody Account accountUpdate) {
@@ -110,10 +111,12 @@ public class AccountController {
         if (!accountService.checkAccountExist(accountId))
             return new ResponseEntity<>("Account details requested do not exist.", HttpStatus.NOT_FOUND);
 
-        if (accountService.checkUsername(accountUpdate.getAccountUsername()))
+        if (accountService.checkUsername(accountUpdate.getAccountUsername(), accountId))
             return new ResponseEntity<>("An account already exists for the provided username.", HttpStatus.CONFLICT);
 
         Account account = accountService.retrieveAccountById(accountId);
+        if (account == null)
+            return new ResponseEntity<>("Account details requested do not exist.", HttpStatus.NOT_FOUND);
         String accountUsername = account.getAccountUsername();
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -121,12 +124,49 @@ public class AccountController {
         String authorities = authentication.getAuthorities().toString();
 
         if (accountUsername.equals(principalName) || (authorities.contains("ROLE_ADMIN"))) {
-            accountService.updateAccount(accountId, accountUpdate);
+            try {
+                if (!accountService.updateAccount(accountId, accountUpdate))
+                    return new ResponseEntity<>("Account details requested do not exist.", HttpStatus.NOT_FOUND);
+            }
+            catch (OptimisticLockingFailureException e) {
+                return new ResponseEntity<>("Account has been changed by someone else. Reload it and try again.", HttpStatus.CONFLICT);
+            }
             return new ResponseEntity<>("Account has been updated successfully.", HttpStatus.OK);
         }
         return new ResponseEntity<>("Your account does not have permission to access to the requested details.", HttpStatus.FORBIDDEN);
     }
 
+    /**
+     * Maps the resource's route (/accounts/id={accountId}) to the patchAccount() method.
+     * Changes only the provided fields of one account by calling the appropiate function in service class.
+     * The account is changed by a single update, which also checks the version and, for non admin users, the owner.
+     * @param accountId the id of the account to be changed.
+     * @param accountPatch the fields to be changed, with the version of the account they were based on.
+     * @return ResponseEntity with feedback message; conflict when the account was changed by someone else.
+     */
+    @PatchMapping("/id={accountId}")
+    public ResponseEntity<?> patchAccount(@PathVariable("accountId") Integer accountId, @RequestBody Account accountPatch) {
+
+        if (accountPatch.getAccountUsername() != null && accountService.checkUsername(accountPatch.getAccountUsername(), accountId))
+            return new ResponseEntity<>("An account already exists for the provided username.", HttpStatus.CONFLICT);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String principalName = authentication.getName();
+        String authorities = authentication.getAuthorities().toString();
+        boolean admin = authorities.contains("ROLE_ADMIN");
+
+        if (accountService.patchAccount(accountId, accountPatch, admin ? null : principalName))
+            return new ResponseEntity<>("Account has been updated successfully.", HttpStatus.OK);
+
+        // Nothing was changed: only now find out why
+        Account account = accountService.retrieveAccountById(accountId);
+        if (account == null)
+            return new ResponseEntity<>("Account details requested do not exist.", HttpStatus.NOT_FOUND);
+        if (!admin && !account.getAccountUsername().equals(principalName))
+            return new ResponseEntity<>("Your account does not have permission to access to the requested details.", HttpStatus.FORBIDDEN);
+        return new ResponseEntity<>("Account has been changed by someone else. Reload it and try again.", HttpStatus.CONFLICT);
+    }
+
     /**
      * Maps the resource's route (/accounts/id={accountId}) to the removeProduct() method.
      * Deletes one account by calling the appropiate function in service class.
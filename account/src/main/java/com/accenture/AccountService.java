@@ -3,9 +3,13 @@ package com.accenture;
 import com.accenture.entity.Account;
 import com.accenture.repository.AccountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Contains the different methods to process the requested actions
@@ -13,6 +17,9 @@ import java.util.List;
 @Component
 public class AccountService {
 
+    // names of the microservices, which sign their own tokens with them
+    private static final Set<String> RESERVED_USERNAMES = new HashSet<>(Arrays.asList("cart-microservice"));
+
     private final AccountRepository accountRepository;
 
     /**
@@ -59,11 +66,19 @@ public class AccountService {
     /**
      * Updates the account
      * @param accountId the id of the account to be updated
-     * @param accountUpdate the content to be changed in the account
+     * @param accountUpdate the content to be changed in the account, with the version the client changed; a null
+     *                      version updates the current version
+     * @return true if the account has been updated; false if it does not exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException when the account was changed since the
+     * version of the update, or while it was being updated
      */
-    public void updateAccount(Integer accountId, Account accountUpdate) {
+    public boolean updateAccount(Integer accountId, Account accountUpdate) {
 
         Account account = accountRepository.findOne(accountId);
+        if (account == null)
+            return false;
+        if (accountUpdate.getVersion() != null && !accountUpdate.getVersion().equals(account.getVersion()))
+            throw new ObjectOptimisticLockingFailureException(Account.class, accountId);
 
         account.setAccountId(account.getAccountId());
         account.setAccountName(accountUpdate.getAccountName());
@@ -73,6 +88,20 @@ public class AccountService {
         account.setAccountPassword(accountUpdate.getAccountPassword());
 
         accountRepository.save(account);
+        return true;
+    }
+
+    /**
+     * Changes only the provided fields of the account
+     * @param accountId the id of the account to be changed
+     * @param accountPatch the fields to be changed, with the version of the account they were based on; missing
+     *                     fields are left unchanged, and the version is not checked when it is missing
+     * @param accountUsername the username the account must belong to; null if it may belong to anyone
+     * @return true if the account has been changed; false if it does not exist, belongs to someone else or has
+     * been changed since that version
+     */
+    public boolean patchAccount(Integer accountId, Account accountPatch, String accountUsername) {
+        return accountRepository.updatePartially(accountId, accountPatch, accountPatch.getVersion(), accountUsername);
     }
 
     /**
@@ -86,14 +115,31 @@ public class AccountService {
     /**
      * Checks whether the username is already in use+
      * @param accountUsername the username to be checked
-     * @return true if there is a registered account with same username; false if username is unused.
+     * @return true if there is a registered account with same username or the username is reserved; false if
+     * username is unused.
      */
     public boolean checkUsername(String accountUsername) {
+        if (RESERVED_USERNAMES.contains(accountUsername))
+            return true;
         if (accountRepository.findByAccountUsername(accountUsername) == null)
             return false;
         return true;
     }
 
+    /**
+     * Checks whether the username is already in use by another account
+     * @param accountUsername the username to be checked
+     * @param accountId the account which may keep using the username
+     * @return true if a different account has the same username or the username is reserved; false if it is unused
+     * or belongs to that account.
+     */
+    public boolean checkUsername(String accountUsername, Integer accountId) {
+        if (RESERVED_USERNAMES.contains(accountUsername))
+            return true;
+        Account account = accountRepository.findByAccountUsername(accountUsername);
+        return account != null && !account.getAccountId().equals(accountId);
+    }
+
     /**
      * Verifies whether the account exists
      * @param accountId the account identifier to check if exists
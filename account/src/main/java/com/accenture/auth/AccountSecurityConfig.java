@@ -52,6 +52,7 @@ public class AccountSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.DELETE, "/accounts").hasAuthority("ROLE_ADMIN")
                 .antMatchers(HttpMethod.GET, "/accounts/id=**").hasAnyAuthority("ROLE_ADMIN", "ROLE_USER")
                 .antMatchers(HttpMethod.PUT, "/accounts/id=**").hasAnyAuthority("ROLE_ADMIN", "ROLE_USER")
+                .antMatchers(HttpMethod.PATCH, "/accounts/id=**").hasAnyAuthority("ROLE_ADMIN", "ROLE_USER")
                 .and()
                 .addFilterBefore(new LoginFilter("/login", authenticationManager(), loginUserDetailsService),
                         UsernamePasswordAuthenticationFilter.class)
@@ -1,11 +1,15 @@
 package com.accenture.entity;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import javax.persistence.*;
 
 /**
- * Entity class for accounts
+ * Entity class for accounts. The version is increased by every update, so an update based on an older version
+ * of the account is rejected instead of overwriting the changes made meanwhile.
  */
 @Entity
+@DynamicUpdate
 public class Account {
 
     @Id
@@ -18,6 +22,9 @@ public class Account {
     private String accountUsername;
     private String accountPassword;
 
+    @Version
+    private Long version;
+
     /**
      * Account class constructor
      */
@@ -82,6 +89,13 @@ public class Account {
         this.accountPassword = accountPassword;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Account{" +
@@ -91,6 +105,7 @@ public class Account {
                 ", accountAddress='" + accountAddress + '\'' +
                 ", accountUsername='" + accountUsername + '\'' +
                 ", accountPassword='" + accountPassword + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
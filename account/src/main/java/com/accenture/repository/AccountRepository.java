@@ -7,7 +7,7 @@ import org.springframework.data.repository.query.Param;
 /**
  * Repository class for accounts
  */
-public interface AccountRepository extends JpaRepository<Account, Integer> {
+public interface AccountRepository extends JpaRepository<Account, Integer>, AccountRepositoryCustom {
 
     /**
      * Finds the account associated with the provided username
@@ -0,0 +1,19 @@
+package com.accenture.repository;
+
+import com.accenture.entity.Account;
+
+/**
+ * Account queries built at runtime
+ */
+public interface AccountRepositoryCustom {
+
+    /**
+     * Changes the provided fields of an account with a single update, increasing its version
+     * @param accountId the id of the account to be changed
+     * @param changes the fields to be changed; null fields are left unchanged
+     * @param version the version the changes are based on; null to change whatever the current version is
+     * @param accountUsername the username the account must belong to; null to change it whoever it belongs to
+     * @return true if the account was changed; false if there is no account with that id, version and username
+     */
+    boolean updatePartially(Integer accountId, Account changes, Long version, String accountUsername);
+}
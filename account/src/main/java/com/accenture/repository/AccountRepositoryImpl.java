@@ -0,0 +1,61 @@
+package com.accenture.repository;
+
+import com.accenture.entity.Account;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the account queries built at runtime
+ */
+public class AccountRepositoryImpl implements AccountRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public boolean updatePartially(Integer accountId, Account changes, Long version, String accountUsername) {
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (changes.getAccountName() != null)
+            values.put("accountName", changes.getAccountName());
+        if (changes.getAccountSurname() != null)
+            values.put("accountSurname", changes.getAccountSurname());
+        if (changes.getAccountAddress() != null)
+            values.put("accountAddress", changes.getAccountAddress());
+        if (changes.getAccountUsername() != null)
+            values.put("accountUsername", changes.getAccountUsername());
+        if (changes.getAccountPassword() != null)
+            values.put("accountPassword", changes.getAccountPassword());
+
+        List<String> assignments = new ArrayList<>();
+        for (String property : values.keySet())
+            assignments.add("a." + property + " = :" + property);
+        assignments.add("a.version = a.version + 1");
+
+        StringBuilder jpql = new StringBuilder("update Account a set ")
+                .append(String.join(", ", assignments))
+                .append(" where a.accountId = :accountId");
+        if (version != null)
+            jpql.append(" and a.version = :version");
+        if (accountUsername != null)
+            jpql.append(" and a.accountUsername = :owner");
+
+        Query query = entityManager.createQuery(jpql.toString());
+        for (Map.Entry<String, Object> value : values.entrySet())
+            query.setParameter(value.getKey(), value.getValue());
+        query.setParameter("accountId", accountId);
+        if (version != null)
+            query.setParameter("version", version);
+        if (accountUsername != null)
+            query.setParameter("owner", accountUsername);
+        return query.executeUpdate() > 0;
+    }
+}
@@ -0,0 +1,112 @@
+package com.accenture;
+
+import com.accenture.entity.Account;
+import com.accenture.repository.AccountRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class AccountControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	private Account account;
+
+	@Before
+	public void setUp() {
+		account = accountRepository.save(new Account("John", "Doe", "Calle 4", "jd", "jd"));
+	}
+
+	@After
+	public void tearDown() {
+		accountRepository.delete(account.getAccountId());
+	}
+
+	@Test
+	public void patchesOnlyTheProvidedFieldsOfTheVersionRead() throws Exception {
+		mockMvc.perform(as("jd", patch("/accounts/id=" + account.getAccountId()))
+				.content("{\"accountAddress\":\"Calle 5\",\"version\":" + account.getVersion() + "}"))
+				.andExpect(status().isOk());
+
+		Account patched = accountRepository.findOne(account.getAccountId());
+		assertThat(patched.getAccountAddress()).isEqualTo("Calle 5");
+		assertThat(patched.getAccountName()).isEqualTo("John");
+		assertThat(patched.getVersion()).isEqualTo(account.getVersion() + 1);
+	}
+
+	@Test
+	public void doesNotPatchTheAccountsOfOtherUsers() throws Exception {
+		mockMvc.perform(as("lb", patch("/accounts/id=" + account.getAccountId()))
+				.content("{\"accountAddress\":\"Calle 5\"}"))
+				.andExpect(status().isForbidden());
+
+		assertThat(accountRepository.findOne(account.getAccountId()).getAccountAddress()).isEqualTo("Calle 4");
+	}
+
+	@Test
+	public void answersConflictToAPatchOfAnOlderVersion() throws Exception {
+		Account changed = accountRepository.findOne(account.getAccountId());
+		changed.setAccountName("Johnny");
+		accountRepository.save(changed);
+
+		mockMvc.perform(as("jd", patch("/accounts/id=" + account.getAccountId()))
+				.content("{\"accountAddress\":\"Calle 5\",\"version\":" + account.getVersion() + "}"))
+				.andExpect(status().isConflict());
+
+		assertThat(accountRepository.findOne(account.getAccountId()).getAccountAddress()).isEqualTo("Calle 4");
+	}
+
+	@Test
+	public void answersConflictToAnUpdateOfAnOlderVersion() throws Exception {
+		Account changed = accountRepository.findOne(account.getAccountId());
+		changed.setAccountName("Johnny");
+		changed = accountRepository.save(changed);
+
+		String update = "{\"accountName\":\"Jane\",\"accountSurname\":\"Doe\",\"accountAddress\":\"Calle 5\","
+				+ "\"accountUsername\":\"jd\",\"accountPassword\":\"jd\",\"version\":" + account.getVersion() + "}";
+		mockMvc.perform(as("jd", put("/accounts/id=" + account.getAccountId())).content(update))
+				.andExpect(status().isConflict());
+		assertThat(accountRepository.findOne(account.getAccountId()).getAccountName()).isEqualTo("Johnny");
+
+		String current = update.replace("\"version\":" + account.getVersion(), "\"version\":" + changed.getVersion());
+		mockMvc.perform(as("jd", put("/accounts/id=" + account.getAccountId())).content(current))
+				.andExpect(status().isOk());
+		assertThat(accountRepository.findOne(account.getAccountId()).getAccountName()).isEqualTo("Jane");
+	}
+
+	@Test
+	public void doesNotGiveAnAccountTheNameOfAMicroservice() throws Exception {
+		mockMvc.perform(as("jd", patch("/accounts/id=" + account.getAccountId()))
+				.content("{\"accountUsername\":\"cart-microservice\"}"))
+				.andExpect(status().isConflict());
+
+		assertThat(accountRepository.findOne(account.getAccountId()).getAccountUsername()).isEqualTo("jd");
+	}
+
+	private static MockHttpServletRequestBuilder as(String username, MockHttpServletRequestBuilder request) {
+		String token = Jwts.builder().setSubject(username).signWith(SignatureAlgorithm.HS256, "secret").compact();
+		return request.header("Authorization", "Bearer " + token).contentType(MediaType.APPLICATION_JSON);
+	}
+}
@@ -1,10 +1,12 @@
 package com.accenture;
 
+import com.accenture.http.DownstreamConnectionPool;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -20,12 +22,24 @@ public class CartApplication {
 
     /**
      * Allows the communication with the order microservice
+     * @param connectionPool the pooled keep-alive transport shared by the RestTemplates
      * @return RestTemplate to share data with order application
      */
 	@Bean
+	@Primary
 	@LoadBalanced
-	public RestTemplate getRestTemplate() {
-		return new RestTemplate();
+	public RestTemplate getRestTemplate(DownstreamConnectionPool connectionPool) {
+		return new RestTemplate(connectionPool.requestFactory());
+	}
+
+	/**
+	 * Allows the communication with the instances picked by the ServiceInstanceRegistry
+	 * @param connectionPool the pooled keep-alive transport shared by the RestTemplates
+	 * @return RestTemplate to send requests to explicit instance addresses
+	 */
+	@Bean
+	public RestTemplate instanceRestTemplate(DownstreamConnectionPool connectionPool) {
+		return new RestTemplate(connectionPool.requestFactory());
 	}
 
     /**
@@ -1,6 +1,8 @@
 package com.accenture;
 
+import com.accenture.checkout.CheckoutStages;
 import com.accenture.entity.CartItem;
+import com.accenture.idempotency.IdempotencyStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Handles the different web requests to routes starting with /cart.
@@ -19,14 +22,17 @@ import java.util.List;
 public class CartController {
 
     private CartService cartService;
+    private IdempotencyStore idempotencyStore;
 
     /**
      * Default constructor to allow injecting the service class as dependency.
      * @param cartService dependency class.
+     * @param idempotencyStore the store of the responses to the requests with an Idempotency-Key header.
      */
     @Autowired
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, IdempotencyStore idempotencyStore) {
         this.cartService = cartService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     /**
@@ -62,11 +68,36 @@ public class CartController {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         Integer principalId = (Integer)authentication.getDetails();
 
-        cartService.saveCartItem(productId, principalId);
+        boolean added = cartService.saveCartItem(productId, principalId);
         SecurityContextHolder.getContext().setAuthentication(null);
+        if (!added)
+            return new ResponseEntity<>("Product with ID: " + productId + " does not exist.", HttpStatus.NOT_FOUND);
         return new ResponseEntity<>("Product added to your shopping cart.", HttpStatus.OK);
     }
 
+    /**
+     * Maps the resource's route (/cart/items) to the addCartItems() method.
+     * Adds several items at once to the user's cart by calling the appropiate function in service class.
+     * @param productIds the ids of the products to be added to the account cart; repeated ids add several units.
+     * @return ResponseEntity with feedback message; bad request when there are no ids or an id is empty.
+     */
+    @PostMapping("/items")
+    public ResponseEntity<?> addCartItems(@RequestBody List<Integer> productIds) {
+
+        if (productIds.isEmpty() || productIds.contains(null))
+            return new ResponseEntity<>("Product ids cannot be empty.", HttpStatus.BAD_REQUEST);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Integer principalId = (Integer)authentication.getDetails();
+
+        List<Integer> missingIds = cartService.saveCartItems(productIds, principalId);
+        SecurityContextHolder.getContext().setAuthentication(null);
+        if (!missingIds.isEmpty())
+            return new ResponseEntity<>("Products added to your shopping cart, except the ones which do not exist: "
+                    + missingIds, HttpStatus.OK);
+        return new ResponseEntity<>("Products added to your shopping cart.", HttpStatus.OK);
+    }
+
     /**
      * Maps the resource's route (/cart) to the getCart() method.
      * Removes the user's cart by calling the appropiate function in service class.
@@ -91,31 +122,84 @@ public class CartController {
     /**
      * Maps the resource's route (/cart/confirm) to the confirmCart() method.
      * Confirms the user's cart and creates a new order by calling the appropiate function in service class.
+     * When the request has an Idempotency-Key header, a repeated request with the same key gets the response
+     * of the first one without confirming the cart again.
      * @param httpServletRequest the request itself.
-     * @return ResponseEntity with feedback message.
+     * @return ResponseEntity with feedback message; service unavailable when the checkout is overloaded, and
+     * gateway timeout when the account details or the cart items are not read in time.
      */
     @PostMapping ("/confirm")
     public ResponseEntity<?> confirmCart(HttpServletRequest httpServletRequest) {
 
         String authorizationToken = httpServletRequest.getHeader("Authorization");
+        String idempotencyKey = httpServletRequest.getHeader(IdempotencyStore.HEADER);
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         Integer principalId = (Integer)authentication.getDetails();
 
-        List<CartItem> cart = cartService.retrieveCart(principalId);
-
         SecurityContextHolder.getContext().setAuthentication(null);
 
+        try {
+            if (idempotencyKey == null)
+                return confirmCart(principalId, authentication.getName(), authorizationToken);
+
+            return idempotencyStore.execute(principalId + ":" + idempotencyKey,
+                    () -> confirmCart(principalId, authentication.getName(), authorizationToken));
+        }
+        catch (RejectedExecutionException e) {
+            return new ResponseEntity<>(authentication.getName() + ", too many carts are being confirmed right now.\n" +
+                    "Please, try again in a few seconds.", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        catch (CheckoutStages.CheckoutTimeoutException e) {
+            return new ResponseEntity<>(authentication.getName() + ", your shopping cart could not be confirmed in time.\n" +
+                    "Please, try again in a few seconds.", HttpStatus.GATEWAY_TIMEOUT);
+        }
+    }
+
+    /**
+     * Confirms the cart of one account
+     * @param principalId the id of the account
+     * @param principalName the name of the account
+     * @param authorizationToken the token to be authenticated in the other applications
+     * @return ResponseEntity with feedback message.
+     */
+    private ResponseEntity<?> confirmCart(Integer principalId, String principalName, String authorizationToken) {
+
+        List<CartItem> cart = cartService.retrieveCart(principalId);
+
         if (cart.isEmpty())
-            return new ResponseEntity<>(authentication.getName() + ", your shopping cart is empty.\n" +
+            return new ResponseEntity<>(principalName + ", your shopping cart is empty.\n" +
                     "Please, add some products to your shopping cart in order to make an order.", HttpStatus.OK);
 
         String confirmationMessage = cartService.confirmCart(principalId, authorizationToken);
 
         if (confirmationMessage == null)
-            return new ResponseEntity<>(authentication.getName() +
+            return new ResponseEntity<>(principalName +
                     ", your shopping cart is empty and cannot be confirmed.", HttpStatus.OK);
 
         return new ResponseEntity<>(confirmationMessage, HttpStatus.OK);
     }
+
+    /**
+     * Maps the resource's route (/cart/products/id={productId}) to the evictProduct() method.
+     * Removes a product changed in the catalogue from the product cache by calling the appropiate function in service class.
+     * @param productId the id of the changed product.
+     * @return ResponseEntity with feedback message.
+     */
+    @DeleteMapping("/products/id={productId}")
+    public ResponseEntity<?> evictProduct(@PathVariable Integer productId) {
+        cartService.evictProductDetails(productId);
+        return new ResponseEntity<>("Product with ID: " + productId + " has been evicted from the cache.", HttpStatus.OK);
+    }
+
+    /**
+     * Maps the resource's route (/cart/products) to the evictAllProducts() method.
+     * Removes all products from the product cache by calling the appropiate function in service class.
+     * @return ResponseEntity with feedback message.
+     */
+    @DeleteMapping("/products")
+    public ResponseEntity<?> evictAllProducts() {
+        cartService.evictAllProductDetails();
+        return new ResponseEntity<>("All products have been evicted from the cache.", HttpStatus.OK);
+    }
 }
\ No newline at end of file
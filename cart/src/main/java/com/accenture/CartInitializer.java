@@ -1,7 +1,6 @@
 package com.accenture;
 
-import com.accenture.entity.CartItem;
-import com.accenture.repository.CartItemRepository;
+import com.accenture.store.CartStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,11 +14,11 @@ public class CartInitializer implements CommandLineRunner {
 
     private static final Logger log = LoggerFactory.getLogger(CartInitializer.class);
 
-    private CartItemRepository cartItemRepository;
+    private CartStore cartStore;
 
     @Autowired
-    public CartInitializer(CartItemRepository cartItemRepository) {
-        this.cartItemRepository = cartItemRepository;
+    public CartInitializer(CartStore cartStore) {
+        this.cartStore = cartStore;
     }
 
     @Override
@@ -27,11 +26,11 @@ public class CartInitializer implements CommandLineRunner {
 
         //--------------------- Repository initial content ----------------------------------------
 
-        cartItemRepository.save(new CartItem(1,1, "Nike Trainers",
-                new BigDecimal(1.0), 3));
-        cartItemRepository.save(new CartItem(2, 2, "Adidas Trainers",
-                new BigDecimal(2.0), 1));
-        cartItemRepository.save(new CartItem(5, 3, "Puma shirt",
-                new BigDecimal(5.0), 4));
+        cartStore.addItem(1, 1, "Nike Trainers",
+                new BigDecimal(1.0), 3);
+        cartStore.addItem(2, 2, "Adidas Trainers",
+                new BigDecimal(2.0), 1);
+        cartStore.addItem(3, 5, "Puma shirt",
+                new BigDecimal(5.0), 4);
     }
 }
\ No newline at end of file
@@ -1,25 +1,36 @@
 package com.accenture;
 
+import com.accenture.account.AccountClient;
+import com.accenture.account.ShippingDetails;
+import com.accenture.cache.ProductCache;
+import com.accenture.checkout.CheckoutStages;
+import com.accenture.discovery.ServiceInstanceRegistry;
 import com.accenture.entity.CartItem;
 import com.accenture.entity.Order;
-import com.accenture.repository.CartItemRepository;
+import com.accenture.outbox.OrderOutbox;
+import com.accenture.store.CartStore;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 /**
  * Contains the different methods to process the requested actions
@@ -27,21 +38,46 @@ import java.util.Map;
 @Component
 public class CartService {
 
-    private CartItemRepository cartItemRepository;
-    private RestTemplate restTemplate;
-    private DiscoveryClient discoveryClient;
+    private CartStore cartStore;
+    private RestTemplate instanceRestTemplate;
+    private ServiceInstanceRegistry serviceInstanceRegistry;
+    private ProductCache productCache;
+    private CheckoutStages checkoutStages;
+    private AccountClient accountClient;
+    private OrderOutbox orderOutbox;
+    private TransactionTemplate transactionTemplate;
+    private int productBatchSize;
 
     /**
      * Default constructor to allow injecting the repository and restTemplate classes as dependencies.
-     * @param cartItemRepository the repository for the shopping carts.
-     * @param restTemplate the RestTemplate to communicate with order application.
-     * @param discoveryClient the client used to request instances of the microservices by its names
+     * @param cartStore the storage engine of the shopping carts.
+     * @param instanceRestTemplate the RestTemplate to communicate with the catalogue instances picked by the registry.
+     * @param serviceInstanceRegistry the registry which picks the instance of the microservices for each request
+     * @param productCache the local cache of the product details fetched from the catalogue
+     * @param checkoutStages the runner of the concurrent checkout steps
+     * @param accountClient the client used to fetch the shipping details from the account microservice
+     * @param orderOutbox the outbox which delivers the confirmed orders to the order microservice
+     * @param transactionManager the transaction manager used to add several items and to confirm the carts
+     * @param productBatchSize the largest number of products requested to the catalogue at once; no larger than
+     *                         the largest page size of the catalogue
      */
     @Autowired
-    public CartService(CartItemRepository cartItemRepository, RestTemplate restTemplate, DiscoveryClient discoveryClient) {
-        this.cartItemRepository = cartItemRepository;
-        this.restTemplate = restTemplate;
-        this.discoveryClient = discoveryClient;
+    public CartService(CartStore cartStore, @Qualifier("instanceRestTemplate") RestTemplate instanceRestTemplate,
+                       ServiceInstanceRegistry serviceInstanceRegistry, ProductCache productCache,
+                       CheckoutStages checkoutStages, AccountClient accountClient, OrderOutbox orderOutbox,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${cart.product-batch.max-size:500}") int productBatchSize) {
+        if (productBatchSize < 1)
+            throw new IllegalArgumentException("The product batch size must be positive");
+        this.cartStore = cartStore;
+        this.instanceRestTemplate = instanceRestTemplate;
+        this.serviceInstanceRegistry = serviceInstanceRegistry;
+        this.productCache = productCache;
+        this.checkoutStages = checkoutStages;
+        this.accountClient = accountClient;
+        this.orderOutbox = orderOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productBatchSize = productBatchSize;
     }
 
     /**
@@ -50,155 +86,235 @@ public class CartService {
      * @return the list of all items stored in the user's shopping cart
      */
     public List<CartItem> retrieveCart(Integer accountId) {
-        return cartItemRepository.findAllByCartItemAccountId(accountId);
+        return cartStore.findCart(accountId);
     }
 
     /**
      * Adds an item to the requested account cart
      * @param productId the id for identifying the product
      * @param cartItemAccountId the id for saving the cart item in the repository
+     * @return true if the item was added; false if the product does not exist
      */
-    public void saveCartItem(Integer productId, Integer cartItemAccountId) {
+    public boolean saveCartItem(Integer productId, Integer cartItemAccountId) {
 
         Object productResponse = getProductDetails(productId);
+        if (productResponse == null)
+            return false;
+
+        addCartItem(productId, cartItemAccountId, productResponse, 1);
+        return true;
+    }
+
+    /**
+     * Adds several items to the requested account cart, resolving the products with one catalogue call per batch.
+     * The products are resolved before the transaction which adds all the items is started.
+     * @param productIds the ids of the products; an id repeated n times adds n units of the product
+     * @param cartItemAccountId the id for saving the cart items in the repository
+     * @return the ids of the requested products which do not exist
+     */
+    public List<Integer> saveCartItems(List<Integer> productIds, Integer cartItemAccountId) {
+
+        Map<Integer, Long> quantities = productIds.stream()
+                .collect(Collectors.groupingBy(productId -> productId, LinkedHashMap::new, Collectors.counting()));
+
+        Map<Integer, Object> productResponses = productCache.getAll(quantities.keySet(), this::fetchProductsDetails);
+
+        List<Integer> missingIds = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            for (Map.Entry<Integer, Long> quantity : quantities.entrySet()) {
+                Object productResponse = productResponses.get(quantity.getKey());
+                if (productResponse == null)
+                    missingIds.add(quantity.getKey());
+                else
+                    addCartItem(quantity.getKey(), cartItemAccountId, productResponse, quantity.getValue().intValue());
+            }
+            return null;
+        });
+        return missingIds;
+    }
+
+    /**
+     * Stores a new cart item or increases the quantity of the existing one
+     * @param productId the id for identifying the product
+     * @param cartItemAccountId the id for saving the cart item in the repository
+     * @param productResponse the generic object containing the product
+     * @param quantity the units to be added
+     */
+    private void addCartItem(Integer productId, Integer cartItemAccountId, Object productResponse, int quantity) {
+
         String productName = (String)getValueFromResponse(productResponse, "productName");
         Double productPrice = (Double)getValueFromResponse(productResponse, "productPrice");
 
-        CartItem c = cartItemRepository.findCartItemByCartItemProductId(productId);
-        if (c == null) {
-            CartItem cartItem = new CartItem();
-            cartItem.setCartItemProductId(productId);
-            cartItem.setCartItemAccountId(cartItemAccountId);
-            cartItem.setCartItemName(productName);
-            cartItem.setCartItemCost(new BigDecimal(productPrice));
-            cartItem.setCartItemQuantity(1);
-            cartItemRepository.save(cartItem);
-        }
-        if (c != null && c.getCartItemAccountId().equals(cartItemAccountId)) {
-            CartItem cartItem = cartItemRepository.findCartItemByCartItemProductId(productId);
-            cartItem.setCartItemQuantity(cartItem.getCartItemQuantity() + 1);
-            cartItemRepository.save(cartItem);
-        }
+        cartStore.addItem(cartItemAccountId, productId, productName, new BigDecimal(productPrice), quantity);
     }
 
     /**
      * Deletes the cart for the requested account
      * @param cartItemAccountId the id of the cart items to be deleted from the repository
      */
-    @Transactional
     public void deleteCart(Integer cartItemAccountId) {
-        cartItemRepository.deleteAllByCartItemAccountId(cartItemAccountId);
+        cartStore.deleteCart(cartItemAccountId);
     }
 
     /**
-     * Confirms the cart items of one account
+     * Confirms the cart items of one account.
+     * The account details and the cart items are fetched concurrently. The order is then stored in the
+     * outbox within the same transaction which deletes the cart, and delivered to the order microservice
+     * in the background.
      * @param accountId the id of the account
-     * @param authorizationToken the token to be authenticated in the order application
-     * @return a message with the order details
+     * @param authorizationToken the token to be authenticated in the account application
+     * @return a message with the order details; null if the cart is empty
+     * @throws java.util.concurrent.RejectedExecutionException when the checkout pool is full
+     * @throws CheckoutStages.CheckoutTimeoutException when the account details or the cart items are not read in time
      */
-    @Transactional
     public String confirmCart(Integer accountId, String authorizationToken) {
 
-        String accountResponse = getAccountDetails(accountId, authorizationToken);
-        String accountName = getValue(accountResponse, "accountName");
-        String accountSurname = getValue(accountResponse, "accountSurname");
-        String accountAddress = getValue(accountResponse, "accountAddress");
-
+        long startedAt = System.nanoTime();
         String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm"));
 
+        Future<ShippingDetails> accountFuture = checkoutStages.supply(CheckoutStages.ACCOUNT,
+                () -> accountClient.getShippingDetails(accountId, authorizationToken));
+        List<CartItem> cartItems;
+        try {
+            Future<List<CartItem>> cartItemsFuture = checkoutStages.supply(CheckoutStages.ITEMS,
+                    () -> cartStore.findCart(accountId));
+            cartItems = checkoutStages.await(CheckoutStages.ITEMS, cartItemsFuture, startedAt);
+        }
+        catch (RuntimeException e) {
+            accountFuture.cancel(true);
+            throw e;
+        }
+        if (cartItems.isEmpty()) {
+            accountFuture.cancel(true);
+            return null;
+        }
+        ShippingDetails shippingDetails = checkoutStages.await(CheckoutStages.ACCOUNT, accountFuture, startedAt);
+
+        Order order = createOrder(accountId, shippingDetails, cartItems, date);
+
+        long orderStartedAt = System.nanoTime();
+        transactionTemplate.execute(status -> {
+            orderOutbox.enqueue(order);
+            cartStore.deleteCart(accountId);
+            return null;
+        });
+        checkoutStages.record(CheckoutStages.ORDER, orderStartedAt);
+
         StringBuilder message = new StringBuilder();
 
         message.append("Cart confirmed with the following details: \n");
         message.append("\t" + "-> Date: " + date + "\n");
-        message.append("\t" + "-> Addressee: " + accountName + " " + accountSurname + "\n");
-        message.append("\t" + "-> Address: " + accountAddress + "\n");
+        message.append("\t" + "-> Addressee: " + shippingDetails.getAddressee() + "\n");
+        message.append("\t" + "-> Address: " + shippingDetails.getAccountAddress() + "\n");
         message.append("\t" + "-> Products: \n");
 
-        List<CartItem> cartItems = cartItemRepository.findAllByCartItemAccountId(accountId);
-
-        BigDecimal total = BigDecimal.ZERO;
         for (CartItem cartItem : cartItems) {
             Integer productId = cartItem.getCartItemProductId();
             String cartItemName = cartItem.getCartItemName();
             BigDecimal cartItemPrice = cartItem.getCartItemPrice();
-            BigDecimal cartItemTotal = cartItemPrice.multiply(new BigDecimal(cartItem.getCartItemQuantity()));
-            total = total.add(cartItemTotal);
 
             message.append("\t\t" + cartItem.getCartItemQuantity() + "x " + cartItemName + " (#ref " + productId + "): "
                     + cartItemPrice + " euro(s) \n");
         }
-        message.append("\t" + "-> Total cost: " + total + " euro(s) \n");
+        message.append("\t" + "-> Total cost: " + order.getCost() + " euro(s) \n");
+
+        checkoutStages.record(CheckoutStages.TOTAL, startedAt);
+        return message.toString();
+    }
+
+    /**
+     * Creates the order for the confirmed cart items
+     * @param accountId the id of the account
+     * @param shippingDetails the shipping details of the account
+     * @param cartItems the confirmed cart items
+     * @param date the date of the order
+     * @return the order to be submitted
+     */
+    private Order createOrder(Integer accountId, ShippingDetails shippingDetails, List<CartItem> cartItems, String date) {
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem cartItem : cartItems)
+            total = total.add(cartItem.getCartItemPrice().multiply(new BigDecimal(cartItem.getCartItemQuantity())));
 
         Order order = new Order();
         order.setAccountId(accountId);
-        order.setAddressee(accountName + " " + accountSurname);
-        order.setAddress(accountAddress);
+        order.setAddressee(shippingDetails.getAddressee());
+        order.setAddress(shippingDetails.getAccountAddress());
         order.setCost(total);
         order.setDate(date);
-        restTemplate.postForObject("http://order-microservice/orders/", order, Order.class);
-
-        cartItemRepository.deleteAllByCartItemAccountId(accountId);
-        return message.toString();
+        return order;
     }
 
     /**
-     * Gets an object containing the requested product details from the catalogue microservice
+     * Gets an object containing the requested product details, from the product cache when possible
      * @param productId the id of the requested product
-     * @return an object containing the product
+     * @return an object containing the product; null if the product does not exist
      */
     public Object getProductDetails(Integer productId) {
-
-        ServiceInstance serviceInstance = discoveryClient.getInstances("catalogue-microservice")
-                .stream().findFirst().orElseThrow(() -> new RuntimeException("catalogue-microservice not found."));
-
-        String url = serviceInstance.getUri().toString() + "/catalogue/products/id=";
-
-        return restTemplate.getForObject(url + productId, Object.class);
+        return productCache.get(productId, this::fetchProductDetails);
     }
 
     /**
-     * Gets the value of each product field
-     * @param objectResponse the generic object containing the product
-     * @param value the value to be returned
-     * @return the value of the requested field
+     * Fetches the requested product details from the catalogue microservice
+     * @param productId the id of the requested product
+     * @return an object containing the product; null if the catalogue does not know the product
      */
-    public Object getValueFromResponse(Object objectResponse, String value) {
-        return ((HashMap)objectResponse).get(value);
+    private Object fetchProductDetails(Integer productId) {
+        try {
+            return serviceInstanceRegistry.execute("catalogue-microservice", uri -> instanceRestTemplate
+                    .getForObject(uri.toString() + "/catalogue/products/id=" + productId, Object.class));
+        }
+        catch (HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND)
+                return null;
+            throw e;
+        }
     }
 
     /**
-     * Gets an object containing the requested account from the account microservice
-     * @param accountId the id of the requested account
-     * @param authorizationToken the token to be authenticated in the account application
-     * @return
+     * Fetches the details of several products from the catalogue microservice, with one request per batch of ids
+     * @param productIds the ids of the requested products
+     * @return the objects containing the products by product id; unknown products are left out
      */
-    public String getAccountDetails(Integer accountId, String authorizationToken) {
+    private Map<Integer, Object> fetchProductsDetails(Set<Integer> productIds) {
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", authorizationToken);
+        List<Integer> pending = new ArrayList<>(productIds);
+        Map<Integer, Object> productResponses = new HashMap<>();
+        for (int from = 0; from < pending.size(); from += productBatchSize) {
+            String ids = pending.subList(from, Math.min(from + productBatchSize, pending.size())).stream()
+                    .map(String::valueOf).collect(Collectors.joining(","));
 
-        HttpEntity entity = new HttpEntity(headers);
+            Object batchResponse = serviceInstanceRegistry.execute("catalogue-microservice", uri -> instanceRestTemplate
+                    .getForObject(uri.toString() + "/catalogue/products/ids=" + ids, Object.class));
 
-        ResponseEntity<Object> response = restTemplate.exchange(
-                "http://account-microservice/accounts" + "/id=" + accountId, HttpMethod.GET, entity, Object.class);
+            for (Object productResponse : (Collection<?>)getValueFromResponse(batchResponse, "products"))
+                productResponses.put((Integer)getValueFromResponse(productResponse, "productId"), productResponse);
+        }
+        return productResponses;
+    }
 
-        return response.getBody().toString();
+    /**
+     * Removes one product from the product cache
+     * @param productId the id of the product changed in the catalogue
+     */
+    public void evictProductDetails(Integer productId) {
+        productCache.invalidate(productId);
     }
 
     /**
-     * Gets the value of each account field
+     * Removes all products from the product cache
+     */
+    public void evictAllProductDetails() {
+        productCache.invalidateAll();
+    }
+
+    /**
+     * Gets the value of each product field
      * @param objectResponse the generic object containing the product
      * @param value the value to be returned
      * @return the value of the requested field
      */
-    public String getValue(String objectResponse, String value) {
-
-        Map<String,String> result = new HashMap<>();
-        String[] elements = objectResponse.split(", ");
-        for(String s : elements) {
-            String[] keyValue = s.split("=");
-            result.put(keyValue[0], keyValue[1]);
-        }
-        return result.get(value);
+    public Object getValueFromResponse(Object objectResponse, String value) {
+        return ((HashMap)objectResponse).get(value);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.accenture.account;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+/**
+ * Client of the account microservice used by the cart checkout
+ */
+@Component
+public class AccountClient {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final RestTemplate restTemplate;
+
+    /**
+     * Default constructor to allow injecting the restTemplate class as dependency.
+     * @param restTemplate the RestTemplate to communicate with account application.
+     */
+    @Autowired
+    public AccountClient(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Gets the shipping details of the requested account from the account microservice
+     * @param accountId the id of the requested account
+     * @param authorizationToken the token to be authenticated in the account application
+     * @return the name, surname and address of the account
+     */
+    public ShippingDetails getShippingDetails(Integer accountId, String authorizationToken) {
+        return restTemplate.execute("http://account-microservice/accounts/id={accountId}", HttpMethod.GET,
+                request -> {
+                    request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+                    if (authorizationToken != null)
+                        request.getHeaders().set("Authorization", authorizationToken);
+                },
+                response -> readShippingDetails(response.getBody()),
+                accountId);
+    }
+
+    /**
+     * Reads the shipping fields of an account in a single streaming pass, skipping every other field
+     * @param body the JSON representation of the account
+     * @return the name, surname and address of the account
+     * @throws IOException exception threw if the body is not a JSON object
+     */
+    public static ShippingDetails readShippingDetails(InputStream body) throws IOException {
+
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Account details are not a JSON object.");
+
+            String accountName = null;
+            String accountSurname = null;
+            String accountAddress = null;
+            int pending = 3;
+
+            while (pending > 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "accountName":
+                        accountName = parser.getValueAsString();
+                        pending--;
+                        break;
+                    case "accountSurname":
+                        accountSurname = parser.getValueAsString();
+                        pending--;
+                        break;
+                    case "accountAddress":
+                        accountAddress = parser.getValueAsString();
+                        pending--;
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return new ShippingDetails(accountName, accountSurname, accountAddress);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.accenture.account;
+
+/**
+ * Account fields needed to ship an order
+ */
+public class ShippingDetails {
+
+    private final String accountName;
+    private final String accountSurname;
+    private final String accountAddress;
+
+    /**
+     * Shipping details class constructor
+     * @param accountName user name
+     * @param accountSurname user surname
+     * @param accountAddress user address
+     */
+    public ShippingDetails(String accountName, String accountSurname, String accountAddress) {
+        this.accountName = accountName;
+        this.accountSurname = accountSurname;
+        this.accountAddress = accountAddress;
+    }
+
+    public String getAccountName() {
+        return accountName;
+    }
+
+    public String getAccountSurname() {
+        return accountSurname;
+    }
+
+    public String getAccountAddress() {
+        return accountAddress;
+    }
+
+    /**
+     * Gets the full name of the order addressee
+     * @return the name and surname of the user
+     */
+    public String getAddressee() {
+        return accountName + " " + accountSurname;
+    }
+
+    @Override
+    public String toString() {
+        return "ShippingDetails{" +
+                "accountName='" + accountName + '\'' +
+                ", accountSurname='" + accountSurname + '\'' +
+                ", accountAddress='" + accountAddress + '\'' +
+                '}';
+    }
+}
@@ -39,6 +39,7 @@ public class CartSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.GET, "/cart").hasAuthority("ROLE_USER")
                 .antMatchers(HttpMethod.POST, "/cart").hasAuthority("ROLE_USER")
                 .antMatchers(HttpMethod.POST, "/**/*").hasAuthority("ROLE_USER")
+                .antMatchers(HttpMethod.DELETE, "/cart/products/**").hasAuthority("ROLE_ADMIN")
                 .and()
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
     }
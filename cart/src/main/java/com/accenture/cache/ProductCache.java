@@ -0,0 +1,246 @@
+package com.accenture.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of the product details returned by the catalogue microservice.
+ *
+ * Entries are evicted in least recently used order once the maximum size is reached and expire
+ * after the configured time to live. Unknown product ids are cached as well, for a shorter time,
+ * so repeated requests for them do not reach the catalogue either. A load leaves an expired
+ * placeholder in the cache and only stores its result if the placeholder is still there, so a
+ * product invalidated while it was being loaded is never cached with the details read before.
+ */
+@Component
+public class ProductCache implements PublicMetrics {
+
+    private final int maxSize;
+    private final long ttl;
+    private final long negativeTtl;
+
+    private final Map<Integer, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Default constructor to allow injecting the cache settings from the application properties.
+     * @param maxSize maximum number of products kept in the cache.
+     * @param ttl milliseconds a known product is kept in the cache.
+     * @param negativeTtl milliseconds an unknown product id is kept in the cache.
+     */
+    @Autowired
+    public ProductCache(@Value("${cart.product-cache.max-size:10000}") int maxSize,
+                        @Value("${cart.product-cache.ttl:60000}") long ttl,
+                        @Value("${cart.product-cache.negative-ttl:10000}") long negativeTtl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= ProductCache.this.maxSize)
+                    return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets the product details from the cache, loading them when they are missing or expired.
+     * The loader is called without holding the cache lock, so a slow catalogue does not block the hits.
+     * @param productId the id of the requested product
+     * @param loader the function which fetches the product details; it returns null for unknown products
+     * @return the product details; null if the product does not exist
+     */
+    public Object get(Integer productId, Function<Integer, Object> loader) {
+
+        Entry pending = new Entry(null, 0);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(productId);
+            if (entry != null && entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            entries.put(productId, pending);
+        }
+        misses.incrementAndGet();
+
+        Object value;
+        try {
+            value = loader.apply(productId);
+        }
+        catch (RuntimeException e) {
+            complete(productId, pending, null, false);
+            throw e;
+        }
+        complete(productId, pending, value, true);
+        return value;
+    }
+
+    /**
+     * Gets the details of several products from the cache, loading all the missing ones with a single call.
+     * @param productIds the ids of the requested products
+     * @param loader the function which fetches the details of the missing products; unknown ids are left out
+     * @return the details of the existing products by product id
+     */
+    public Map<Integer, Object> getAll(Collection<Integer> productIds, Function<Set<Integer>, Map<Integer, Object>> loader) {
+
+        Map<Integer, Object> result = new HashMap<>();
+        Set<Integer> missingIds = new LinkedHashSet<>();
+        Entry pending = new Entry(null, 0);
+
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            for (Integer productId : productIds) {
+                if (result.containsKey(productId) || missingIds.contains(productId))
+                    continue;
+                Entry entry = entries.get(productId);
+                if (entry != null && entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    if (entry.value != null)
+                        result.put(productId, entry.value);
+                    continue;
+                }
+                entries.put(productId, pending);
+                missingIds.add(productId);
+            }
+        }
+        if (missingIds.isEmpty())
+            return result;
+
+        misses.addAndGet(missingIds.size());
+        Map<Integer, Object> loaded;
+        try {
+            loaded = loader.apply(missingIds);
+        }
+        catch (RuntimeException e) {
+            for (Integer productId : missingIds)
+                complete(productId, pending, null, false);
+            throw e;
+        }
+        for (Integer productId : missingIds) {
+            Object value = loaded.get(productId);
+            complete(productId, pending, value, true);
+            if (value != null)
+                result.put(productId, value);
+        }
+        return result;
+    }
+
+    /**
+     * Stores the product details in the cache
+     * @param productId the id of the product
+     * @param value the product details; null to remember that the product does not exist
+     */
+    public void put(Integer productId, Object value) {
+        long expiresAt = System.currentTimeMillis() + (value == null ? negativeTtl : ttl);
+        synchronized (entries) {
+            entries.put(productId, new Entry(value, expiresAt));
+        }
+    }
+
+    /**
+     * Replaces the placeholder of a load with its result, unless the product was invalidated or loaded again
+     * meanwhile: the value read by a load which started before an invalidation may be stale
+     * @param store true to cache the value; false to only drop the placeholder, when the load failed
+     */
+    private void complete(Integer productId, Entry pending, Object value, boolean store) {
+        long expiresAt = System.currentTimeMillis() + (value == null ? negativeTtl : ttl);
+        synchronized (entries) {
+            if (entries.get(productId) != pending)
+                return;
+            if (store)
+                entries.put(productId, new Entry(value, expiresAt));
+            else
+                entries.remove(productId);
+        }
+    }
+
+    /**
+     * Removes one product from the cache
+     * @param productId the id of the product to be removed
+     */
+    public void invalidate(Integer productId) {
+        synchronized (entries) {
+            entries.remove(productId);
+        }
+    }
+
+    /**
+     * Removes all products from the cache
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets the number of products currently cached
+     * @return the size of the cache
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Exposes the cache counters through the actuator metrics endpoint
+     * @return the size, hits, misses and evictions of the cache
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("cart.product-cache.size", size()));
+        metrics.add(new Metric<>("cart.product-cache.hits", getHits()));
+        metrics.add(new Metric<>("cart.product-cache.misses", getMisses()));
+        metrics.add(new Metric<>("cart.product-cache.evictions", getEvictions()));
+        return metrics;
+    }
+
+    /**
+     * Cached value together with its expiration time
+     */
+    private static final class Entry {
+
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
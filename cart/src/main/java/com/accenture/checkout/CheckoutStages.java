@@ -0,0 +1,152 @@
+package com.accenture.checkout;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent steps of the cart checkout concurrently on a dedicated bounded pool,
+ * applying a timeout to each step and recording how long each one takes.
+ *
+ * A step which is given up is cancelled, interrupting the pool thread running it. Steps blocked
+ * in an interruptible wait stop right away; the others, such as a blocking socket read, run until
+ * they finish or hit their own timeout, and their result is discarded. When every thread is busy and
+ * the queue is full, new steps are rejected rather than run by the caller, which would wait for them
+ * without any timeout.
+ *
+ * The durations are submitted as "timer.cart.checkout.{stage}" gauges, which the actuator
+ * metrics endpoint reports with their percentiles.
+ */
+@Component
+public class CheckoutStages {
+
+    public static final String ACCOUNT = "account";
+    public static final String ITEMS = "items";
+    public static final String ORDER = "order";
+    public static final String TOTAL = "total";
+
+    private final GaugeService gaugeService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Long> timeouts = new HashMap<>();
+
+    /**
+     * Default constructor to allow injecting the metrics service and the checkout settings.
+     * @param gaugeService the service used to record the stage durations.
+     * @param poolSize number of threads running the checkout steps.
+     * @param queueCapacity number of steps waiting for a thread before new steps are rejected.
+     * @param accountTimeout milliseconds to wait for the account details.
+     * @param itemsTimeout milliseconds to wait for the cart items.
+     */
+    @Autowired
+    public CheckoutStages(GaugeService gaugeService,
+                          @Value("${cart.checkout.pool-size:16}") int poolSize,
+                          @Value("${cart.checkout.queue-capacity:200}") int queueCapacity,
+                          @Value("${cart.checkout.account-timeout:2000}") long accountTimeout,
+                          @Value("${cart.checkout.items-timeout:1000}") long itemsTimeout) {
+        this.gaugeService = gaugeService;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "checkout-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        timeouts.put(ACCOUNT, accountTimeout);
+        timeouts.put(ITEMS, itemsTimeout);
+    }
+
+    /**
+     * Starts a checkout step on the checkout pool
+     * @param stage the name of the step
+     * @param task the work of the step
+     * @return the future result of the step, whose cancellation interrupts the step
+     * @throws RejectedExecutionException when the checkout pool and its queue are full
+     */
+    public <T> Future<T> supply(String stage, Supplier<T> task) {
+        return executor.submit(() -> {
+            long startedAt = System.nanoTime();
+            try {
+                return task.get();
+            }
+            finally {
+                record(stage, startedAt);
+            }
+        });
+    }
+
+    /**
+     * Waits for a checkout step, giving up when its timeout has elapsed
+     * @param stage the name of the step
+     * @param future the future result of the step
+     * @param startedAt the System.nanoTime() from which the timeout is counted
+     * @return the result of the step
+     * @throws CheckoutTimeoutException when the step did not finish in time; the step is cancelled
+     */
+    public <T> T await(String stage, Future<T> future, long startedAt) {
+
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeouts.get(stage)) - (System.nanoTime() - startedAt);
+        try {
+            return future.get(Math.max(remaining, 0L), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            future.cancel(true);
+            throw new CheckoutTimeoutException(stage);
+        }
+        catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Checkout step '" + stage + "' was interrupted.");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new RuntimeException("Checkout step '" + stage + "' failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Records the duration of a checkout step
+     * @param stage the name of the step
+     * @param startedAt the System.nanoTime() when the step started
+     */
+    public void record(String stage, long startedAt) {
+        gaugeService.submit("timer.cart.checkout." + stage,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * Stops the checkout pool when the application is closed
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Exception threw when a checkout step did not finish before its timeout
+     */
+    public static class CheckoutTimeoutException extends RuntimeException {
+
+        public CheckoutTimeoutException(String stage) {
+            super("Checkout step '" + stage + "' did not finish in time.");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.accenture.discovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live statistics of the calls made to one service instance
+ */
+public class InstanceStats {
+
+    private static final double DECAY = 0.3;
+
+    private final ServiceInstance serviceInstance;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private double latency;
+    private int consecutiveFailures;
+    private long ejectedUntil;
+
+    /**
+     * Instance stats class constructor
+     * @param serviceInstance the instance the statistics belong to
+     */
+    public InstanceStats(ServiceInstance serviceInstance) {
+        this.serviceInstance = serviceInstance;
+    }
+
+    public ServiceInstance getServiceInstance() {
+        return serviceInstance;
+    }
+
+    public URI getUri() {
+        return serviceInstance.getUri();
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public synchronized double getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the cost of sending one more request to the instance: the expected latency weighted by
+     * the requests already waiting for it
+     * @return the load score of the instance; lower is better
+     */
+    public synchronized double getScore() {
+        return (latency + 1) * (outstanding.get() + 1);
+    }
+
+    /**
+     * Verifies whether the instance is temporarily excluded because of its failures
+     * @param now the current time in milliseconds
+     * @return true if the instance should not receive requests; false if not
+     */
+    public synchronized boolean isEjected(long now) {
+        return ejectedUntil > now;
+    }
+
+    synchronized long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    /**
+     * Registers the start of a request to the instance
+     */
+    public void requestStarted() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Registers a successful request, updating the exponentially weighted moving average of the latency
+     * @param latencyMillis the duration of the request
+     */
+    public synchronized void requestSucceeded(long latencyMillis) {
+        outstanding.decrementAndGet();
+        latency = latency == 0 ? latencyMillis : latency + DECAY * (latencyMillis - latency);
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Registers a failed request, ejecting the instance once it fails too many times in a row
+     * @param failureThreshold the consecutive failures which eject the instance
+     * @param ejectionTime the milliseconds the instance stays ejected
+     */
+    public synchronized void requestFailed(int failureThreshold, long ejectionTime) {
+        outstanding.decrementAndGet();
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            ejectedUntil = System.currentTimeMillis() + ejectionTime;
+            consecutiveFailures = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceStats{" +
+                "uri=" + getUri() +
+                ", outstanding=" + getOutstanding() +
+                ", latency=" + getLatency() +
+                ", ejectedUntil=" + getEjectedUntil() +
+                '}';
+    }
+}
@@ -0,0 +1,193 @@
+package com.accenture.discovery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the instances of the microservices called by the cart and picks one for each request.
+ *
+ * The instances are refreshed from the discovery client in the background, so the requests never wait
+ * for Consul except the very first one of each service. Every request is sent to the less loaded of two
+ * random healthy instances (power of two choices), comparing their moving average latency weighted by
+ * their outstanding requests. Instances failing several times in a row are ejected for a while.
+ */
+@Component
+public class ServiceInstanceRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceInstanceRegistry.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final long refreshInterval;
+    private final int failureThreshold;
+    private final long ejectionTime;
+
+    private final Map<String, List<InstanceStats>> instances = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Default constructor to allow injecting the discovery client and the registry settings.
+     * @param discoveryClient the client used to request the instances of the microservices by their names.
+     * @param refreshInterval milliseconds between two refreshes of the cached instances.
+     * @param failureThreshold consecutive failures which eject an instance.
+     * @param ejectionTime milliseconds an ejected instance stays out of the selection.
+     */
+    @Autowired
+    public ServiceInstanceRegistry(DiscoveryClient discoveryClient,
+                                   @Value("${cart.discovery.refresh-interval:5000}") long refreshInterval,
+                                   @Value("${cart.discovery.failure-threshold:3}") int failureThreshold,
+                                   @Value("${cart.discovery.ejection-time:10000}") long ejectionTime) {
+        this.discoveryClient = discoveryClient;
+        this.refreshInterval = refreshInterval;
+        this.failureThreshold = failureThreshold;
+        this.ejectionTime = ejectionTime;
+    }
+
+    /**
+     * Starts the background refresh of the cached instances
+     */
+    @PostConstruct
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "instance-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background refresh when the application is closed
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null)
+            refresher.shutdown();
+    }
+
+    /**
+     * Refreshes the instances of every service requested so far, keeping the statistics of the known ones.
+     * When the discovery client fails, the last known instances are kept.
+     */
+    public void refresh() {
+        for (String serviceId : instances.keySet()) {
+            try {
+                instances.put(serviceId, merge(instances.get(serviceId), discoveryClient.getInstances(serviceId)));
+            }
+            catch (RuntimeException e) {
+                log.warn("Could not refresh the instances of {}: {}", serviceId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the cached instances of a service, loading them the first time the service is requested
+     * @param serviceId the name of the microservice
+     * @return the known instances of the service with their statistics
+     */
+    public List<InstanceStats> getInstances(String serviceId) {
+        return instances.computeIfAbsent(serviceId,
+                id -> merge(Collections.emptyList(), discoveryClient.getInstances(id)));
+    }
+
+    /**
+     * Picks the instance which should receive the next request
+     * @param serviceId the name of the microservice
+     * @return the less loaded of two random healthy instances
+     */
+    public InstanceStats choose(String serviceId) {
+
+        List<InstanceStats> candidates = new ArrayList<>();
+        List<InstanceStats> all = getInstances(serviceId);
+        long now = System.currentTimeMillis();
+        for (InstanceStats stats : all) {
+            if (!stats.isEjected(now))
+                candidates.add(stats);
+        }
+
+        if (candidates.isEmpty()) {
+            if (all.isEmpty())
+                throw new RuntimeException(serviceId + " not found.");
+            return Collections.min(all, (a, b) -> Long.compare(a.getEjectedUntil(), b.getEjectedUntil()));
+        }
+        if (candidates.size() == 1)
+            return candidates.get(0);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first)
+            second++;
+
+        InstanceStats a = candidates.get(first);
+        InstanceStats b = candidates.get(second);
+        return a.getScore() <= b.getScore() ? a : b;
+    }
+
+    /**
+     * Sends a request to the best instance of a service, recording its latency and outcome.
+     * Client errors answered by the instance count as successful calls: the instance is alive and healthy.
+     * @param serviceId the name of the microservice
+     * @param call the request to be sent, given the base URI of the chosen instance
+     * @return the result of the request
+     */
+    public <T> T execute(String serviceId, Function<URI, T> call) {
+
+        InstanceStats stats = choose(serviceId);
+        stats.requestStarted();
+        long startedAt = System.nanoTime();
+        try {
+            T result = call.apply(stats.getUri());
+            stats.requestSucceeded(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            return result;
+        }
+        catch (HttpClientErrorException e) {
+            stats.requestSucceeded(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            throw e;
+        }
+        catch (RuntimeException e) {
+            stats.requestFailed(failureThreshold, ejectionTime);
+            throw e;
+        }
+    }
+
+    /**
+     * Builds the new instance list of a service, reusing the statistics of the instances already known
+     * @param known the cached instances
+     * @param discovered the instances returned by the discovery client
+     * @return the refreshed instances
+     */
+    private List<InstanceStats> merge(List<InstanceStats> known, List<ServiceInstance> discovered) {
+
+        Map<URI, InstanceStats> byUri = new HashMap<>();
+        for (InstanceStats stats : known)
+            byUri.put(stats.getUri(), stats);
+
+        List<InstanceStats> merged = new ArrayList<>();
+        for (ServiceInstance serviceInstance : discovered) {
+            InstanceStats stats = byUri.get(serviceInstance.getUri());
+            merged.add(stats != null ? stats : new InstanceStats(serviceInstance));
+        }
+        return Collections.unmodifiableList(merged);
+    }
+}
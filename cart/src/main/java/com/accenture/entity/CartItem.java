@@ -4,12 +4,19 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import java.math.BigDecimal;
 
 /**
- * Entity class for cart items
+ * Entity class for cart items.
+ *
+ * Each account has at most one item per product. The unique key starts with the account id,
+ * so its index also serves the lookups of the cart items of an account.
  */
 @Entity
+@Table(name = "cart_item", uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_account_product",
+        columnNames = {"cartItemAccountId", "cartItemProductId"}))
 public class CartItem {
 
     @Id
@@ -0,0 +1,154 @@
+package com.accenture.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Entity class for the confirmed orders waiting to be delivered to the order microservice
+ */
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_order_outbox_failed", columnList = "failed, outboxId"),
+        @Index(name = "idx_order_outbox_account", columnList = "accountId, failed, nextAttemptAt")})
+public class OutboxOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long outboxId;
+
+    @Column(length = 36, nullable = false, unique = true)
+    private String idempotencyKey;
+
+    private Integer accountId;
+    private String addressee;
+    private String address;
+    private BigDecimal cost;
+    private String date;
+
+    private int attempts;
+    private long nextAttemptAt;
+    private boolean failed;
+    private String lastError;
+
+    /**
+     * Outbox order class constructor
+     */
+    public OutboxOrder() {}
+
+    /**
+     * Outbox order class constructor
+     * @param order the confirmed order
+     */
+    public OutboxOrder(Order order) {
+        this.idempotencyKey = UUID.randomUUID().toString();
+        this.accountId = order.getAccountId();
+        this.addressee = order.getAddressee();
+        this.address = order.getAddress();
+        this.cost = order.getCost();
+        this.date = order.getDate();
+    }
+
+    /**
+     * Builds the order to be sent to the order microservice
+     * @return the order stored in the outbox
+     */
+    public Order toOrder() {
+        return new Order(accountId, addressee, address, cost, date);
+    }
+
+    public Long getOutboxId() {
+        return outboxId;
+    }
+    public void setOutboxId(Long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+    public void setAccountId(Integer accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getAddressee() {
+        return addressee;
+    }
+    public void setAddressee(String addressee) {
+        this.addressee = addressee;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public BigDecimal getCost() {
+        return cost;
+    }
+    public void setCost(BigDecimal cost) {
+        this.cost = cost;
+    }
+
+    public String getDate() {
+        return date;
+    }
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    public void setNextAttemptAt(long nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxOrder{" +
+                "outboxId=" + outboxId +
+                ", accountId=" + accountId +
+                ", cost=" + cost +
+                ", date=" + date +
+                ", attempts=" + attempts +
+                ", failed=" + failed +
+                '}';
+    }
+}
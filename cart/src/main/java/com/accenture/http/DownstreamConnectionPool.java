@@ -0,0 +1,188 @@
+package com.accenture.http;
+
+import com.accenture.discovery.InstanceStats;
+import com.accenture.discovery.ServiceInstanceRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled keep-alive HTTP transport shared by the RestTemplates of the cart.
+ *
+ * Every instance of a downstream microservice is a route of the pool, limited to the connections configured
+ * for its service (cart.http.max-per-service.{serviceId}). A maintenance task closes the expired and idle
+ * connections and applies the limits to the instances found by the ServiceInstanceRegistry. The routes of every
+ * service are looked up by that task only, so the metrics are read from its last snapshot and never wait for
+ * the registry.
+ */
+@Component
+public class DownstreamConnectionPool implements PublicMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(DownstreamConnectionPool.class);
+
+    private final HttpPoolProperties properties;
+    private final ServiceInstanceRegistry serviceInstanceRegistry;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final ScheduledExecutorService maintenance;
+
+    private volatile Map<HttpRoute, String> services = Collections.emptyMap();
+
+    /**
+     * Default constructor to allow injecting the pool settings and the instance registry.
+     * @param properties the settings of the pool.
+     * @param serviceInstanceRegistry the registry which knows the instances of every downstream microservice.
+     */
+    @Autowired
+    public DownstreamConnectionPool(HttpPoolProperties properties, ServiceInstanceRegistry serviceInstanceRegistry) {
+        this.properties = properties;
+        this.serviceInstanceRegistry = serviceInstanceRegistry;
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getDefaultMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setSocketTimeout(properties.getReadTimeout())
+                .setConnectionRequestTimeout(properties.getConnectionRequestTimeout())
+                .build();
+
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : properties.getKeepAlive();
+        };
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .build();
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, properties.getMaintenanceInterval(),
+                properties.getMaintenanceInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the request factory which sends the requests through the pool
+     * @return the request factory to be used by the RestTemplates
+     */
+    public ClientHttpRequestFactory requestFactory() {
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    /**
+     * Closes the expired and idle connections, looks up the routes of every service and applies the per service
+     * limits to the instances which were not known yet
+     */
+    public void maintain() {
+        try {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(properties.getIdleTimeout(), TimeUnit.MILLISECONDS);
+
+            Map<HttpRoute, String> known = services;
+            Map<HttpRoute, String> routes = new HashMap<>();
+            for (Map.Entry<String, Integer> limit : properties.getMaxPerService().entrySet()) {
+                for (InstanceStats stats : serviceInstanceRegistry.getInstances(limit.getKey())) {
+                    HttpRoute route = routeOf(stats);
+                    routes.put(route, limit.getKey());
+                    if (!limit.getKey().equals(known.get(route)))
+                        connectionManager.setMaxPerRoute(route, limit.getValue());
+                }
+            }
+            services = Collections.unmodifiableMap(routes);
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not maintain the HTTP connection pool: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Exposes the leased, pending, available and maximum connections of every downstream microservice
+     * through the actuator metrics endpoint, grouping the routes found by the last maintenance
+     * @return the connection pool metrics
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+
+        List<Metric<?>> metrics = new ArrayList<>();
+        Map<HttpRoute, String> services = this.services;
+
+        Map<String, int[]> byService = new HashMap<>();
+        for (String serviceId : properties.getMaxPerService().keySet())
+            byService.put(serviceId, new int[4]);
+        for (Map.Entry<HttpRoute, String> service : services.entrySet())
+            byService.get(service.getValue())[3] += connectionManager.getMaxPerRoute(service.getKey());
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            String serviceId = services.getOrDefault(route, "other");
+            int[] counts = byService.computeIfAbsent(serviceId, id -> new int[4]);
+            PoolStats stats = connectionManager.getStats(route);
+            counts[0] += stats.getLeased();
+            counts[1] += stats.getPending();
+            counts[2] += stats.getAvailable();
+        }
+
+        for (Map.Entry<String, int[]> service : byService.entrySet()) {
+            String prefix = "cart.http.pool." + service.getKey();
+            metrics.add(new Metric<>(prefix + ".leased", service.getValue()[0]));
+            metrics.add(new Metric<>(prefix + ".pending", service.getValue()[1]));
+            metrics.add(new Metric<>(prefix + ".available", service.getValue()[2]));
+            if (!"other".equals(service.getKey()))
+                metrics.add(new Metric<>(prefix + ".max", service.getValue()[3]));
+        }
+
+        PoolStats total = connectionManager.getTotalStats();
+        metrics.add(new Metric<>("cart.http.pool.leased", total.getLeased()));
+        metrics.add(new Metric<>("cart.http.pool.pending", total.getPending()));
+        metrics.add(new Metric<>("cart.http.pool.available", total.getAvailable()));
+        metrics.add(new Metric<>("cart.http.pool.max", total.getMax()));
+        return metrics;
+    }
+
+    /**
+     * Closes the pool when the application is closed
+     * @throws IOException exception threw if the connections cannot be closed
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        maintenance.shutdown();
+        httpClient.close();
+    }
+
+    private static HttpRoute routeOf(InstanceStats stats) {
+        return new HttpRoute(new HttpHost(stats.getUri().getHost(), stats.getUri().getPort(), stats.getUri().getScheme()));
+    }
+}
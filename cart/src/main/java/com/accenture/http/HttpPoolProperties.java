@@ -0,0 +1,88 @@
+package com.accenture.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of the pooled HTTP transport used by the cart to call the other microservices
+ */
+@Component
+@ConfigurationProperties(prefix = "cart.http")
+public class HttpPoolProperties {
+
+    private int connectTimeout = 1000;
+    private int readTimeout = 3000;
+    private int connectionRequestTimeout = 500;
+    private int maxTotal = 200;
+    private int defaultMaxPerRoute = 20;
+    private long idleTimeout = 30000;
+    private long keepAlive = 30000;
+    private long maintenanceInterval = 5000;
+    private Map<String, Integer> maxPerService = new HashMap<>();
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getDefaultMaxPerRoute() {
+        return defaultMaxPerRoute;
+    }
+    public void setDefaultMaxPerRoute(int defaultMaxPerRoute) {
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public long getMaintenanceInterval() {
+        return maintenanceInterval;
+    }
+    public void setMaintenanceInterval(long maintenanceInterval) {
+        this.maintenanceInterval = maintenanceInterval;
+    }
+
+    public Map<String, Integer> getMaxPerService() {
+        return maxPerService;
+    }
+    public void setMaxPerService(Map<String, Integer> maxPerService) {
+        this.maxPerService = maxPerService;
+    }
+}
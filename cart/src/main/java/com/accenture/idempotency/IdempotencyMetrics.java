@@ -0,0 +1,39 @@
+package com.accenture.idempotency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Exposes the counters of the idempotency store through the actuator metrics endpoint
+ */
+@Component
+public class IdempotencyMetrics implements PublicMetrics {
+
+    private final IdempotencyStore idempotencyStore;
+
+    /**
+     * Default constructor to allow injecting the idempotency store as dependency.
+     * @param idempotencyStore the store of the results of the confirmed carts.
+     */
+    @Autowired
+    public IdempotencyMetrics(IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    /**
+     * Gets the size, replays and evictions of the store
+     * @return the idempotency metrics
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("cart.idempotency.keys", idempotencyStore.size()),
+                new Metric<>("cart.idempotency.replays", idempotencyStore.getReplays()),
+                new Metric<>("cart.idempotency.evictions", idempotencyStore.getEvictions()));
+    }
+}
@@ -0,0 +1,273 @@
+package com.accenture.outbox;
+
+import com.accenture.entity.Order;
+import com.accenture.entity.OutboxOrder;
+import com.accenture.idempotency.IdempotencyStore;
+import com.accenture.repository.OutboxOrderRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox of the orders confirmed by the cart.
+ *
+ * The checkout stores the order in the outbox within the same transaction which deletes the cart, and a
+ * background dispatcher delivers the pending orders to the order microservice in batches. The orders of
+ * an account are delivered in the order they were confirmed: once one of them fails, the next ones wait
+ * for it. Failed deliveries are retried with an exponential backoff, and an order which keeps failing is
+ * set aside after the maximum attempts so it does not block its account forever. The accounts waiting for a
+ * retry are skipped when reading the next batch, so they do not take the place of the orders which can be
+ * delivered.
+ *
+ * The orders are delivered with a token of the cart microservice itself rather than the one of the customer,
+ * which may expire while the order waits. The token expires after a short lifetime and is signed again once
+ * half of it has passed.
+ */
+@Component
+public class OrderOutbox implements PublicMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderOutbox.class);
+
+    // subject of the token of the cart microservice; the order microservice grants the service role only to the
+    // tokens carrying the service claim, which the account service never issues
+    private static final String SERVICE_SUBJECT = "cart-microservice";
+    private static final String SERVICE_CLAIM = "svc";
+
+    private final OutboxOrderRepository outboxOrderRepository;
+    private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long dispatchInterval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoff;
+    private final long maxRetryBackoff;
+    private final long tokenTtl;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+
+    private ScheduledExecutorService dispatcher;
+
+    // only used by the dispatches, which run one at a time
+    private String authorization;
+    private long renewAt;
+
+    /**
+     * Default constructor to allow injecting the repository, the restTemplate and the outbox settings.
+     * @param outboxOrderRepository the repository for the pending orders.
+     * @param restTemplate the RestTemplate to communicate with order application.
+     * @param transactionManager the transaction manager used to update each delivered batch.
+     * @param dispatchInterval milliseconds between two dispatches of the pending orders.
+     * @param batchSize pending orders read and updated in each dispatch.
+     * @param maxAttempts deliveries tried before an order is set aside.
+     * @param retryBackoff milliseconds to wait before the first retry; doubled after each failure.
+     * @param maxRetryBackoff maximum milliseconds to wait between two retries.
+     * @param tokenTtl milliseconds the token of the cart microservice stays valid.
+     */
+    @Autowired
+    public OrderOutbox(OutboxOrderRepository outboxOrderRepository, RestTemplate restTemplate,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${cart.outbox.dispatch-interval:500}") long dispatchInterval,
+                       @Value("${cart.outbox.batch-size:100}") int batchSize,
+                       @Value("${cart.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${cart.outbox.retry-backoff:1000}") long retryBackoff,
+                       @Value("${cart.outbox.max-retry-backoff:60000}") long maxRetryBackoff,
+                       @Value("${cart.outbox.token-ttl:300000}") long tokenTtl) {
+        if (tokenTtl < 1)
+            throw new IllegalArgumentException("The token lifetime must be positive");
+        this.outboxOrderRepository = outboxOrderRepository;
+        this.restTemplate = restTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dispatchInterval = dispatchInterval;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.tokenTtl = tokenTtl;
+    }
+
+    /**
+     * Starts the background dispatch of the pending orders
+     */
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatch, dispatchInterval, dispatchInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background dispatch when the application is closed; the pending orders stay in the outbox
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher != null)
+            dispatcher.shutdown();
+    }
+
+    /**
+     * Stores a confirmed order in the outbox. It must be called within the transaction which deletes the cart,
+     * so either both changes are committed or none of them is.
+     * @param order the confirmed order
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Order order) {
+        outboxOrderRepository.save(new OutboxOrder(order));
+    }
+
+    /**
+     * Delivers a batch of pending orders to the order microservice.
+     * Delivered orders are removed from the outbox; failed ones are scheduled for a retry.
+     */
+    public synchronized void dispatch() {
+        try {
+            long now = System.currentTimeMillis();
+            List<OutboxOrder> batch = outboxOrderRepository.findDeliverable(now, new PageRequest(0, batchSize));
+
+            Set<Integer> blockedAccounts = new HashSet<>();
+            List<OutboxOrder> deliveredOrders = new ArrayList<>();
+            List<OutboxOrder> retriedOrders = new ArrayList<>();
+
+            for (OutboxOrder outboxOrder : batch) {
+                if (blockedAccounts.contains(outboxOrder.getAccountId()))
+                    continue;
+                if (outboxOrder.getNextAttemptAt() > now) {
+                    blockedAccounts.add(outboxOrder.getAccountId());
+                    continue;
+                }
+
+                try {
+                    deliver(outboxOrder, now);
+                    deliveredOrders.add(outboxOrder);
+                }
+                catch (RuntimeException e) {
+                    failedAttempts.incrementAndGet();
+                    scheduleRetry(outboxOrder, e, now);
+                    retriedOrders.add(outboxOrder);
+                    if (!outboxOrder.isFailed())
+                        blockedAccounts.add(outboxOrder.getAccountId());
+                }
+            }
+
+            if (deliveredOrders.isEmpty() && retriedOrders.isEmpty())
+                return;
+
+            transactionTemplate.execute(status -> {
+                outboxOrderRepository.delete(deliveredOrders);
+                outboxOrderRepository.save(retriedOrders);
+                return null;
+            });
+            delivered.addAndGet(deliveredOrders.size());
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not dispatch the pending orders: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Exposes the backlog and the delivery counters of the outbox through the actuator metrics endpoint
+     * @return the outbox metrics
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("cart.outbox.backlog", outboxOrderRepository.countByFailedFalse()),
+                new Metric<>("cart.outbox.failed", outboxOrderRepository.countByFailedTrue()),
+                new Metric<>("cart.outbox.delivered", delivered.get()),
+                new Metric<>("cart.outbox.failed-attempts", failedAttempts.get()));
+    }
+
+    /**
+     * Sends one order to the order microservice. The random key stored with the order is sent as idempotency key,
+     * so an order delivered again after a failed outbox update is not created twice, while the orders of another
+     * cart instance or stored after a restart never share its key.
+     * @param outboxOrder the pending order
+     * @param now the current time in milliseconds
+     */
+    private void deliver(OutboxOrder outboxOrder, long now) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", authorization(now));
+        headers.set(IdempotencyStore.HEADER, "cart-outbox-" + outboxOrder.getIdempotencyKey());
+
+        restTemplate.postForObject("http://order-microservice/orders/",
+                new HttpEntity<>(outboxOrder.toOrder(), headers), Order.class);
+    }
+
+    /**
+     * Returns the token of the cart microservice, signing a new one when half of its lifetime has passed
+     * @param now the current time in milliseconds
+     * @return the Authorization header to be sent
+     */
+    private String authorization(long now) {
+        if (authorization == null || now >= renewAt) {
+            authorization = "Bearer " + Jwts.builder()
+                    .setSubject(SERVICE_SUBJECT)
+                    .claim(SERVICE_CLAIM, true)
+                    .setIssuedAt(new Date(now))
+                    .setExpiration(new Date(now + tokenTtl))
+                    .signWith(SignatureAlgorithm.HS256, "secret")
+                    .compact();
+            renewAt = now + tokenTtl / 2;
+        }
+        return authorization;
+    }
+
+    /**
+     * Records a failed delivery, setting the order aside once it reaches the maximum attempts
+     * @param outboxOrder the pending order
+     * @param e the exception threw by the delivery
+     * @param now the current time in milliseconds
+     */
+    private void scheduleRetry(OutboxOrder outboxOrder, RuntimeException e, long now) {
+
+        int attempts = outboxOrder.getAttempts() + 1;
+        long backoff = Math.min(retryBackoff << Math.min(attempts - 1, 30), maxRetryBackoff);
+
+        outboxOrder.setAttempts(attempts);
+        outboxOrder.setNextAttemptAt(now + backoff);
+        String error = String.valueOf(e.getMessage());
+        outboxOrder.setLastError(error.length() > 255 ? error.substring(0, 255) : error);
+
+        if (attempts >= maxAttempts) {
+            outboxOrder.setFailed(true);
+            log.error("Order {} of account {} could not be delivered after {} attempts: {}",
+                    outboxOrder.getOutboxId(), outboxOrder.getAccountId(), attempts, e.getMessage());
+        }
+        else {
+            log.warn("Order {} of account {} could not be delivered, retrying in {} ms: {}",
+                    outboxOrder.getOutboxId(), outboxOrder.getAccountId(), backoff, e.getMessage());
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.accenture.repository;
 
 import com.accenture.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -19,15 +22,35 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
     List<CartItem> findAllByCartItemAccountId(@Param("cartItemAccountId") Integer cartItemAccountId);
 
     /**
-     * Finds one cart item with a specific product id
+     * Adds units of a product to the cart of an account with a single atomic statement:
+     * the cart item is inserted, or its quantity increased if the account already has the product
+     * @param cartItemAccountId account id owner of the cart item
      * @param cartItemProductId product id of the cart item
-     * @return the cart item with the provided product id
+     * @param cartItemName product name of the cart item
+     * @param cartItemPrice unit price of the cart item
+     * @param cartItemQuantity units to be added
+     * @return the number of affected rows
      */
-    CartItem findCartItemByCartItemProductId (@Param("cartItemProductId") Integer cartItemProductId);
+    @Modifying
+    @Query(value = "INSERT INTO cart_item (cart_item_account_id, cart_item_product_id, cart_item_name, "
+            + "cart_item_price, cart_item_quantity) "
+            + "VALUES (:cartItemAccountId, :cartItemProductId, :cartItemName, :cartItemPrice, :cartItemQuantity) "
+            + "ON DUPLICATE KEY UPDATE cart_item_quantity = cart_item_quantity + VALUES(cart_item_quantity)",
+            nativeQuery = true)
+    int upsertCartItem(@Param("cartItemAccountId") Integer cartItemAccountId,
+                       @Param("cartItemProductId") Integer cartItemProductId,
+                       @Param("cartItemName") String cartItemName,
+                       @Param("cartItemPrice") BigDecimal cartItemPrice,
+                       @Param("cartItemQuantity") Integer cartItemQuantity);
 
     /**
-     * Deletes the cart items associated with an account
+     * Deletes the cart items associated with an account with a single bulk statement, run at once
+     * rather than when the persistence context is flushed, so the items saved afterwards in the same
+     * transaction do not collide with the deleted ones
      * @param cartItemAccountId account id owner of the cart items
+     * @return the number of deleted cart items
      */
-    void deleteAllByCartItemAccountId(@Param("cartItemAccountId") Integer cartItemAccountId);
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.cartItemAccountId = :cartItemAccountId")
+    int deleteAllByCartItemAccountId(@Param("cartItemAccountId") Integer cartItemAccountId);
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.accenture.repository;
+
+import com.accenture.entity.OutboxOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+/**
+ * Repository class for the orders waiting to be delivered
+ */
+public interface OutboxOrderRepository extends JpaRepository<OutboxOrder, Long> {
+
+    /**
+     * Finds the oldest orders which can be delivered now, in the order they were confirmed. The orders of the
+     * accounts waiting for the retry of a failed order are left out, so they do not take the place of the others
+     * @param now the current time in milliseconds
+     * @param pageable the number of orders to be returned
+     * @return a list of pending orders sorted by outbox id
+     */
+    @Query("SELECT o FROM OutboxOrder o WHERE o.failed = false AND NOT EXISTS ("
+            + "SELECT b FROM OutboxOrder b WHERE b.accountId = o.accountId AND b.failed = false "
+            + "AND b.nextAttemptAt > :now) ORDER BY o.outboxId ASC")
+    List<OutboxOrder> findDeliverable(@Param("now") long now, Pageable pageable);
+
+    /**
+     * Counts the orders which can still be delivered
+     * @return the number of pending orders
+     */
+    long countByFailedFalse();
+
+    /**
+     * Counts the orders given up after too many attempts
+     * @return the number of failed orders
+     */
+    long countByFailedTrue();
+}
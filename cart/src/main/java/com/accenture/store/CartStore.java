@@ -0,0 +1,38 @@
+package com.accenture.store;
+
+import com.accenture.entity.CartItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Storage engine of the shopping carts.
+ *
+ * The engine is selected with the cart.store.type property: "jpa" (default) reads and writes every cart
+ * in the database; "memory" keeps the carts in memory and persists them asynchronously.
+ */
+public interface CartStore {
+
+    /**
+     * Finds all the items of the cart of an account
+     * @param accountId the id of the owner of the cart
+     * @return the items of the cart
+     */
+    List<CartItem> findCart(Integer accountId);
+
+    /**
+     * Adds units of a product to the cart of an account
+     * @param accountId the id of the owner of the cart
+     * @param productId the id of the product
+     * @param productName the name of the product
+     * @param productPrice the unit price of the product
+     * @param quantity the units to be added
+     */
+    void addItem(Integer accountId, Integer productId, String productName, BigDecimal productPrice, int quantity);
+
+    /**
+     * Deletes the cart of an account; within a transaction, the cart is deleted only if the transaction commits
+     * @param accountId the id of the owner of the cart
+     */
+    void deleteCart(Integer accountId);
+}
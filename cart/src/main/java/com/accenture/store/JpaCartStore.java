@@ -0,0 +1,47 @@
+package com.accenture.store;
+
+import com.accenture.entity.CartItem;
+import com.accenture.repository.CartItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Cart store which reads and writes every cart directly in the database
+ */
+@Component
+@ConditionalOnProperty(prefix = "cart.store", name = "type", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    private CartItemRepository cartItemRepository;
+
+    /**
+     * Default constructor to allow injecting the repository class as dependency.
+     * @param cartItemRepository the repository for the shopping carts.
+     */
+    @Autowired
+    public JpaCartStore(CartItemRepository cartItemRepository) {
+        this.cartItemRepository = cartItemRepository;
+    }
+
+    @Override
+    public List<CartItem> findCart(Integer accountId) {
+        return cartItemRepository.findAllByCartItemAccountId(accountId);
+    }
+
+    @Override
+    @Transactional
+    public void addItem(Integer accountId, Integer productId, String productName, BigDecimal productPrice, int quantity) {
+        cartItemRepository.upsertCartItem(accountId, productId, productName, productPrice, quantity);
+    }
+
+    @Override
+    @Transactional
+    public void deleteCart(Integer accountId) {
+        cartItemRepository.deleteAllByCartItemAccountId(accountId);
+    }
+}
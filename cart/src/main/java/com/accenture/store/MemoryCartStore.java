@@ -0,0 +1,310 @@
+package com.accenture.store;
+
+import com.accenture.entity.CartItem;
+import com.accenture.repository.CartItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cart store which keeps every cart in memory and writes the changes to the database behind the requests.
+ *
+ * The carts are split in stripes by account id, each one guarded by its own lock, so requests of different
+ * accounts rarely wait for each other. Changed carts are marked dirty and written in batches by a background
+ * task; once the dirty carts reach the configured backlog the writing requests flush them themselves.
+ * A cart deleted within a transaction, such as the one storing its order in the outbox, is deleted from the
+ * database by that transaction and evicted from memory once it commits; the flushes leave it alone meanwhile
+ * and delete it once more afterwards, in case a flush already running wrote it back.
+ * The carts are loaded from the database on startup and flushed once more on shutdown.
+ */
+@Component
+@ConditionalOnProperty(prefix = "cart.store", name = "type", havingValue = "memory")
+public class MemoryCartStore implements CartStore, PublicMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryCartStore.class);
+
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushInterval;
+    private final int maxDirty;
+    private final int batchSize;
+
+    private final Stripe[] stripes;
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Integer> deleting = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong flushedCarts = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Default constructor to allow injecting the repository, the transaction manager and the store settings.
+     * @param cartItemRepository the repository where the carts are persisted.
+     * @param transactionManager the transaction manager used by the batched writes.
+     * @param stripes number of independently locked stripes; rounded up to a power of two.
+     * @param flushInterval milliseconds between two flushes of the dirty carts.
+     * @param maxDirty dirty carts which make the writing requests flush synchronously.
+     * @param batchSize carts written in each database transaction.
+     */
+    @Autowired
+    public MemoryCartStore(CartItemRepository cartItemRepository, PlatformTransactionManager transactionManager,
+                           @Value("${cart.store.stripes:64}") int stripes,
+                           @Value("${cart.store.flush-interval:1000}") long flushInterval,
+                           @Value("${cart.store.max-dirty:5000}") int maxDirty,
+                           @Value("${cart.store.batch-size:200}") int batchSize) {
+        this.cartItemRepository = cartItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushInterval = flushInterval;
+        this.maxDirty = maxDirty;
+        this.batchSize = batchSize;
+
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++)
+            this.stripes[i] = new Stripe();
+    }
+
+    /**
+     * Loads the persisted carts and starts the background flush
+     */
+    @PostConstruct
+    public void start() {
+
+        for (CartItem cartItem : cartItemRepository.findAll()) {
+            Stripe stripe = stripeOf(cartItem.getCartItemAccountId());
+            stripe.carts.computeIfAbsent(cartItem.getCartItemAccountId(), id -> new LinkedHashMap<>())
+                    .put(cartItem.getCartItemProductId(), copyOf(cartItem));
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-store-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background flush and writes the remaining dirty carts when the application is closed
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null)
+            flusher.shutdown();
+        flush();
+    }
+
+    @Override
+    public List<CartItem> findCart(Integer accountId) {
+
+        Stripe stripe = stripeOf(accountId);
+        stripe.lock.lock();
+        try {
+            Map<Integer, CartItem> cart = stripe.carts.get(accountId);
+            if (cart == null)
+                return Collections.emptyList();
+
+            List<CartItem> cartItems = new ArrayList<>(cart.size());
+            for (CartItem cartItem : cart.values())
+                cartItems.add(copyOf(cartItem));
+            return cartItems;
+        }
+        finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void addItem(Integer accountId, Integer productId, String productName, BigDecimal productPrice, int quantity) {
+
+        Stripe stripe = stripeOf(accountId);
+        stripe.lock.lock();
+        try {
+            Map<Integer, CartItem> cart = stripe.carts.computeIfAbsent(accountId, id -> new LinkedHashMap<>());
+            CartItem cartItem = cart.get(productId);
+            if (cartItem == null)
+                cart.put(productId, new CartItem(productId, accountId, productName, productPrice, quantity));
+            else
+                cartItem.setCartItemQuantity(cartItem.getCartItemQuantity() + quantity);
+        }
+        finally {
+            stripe.lock.unlock();
+        }
+        markDirty(accountId);
+    }
+
+    /**
+     * Deletes the cart of an account. Within a transaction the persisted cart is deleted by the transaction itself
+     * and the cart is evicted from memory only if the transaction commits; the evicted cart is then marked dirty,
+     * so the next flush deletes again whatever a flush running meanwhile may have written back.
+     * Otherwise the cart is evicted at once and its deletion is written by the next flush.
+     * @param accountId the id of the owner of the cart
+     */
+    @Override
+    public void deleteCart(Integer accountId) {
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            if (evict(accountId))
+                markDirty(accountId);
+            return;
+        }
+
+        deleting.merge(accountId, 1, Integer::sum);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                evict(accountId);
+                dirty.add(accountId);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                deleting.computeIfPresent(accountId, (id, count) -> count == 1 ? null : count - 1);
+            }
+        });
+
+        cartItemRepository.deleteAllByCartItemAccountId(accountId);
+    }
+
+    /**
+     * Writes the dirty carts to the database, replacing the persisted items of each account.
+     * Only one flush runs at a time; a flush requested while another one is running is skipped.
+     * The carts of a failed batch are marked dirty again and retried by the next flush, while the following
+     * batches are still written. The carts being deleted by a transaction stay dirty until the next flush.
+     */
+    public void flush() {
+
+        if (!flushLock.tryLock())
+            return;
+        try {
+            List<Integer> accountIds = new ArrayList<>(dirty);
+            for (int from = 0; from < accountIds.size(); from += batchSize) {
+
+                List<Integer> batch = new ArrayList<>(accountIds.subList(from,
+                        Math.min(from + batchSize, accountIds.size())));
+                batch.removeIf(deleting::containsKey);
+                Map<Integer, List<CartItem>> snapshots = new HashMap<>();
+                for (Integer accountId : batch) {
+                    dirty.remove(accountId);
+                    List<CartItem> snapshot = findCart(accountId);
+                    snapshot.forEach(cartItem -> cartItem.setCartItemId(null));
+                    snapshots.put(accountId, snapshot);
+                }
+
+                try {
+                    transactionTemplate.execute(status -> {
+                        for (Map.Entry<Integer, List<CartItem>> snapshot : snapshots.entrySet()) {
+                            cartItemRepository.deleteAllByCartItemAccountId(snapshot.getKey());
+                            cartItemRepository.save(snapshot.getValue());
+                        }
+                        return null;
+                    });
+                    flushedCarts.addAndGet(batch.size());
+                }
+                catch (RuntimeException e) {
+                    dirty.addAll(batch);
+                    failedFlushes.incrementAndGet();
+                    log.warn("Could not flush {} carts: {}", batch.size(), e.getMessage());
+                }
+            }
+        }
+        finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Exposes the dirty backlog and the flush counters through the actuator metrics endpoint
+     * @return the cart store metrics
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+
+        long carts = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                carts += stripe.carts.size();
+            }
+            finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        return Arrays.asList(
+                new Metric<>("cart.store.carts", carts),
+                new Metric<>("cart.store.dirty", dirty.size()),
+                new Metric<>("cart.store.flushed", flushedCarts.get()),
+                new Metric<>("cart.store.failed-flushes", failedFlushes.get()));
+    }
+
+    /**
+     * Removes the cart of an account from memory
+     * @return true if there was a cart
+     */
+    private boolean evict(Integer accountId) {
+        Stripe stripe = stripeOf(accountId);
+        stripe.lock.lock();
+        try {
+            return stripe.carts.remove(accountId) != null;
+        }
+        finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void markDirty(Integer accountId) {
+        dirty.add(accountId);
+        if (dirty.size() >= maxDirty)
+            flush();
+    }
+
+    private Stripe stripeOf(Integer accountId) {
+        int hash = accountId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static CartItem copyOf(CartItem cartItem) {
+        CartItem copy = new CartItem(cartItem.getCartItemProductId(), cartItem.getCartItemAccountId(),
+                cartItem.getCartItemName(), cartItem.getCartItemPrice(), cartItem.getCartItemQuantity());
+        copy.setCartItemId(cartItem.getCartItemId());
+        return copy;
+    }
+
+    /**
+     * Carts of the accounts falling in the same stripe, with the lock guarding them
+     */
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Integer, Map<Integer, CartItem>> carts = new HashMap<>();
+    }
+}
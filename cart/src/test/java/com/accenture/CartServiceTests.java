@@ -0,0 +1,111 @@
+package com.accenture;
+
+import com.accenture.cache.ProductCache;
+import com.accenture.discovery.ServiceInstanceRegistry;
+import com.accenture.entity.CartItem;
+import com.accenture.store.JpaCartStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {PersistenceTestConfiguration.class, JpaCartStore.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CartServiceTests {
+
+	@Autowired
+	private JpaCartStore cartStore;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private MockRestServiceServer catalogueService;
+	private CartService cartService;
+
+	@Before
+	public void setUp() {
+		SimpleDiscoveryProperties discoveryProperties = new SimpleDiscoveryProperties();
+		discoveryProperties.getInstances().put("catalogue-microservice", Collections.singletonList(
+				new SimpleDiscoveryProperties.SimpleServiceInstance("http://catalogue:8082")));
+		ServiceInstanceRegistry serviceInstanceRegistry = new ServiceInstanceRegistry(
+				new SimpleDiscoveryClient(discoveryProperties), 5000, 3, 10000);
+
+		RestTemplate restTemplate = new RestTemplate();
+		catalogueService = MockRestServiceServer.bindTo(restTemplate).build();
+		cartService = new CartService(cartStore, restTemplate, serviceInstanceRegistry,
+				new ProductCache(100, 60000, 60000), null, null, null, transactionManager, 500);
+	}
+
+	@After
+	public void tearDown() {
+		cartStore.deleteCart(1);
+	}
+
+	@Test
+	public void addsRepeatedIdsAsUnitsAndReportsTheMissingOnes() {
+		catalogueService.expect(requestTo(containsString("/catalogue/products/ids=")))
+				.andExpect(method(HttpMethod.GET))
+				.andExpect(request -> assertThat(TransactionSynchronizationManager.isActualTransactionActive())
+						.isFalse())
+				.andRespond(withSuccess("{\"products\": ["
+						+ "{\"productId\": 7, \"productName\": \"Nike Trainers\", \"productPrice\": 59.95}, "
+						+ "{\"productId\": 8, \"productName\": \"Adidas Cap\", \"productPrice\": 14.5}], "
+						+ "\"missingIds\": [9]}", MediaType.APPLICATION_JSON));
+
+		assertThat(cartService.saveCartItems(Arrays.asList(7, 9, 8, 7, 7, 9), 1)).containsExactly(9);
+
+		catalogueService.verify();
+		assertThat(quantitiesOf(1)).containsOnly(entry(7, 3), entry(8, 1));
+	}
+
+	@Test
+	public void resolvesTheProductsFromTheCacheOnTheNextAdds() {
+		catalogueService.expect(requestTo(containsString("/catalogue/products/ids=")))
+				.andRespond(withSuccess("{\"products\": ["
+						+ "{\"productId\": 7, \"productName\": \"Nike Trainers\", \"productPrice\": 59.95}], "
+						+ "\"missingIds\": [9]}", MediaType.APPLICATION_JSON));
+
+		cartService.saveCartItems(Arrays.asList(7, 9), 1);
+		assertThat(cartService.saveCartItems(Arrays.asList(9, 7, 7), 1)).containsExactly(9);
+
+		catalogueService.verify();
+		assertThat(quantitiesOf(1)).containsOnly(entry(7, 3));
+	}
+
+	private Map<Integer, Integer> quantitiesOf(Integer accountId) {
+		Map<Integer, Integer> quantities = new HashMap<>();
+		for (CartItem cartItem : cartStore.findCart(accountId))
+			quantities.put(cartItem.getCartItemProductId(), cartItem.getCartItemQuantity());
+		return quantities;
+	}
+}
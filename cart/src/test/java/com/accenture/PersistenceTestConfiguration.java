@@ -0,0 +1,15 @@
+package com.accenture;
+
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Loads only the persistence layer, leaving out the beans of CartApplication. The JPA tests list it in their
+ * context configuration together with the beans they test.
+ */
+@Configuration
+@EntityScan("com.accenture.entity")
+@EnableJpaRepositories("com.accenture.repository")
+public class PersistenceTestConfiguration {
+}
@@ -0,0 +1,46 @@
+package com.accenture.account;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AccountClientTests {
+
+	@Test
+	public void keepsTheSeparatorsOfTheSplitParsingInTheValues() throws IOException {
+		ShippingDetails details = AccountClient.readShippingDetails(json("{\"accountId\":3,"
+				+ "\"accountName\":\"Mary=Jane\",\"accountSurname\":\"O'Neil, Jr.\","
+				+ "\"accountAddress\":\"Calle Mayor, 2, 3=B, Madrid\",\"accountUsername\":\"mj\"}"));
+
+		assertThat(details.getAccountName()).isEqualTo("Mary=Jane");
+		assertThat(details.getAccountSurname()).isEqualTo("O'Neil, Jr.");
+		assertThat(details.getAccountAddress()).isEqualTo("Calle Mayor, 2, 3=B, Madrid");
+		assertThat(details.getAddressee()).isEqualTo("Mary=Jane O'Neil, Jr.");
+	}
+
+	@Test
+	public void skipsNestedFieldsInAnyOrder() throws IOException {
+		ShippingDetails details = AccountClient.readShippingDetails(json("{\"accountAddress\":\"Calle 2\","
+				+ "\"roles\":[{\"accountName\":\"nested\"}],\"meta\":{\"accountSurname\":\"nested\"},"
+				+ "\"accountSurname\":\"Shvayka\",\"accountName\":\"Sergiy\"}"));
+
+		assertThat(details.getAccountName()).isEqualTo("Sergiy");
+		assertThat(details.getAccountSurname()).isEqualTo("Shvayka");
+		assertThat(details.getAccountAddress()).isEqualTo("Calle 2");
+	}
+
+	@Test
+	public void rejectsWhatIsNotAnObject() {
+		assertThatThrownBy(() -> AccountClient.readShippingDetails(json("[1, 2]"))).isInstanceOf(IOException.class);
+	}
+
+	private static InputStream json(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,70 @@
+package com.accenture.account;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former checkout account parsing (generic map, toString() and split) with the streaming reader.
+ * Run it with the main method; it is not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShippingDetailsBenchmark {
+
+    private static final byte[] ACCOUNT = ("{\"accountId\":3,\"accountName\":\"Sergiy\",\"accountSurname\":\"Shvayka\","
+            + "\"accountAddress\":\"Calle 2\",\"accountUsername\":\"ss\",\"accountPassword\":\"ss\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Benchmark
+    public ShippingDetails toStringAndSplit() throws IOException {
+        String accountResponse = objectMapper.readValue(ACCOUNT, Object.class).toString();
+        return new ShippingDetails(getValue(accountResponse, "accountName"), getValue(accountResponse, "accountSurname"),
+                getValue(accountResponse, "accountAddress"));
+    }
+
+    @Benchmark
+    public ShippingDetails streaming() throws IOException {
+        return AccountClient.readShippingDetails(new ByteArrayInputStream(ACCOUNT));
+    }
+
+    /**
+     * Former CartService.getValue, kept here as the baseline
+     */
+    private static String getValue(String objectResponse, String value) {
+        Map<String,String> result = new HashMap<>();
+        String[] elements = objectResponse.split(", ");
+        for(String s : elements) {
+            String[] keyValue = s.split("=");
+            result.put(keyValue[0], keyValue[1]);
+        }
+        return result.get(value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ShippingDetailsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
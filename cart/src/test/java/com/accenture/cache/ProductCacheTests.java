@@ -0,0 +1,101 @@
+package com.accenture.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProductCacheTests {
+
+	@Test
+	public void loadsEachProductOnceUntilItExpires() throws InterruptedException {
+		ProductCache cache = new ProductCache(100, 50, 50);
+		AtomicInteger loads = new AtomicInteger();
+
+		assertThat(cache.get(1, id -> "product " + loads.incrementAndGet())).isEqualTo("product 1");
+		assertThat(cache.get(1, id -> "product " + loads.incrementAndGet())).isEqualTo("product 1");
+		assertThat(cache.get(2, id -> null)).isNull();
+		assertThat(cache.get(2, id -> "found")).isNull();
+		assertThat(cache.getHits()).isEqualTo(2);
+		assertThat(cache.getMisses()).isEqualTo(2);
+
+		Thread.sleep(60);
+		assertThat(cache.get(1, id -> "product " + loads.incrementAndGet())).isEqualTo("product 2");
+	}
+
+	@Test
+	public void evictsTheLeastRecentlyUsedProducts() {
+		ProductCache cache = new ProductCache(2, 60000, 60000);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		cache.get(1, id -> "reloaded");
+		cache.put(3, "three");
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.getEvictions()).isEqualTo(1);
+		assertThat(cache.get(1, id -> "reloaded")).isEqualTo("one");
+		assertThat(cache.get(2, id -> "reloaded")).isEqualTo("reloaded");
+	}
+
+	@Test
+	public void doesNotKeepWhatWasLoadedBeforeAnInvalidation() {
+		ProductCache cache = new ProductCache(100, 60000, 60000);
+
+		Object loaded = cache.get(1, id -> {
+			cache.invalidate(1);
+			return "stale";
+		});
+		assertThat(loaded).isEqualTo("stale");
+		assertThat(cache.get(1, id -> "fresh")).isEqualTo("fresh");
+
+		cache.getAll(Arrays.asList(2, 3), ids -> {
+			cache.invalidateAll();
+			return values(ids, "stale");
+		});
+		assertThat(cache.getAll(Arrays.asList(2, 3), ids -> values(ids, "fresh"))).containsValues("fresh", "fresh");
+	}
+
+	@Test
+	public void loadsOnlyTheMissingProductsTogether() {
+		ProductCache cache = new ProductCache(100, 60000, 60000);
+		cache.put(1, "one");
+		AtomicInteger loads = new AtomicInteger();
+
+		Map<Integer, Object> products = cache.getAll(Arrays.asList(1, 2, 3, 2), ids -> {
+			loads.incrementAndGet();
+			assertThat(ids).containsExactly(2, 3);
+			Map<Integer, Object> found = new HashMap<>();
+			found.put(2, "two");
+			return found;
+		});
+
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(products).containsOnlyKeys(1, 2);
+		assertThat(cache.get(3, id -> "three")).isNull();
+	}
+
+	@Test
+	public void forgetsAFailedLoad() {
+		ProductCache cache = new ProductCache(100, 60000, 60000);
+
+		assertThatThrownBy(() -> cache.get(1, id -> {
+			throw new IllegalStateException("catalogue is down");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(cache.size()).isZero();
+		assertThat(cache.get(1, id -> "one")).isEqualTo("one");
+	}
+
+	private static Map<Integer, Object> values(Set<Integer> ids, String value) {
+		Map<Integer, Object> values = new HashMap<>();
+		for (Integer id : ids)
+			values.put(id, value);
+		return values;
+	}
+}
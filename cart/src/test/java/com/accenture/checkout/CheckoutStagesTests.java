@@ -0,0 +1,122 @@
+package com.accenture.checkout;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CheckoutStagesTests {
+
+	private final Map<String, Double> gauges = new ConcurrentHashMap<>();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private CheckoutStages checkoutStages;
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		checkoutStages.shutdown();
+	}
+
+	@Test
+	public void cancelsAStepWhichDoesNotFinishInTime() throws InterruptedException {
+		checkoutStages = new CheckoutStages(gauges::put, 2, 10, 50, 1000);
+		CountDownLatch interrupted = new CountDownLatch(1);
+
+		Future<String> account = checkoutStages.supply(CheckoutStages.ACCOUNT, () -> {
+			try {
+				release.await();
+				return "finished";
+			}
+			catch (InterruptedException e) {
+				interrupted.countDown();
+				return "interrupted";
+			}
+		});
+
+		long startedAt = System.nanoTime();
+		assertThatThrownBy(() -> checkoutStages.await(CheckoutStages.ACCOUNT, account, startedAt))
+				.isInstanceOf(CheckoutStages.CheckoutTimeoutException.class)
+				.hasMessageContaining("did not finish in time");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(1000);
+		assertThat(account.isCancelled()).isTrue();
+		assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void givesUpASlowStepOnceItsOwnTimeoutHasElapsed() {
+		checkoutStages = new CheckoutStages(gauges::put, 2, 10, 1000, 50);
+
+		Future<String> items = checkoutStages.supply(CheckoutStages.ITEMS, () -> {
+			long busyUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+			while (System.nanoTime() < busyUntil)
+				Thread.yield();
+			return "items";
+		});
+
+		long startedAt = System.nanoTime();
+		assertThatThrownBy(() -> checkoutStages.await(CheckoutStages.ITEMS, items, startedAt))
+				.isInstanceOf(CheckoutStages.CheckoutTimeoutException.class)
+				.hasMessageContaining("'items'");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(300);
+		assertThat(items.isCancelled()).isTrue();
+	}
+
+	@Test
+	public void rejectsTheStepsWhichDoNotFitInThePool() throws InterruptedException {
+		checkoutStages = new CheckoutStages(gauges::put, 1, 1, 50, 50);
+		CountDownLatch running = new CountDownLatch(1);
+
+		checkoutStages.supply(CheckoutStages.ACCOUNT, () -> {
+			running.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+		checkoutStages.supply(CheckoutStages.ITEMS, () -> null);
+
+		Thread caller = Thread.currentThread();
+		assertThatThrownBy(() -> checkoutStages.supply(CheckoutStages.ACCOUNT, () -> {
+			assertThat(Thread.currentThread()).isNotSameAs(caller);
+			return null;
+		})).isInstanceOf(RejectedExecutionException.class);
+	}
+
+	@Test
+	public void rethrowsTheFailureOfAStep() {
+		checkoutStages = new CheckoutStages(gauges::put, 2, 10, 1000, 1000);
+
+		Future<Object> items = checkoutStages.supply(CheckoutStages.ITEMS, () -> {
+			throw new IllegalStateException("The cart store is not available");
+		});
+
+		assertThatThrownBy(() -> checkoutStages.await(CheckoutStages.ITEMS, items, System.nanoTime()))
+				.isInstanceOf(IllegalStateException.class).hasMessage("The cart store is not available");
+	}
+
+	@Test
+	public void submitsTheDurationOfEveryStage() {
+		checkoutStages = new CheckoutStages(gauges::put, 2, 10, 1000, 1000);
+		long startedAt = System.nanoTime();
+
+		Future<String> items = checkoutStages.supply(CheckoutStages.ITEMS, () -> "items");
+		assertThat(checkoutStages.await(CheckoutStages.ITEMS, items, startedAt)).isEqualTo("items");
+		checkoutStages.record(CheckoutStages.TOTAL, startedAt);
+
+		assertThat(gauges).containsOnlyKeys("timer.cart.checkout.items", "timer.cart.checkout.total");
+		assertThat(gauges.get("timer.cart.checkout.total")).isGreaterThanOrEqualTo(0);
+	}
+}
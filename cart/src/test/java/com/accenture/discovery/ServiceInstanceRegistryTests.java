@@ -0,0 +1,186 @@
+package com.accenture.discovery;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ServiceInstanceRegistryTests {
+
+	private static final String CATALOGUE = "catalogue-microservice";
+
+	private InMemoryDiscoveryClient discoveryClient;
+	private ServiceInstanceRegistry registry;
+
+	@Before
+	public void setUp() {
+		discoveryClient = new InMemoryDiscoveryClient();
+		discoveryClient.register(CATALOGUE, "catalogue-1", 8082);
+		discoveryClient.register(CATALOGUE, "catalogue-2", 8082);
+		registry = new ServiceInstanceRegistry(discoveryClient, 5000, 2, 60000);
+	}
+
+	@Test
+	public void cachesInstancesUntilRefreshed() {
+		registry.choose(CATALOGUE);
+		registry.choose(CATALOGUE);
+		assertThat(discoveryClient.lookups.get()).isEqualTo(1);
+
+		discoveryClient.register(CATALOGUE, "catalogue-3", 8082);
+		assertThat(registry.getInstances(CATALOGUE)).hasSize(2);
+
+		registry.refresh();
+		assertThat(registry.getInstances(CATALOGUE)).hasSize(3);
+		assertThat(discoveryClient.lookups.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void keepsStatisticsAcrossRefreshes() {
+		registry.execute(CATALOGUE, uri -> uri);
+		InstanceStats before = statsOf("catalogue-1");
+
+		registry.refresh();
+
+		assertThat(statsOf("catalogue-1")).isSameAs(before);
+	}
+
+	@Test
+	public void prefersTheInstanceWithLowerLatency() {
+		statsOf("catalogue-1").requestStarted();
+		statsOf("catalogue-1").requestSucceeded(500);
+		statsOf("catalogue-2").requestStarted();
+		statsOf("catalogue-2").requestSucceeded(5);
+
+		for (int i = 0; i < 100; i++)
+			assertThat(registry.choose(CATALOGUE).getUri().getHost()).isEqualTo("catalogue-2");
+	}
+
+	@Test
+	public void prefersTheInstanceWithFewerOutstandingRequests() {
+		for (int i = 0; i < 10; i++)
+			statsOf("catalogue-1").requestStarted();
+
+		assertThat(registry.choose(CATALOGUE).getUri().getHost()).isEqualTo("catalogue-2");
+	}
+
+	@Test
+	public void ejectsFailingInstances() {
+		int failures = 0;
+		for (int i = 0; i < 1000 && failures < 2; i++) {
+			try {
+				registry.execute(CATALOGUE, uri -> {
+					if (uri.getHost().equals("catalogue-1"))
+						throw new ResourceAccessException("Connection refused");
+					return uri;
+				});
+			}
+			catch (ResourceAccessException e) {
+				failures++;
+			}
+		}
+
+		assertThat(failures).isEqualTo(2);
+		for (int i = 0; i < 100; i++)
+			assertThat(registry.choose(CATALOGUE).getUri().getHost()).isEqualTo("catalogue-2");
+	}
+
+	@Test
+	public void clientErrorsDoNotEjectInstances() {
+		for (int i = 0; i < 10; i++) {
+			try {
+				registry.execute(CATALOGUE, uri -> {
+					throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+				});
+				fail("404 should be propagated");
+			}
+			catch (HttpClientErrorException e) {
+				// expected
+			}
+		}
+
+		long now = System.currentTimeMillis();
+		for (InstanceStats stats : registry.getInstances(CATALOGUE))
+			assertThat(stats.isEjected(now)).isFalse();
+	}
+
+	@Test
+	public void fallsBackToEjectedInstancesWhenNoneIsHealthy() {
+		for (InstanceStats stats : registry.getInstances(CATALOGUE)) {
+			stats.requestStarted();
+			stats.requestFailed(1, 60000);
+		}
+
+		assertThat(registry.choose(CATALOGUE)).isNotNull();
+	}
+
+	@Test
+	public void keepsLastKnownInstancesWhenDiscoveryFails() {
+		registry.getInstances(CATALOGUE);
+		discoveryClient.failing = true;
+
+		registry.refresh();
+
+		assertThat(registry.getInstances(CATALOGUE)).hasSize(2);
+	}
+
+	private InstanceStats statsOf(String host) {
+		for (InstanceStats stats : registry.getInstances(CATALOGUE)) {
+			if (stats.getUri().getHost().equals(host))
+				return stats;
+		}
+		throw new IllegalArgumentException(host);
+	}
+
+	/**
+	 * Discovery client stand-in keeping the registered instances in memory. It extends the simple client for the
+	 * local instance lookup, which the discovery client interface still declares but has deprecated.
+	 */
+	private static class InMemoryDiscoveryClient extends SimpleDiscoveryClient {
+
+		private final Map<String, List<ServiceInstance>> services = new ConcurrentHashMap<>();
+		private final AtomicInteger lookups = new AtomicInteger();
+		private volatile boolean failing;
+
+		InMemoryDiscoveryClient() {
+			super(new SimpleDiscoveryProperties());
+		}
+
+		void register(String serviceId, String host, int port) {
+			services.computeIfAbsent(serviceId, id -> new ArrayList<>())
+					.add(new DefaultServiceInstance(serviceId, host, port, false));
+		}
+
+		@Override
+		public String description() {
+			return "In-memory discovery client";
+		}
+
+		@Override
+		public List<ServiceInstance> getInstances(String serviceId) {
+			lookups.incrementAndGet();
+			if (failing)
+				throw new IllegalStateException("Consul is not reachable");
+			return new ArrayList<>(services.getOrDefault(serviceId, Collections.emptyList()));
+		}
+
+		@Override
+		public List<String> getServices() {
+			return new ArrayList<>(services.keySet());
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.accenture.http;
+
+import com.accenture.discovery.InstanceStats;
+import com.accenture.discovery.ServiceInstanceRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties.SimpleServiceInstance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DownstreamConnectionPoolTests {
+
+	private static final String CATALOGUE = "catalogue-microservice";
+	private static final String ORDER = "order-microservice";
+
+	private final List<SimpleServiceInstance> catalogueInstances = new ArrayList<>();
+	private CountingRegistry registry;
+	private DownstreamConnectionPool pool;
+
+	@Before
+	public void setUp() {
+		catalogueInstances.add(new SimpleServiceInstance("http://catalogue-1:8082"));
+		catalogueInstances.add(new SimpleServiceInstance("http://catalogue-2:8082"));
+
+		SimpleDiscoveryProperties discovery = new SimpleDiscoveryProperties();
+		discovery.getInstances().put(CATALOGUE, catalogueInstances);
+		discovery.getInstances().put(ORDER, new ArrayList<>());
+		registry = new CountingRegistry(new SimpleDiscoveryClient(discovery));
+
+		HttpPoolProperties properties = new HttpPoolProperties();
+		properties.setMaintenanceInterval(60000);
+		properties.getMaxPerService().put(CATALOGUE, 50);
+		properties.getMaxPerService().put(ORDER, 20);
+		pool = new DownstreamConnectionPool(properties, registry);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		pool.shutdown();
+	}
+
+	@Test
+	public void readsTheMetricsWithoutLookingUpTheInstances() {
+		assertThat(metrics()).containsEntry("cart.http.pool." + CATALOGUE + ".max", 0);
+		assertThat(registry.lookups.get()).isZero();
+
+		pool.maintain();
+		assertThat(registry.lookups.get()).isEqualTo(2);
+
+		for (int i = 0; i < 10; i++)
+			pool.metrics();
+		assertThat(registry.lookups.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void limitsEveryInstanceOfAService() {
+		pool.maintain();
+
+		Map<String, Number> metrics = metrics();
+		assertThat(metrics).containsEntry("cart.http.pool." + CATALOGUE + ".max", 100);
+		assertThat(metrics).containsEntry("cart.http.pool." + CATALOGUE + ".leased", 0);
+		assertThat(metrics).containsEntry("cart.http.pool." + ORDER + ".max", 0);
+		assertThat(metrics).containsEntry("cart.http.pool.max", 200);
+	}
+
+	@Test
+	public void findsTheNewInstancesOnTheNextMaintenance() {
+		pool.maintain();
+
+		catalogueInstances.add(new SimpleServiceInstance("http://catalogue-3:8082"));
+		registry.refresh();
+		assertThat(metrics()).containsEntry("cart.http.pool." + CATALOGUE + ".max", 100);
+
+		pool.maintain();
+		assertThat(metrics()).containsEntry("cart.http.pool." + CATALOGUE + ".max", 150);
+
+		catalogueInstances.remove(0);
+		registry.refresh();
+		pool.maintain();
+		assertThat(metrics()).containsEntry("cart.http.pool." + CATALOGUE + ".max", 100);
+	}
+
+	private Map<String, Number> metrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : pool.metrics())
+			metrics.put(metric.getName(), metric.getValue());
+		return metrics;
+	}
+
+	private static class CountingRegistry extends ServiceInstanceRegistry {
+
+		private final AtomicInteger lookups = new AtomicInteger();
+
+		CountingRegistry(SimpleDiscoveryClient discoveryClient) {
+			super(discoveryClient, 60000, 3, 10000);
+		}
+
+		@Override
+		public List<InstanceStats> getInstances(String serviceId) {
+			lookups.incrementAndGet();
+			return super.getInstances(serviceId);
+		}
+	}
+}
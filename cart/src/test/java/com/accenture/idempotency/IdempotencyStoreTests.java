@@ -0,0 +1,140 @@
+package com.accenture.idempotency;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class IdempotencyStoreTests {
+
+	@Test
+	public void replaysTheFirstResult() {
+		IdempotencyStore store = new IdempotencyStore(100, 60000, 60000);
+		AtomicInteger runs = new AtomicInteger();
+
+		String first = store.execute("1:key", () -> "order " + runs.incrementAndGet());
+		String second = store.execute("1:key", () -> "order " + runs.incrementAndGet());
+
+		assertThat(second).isEqualTo(first);
+		assertThat(runs.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void runsConcurrentRequestsWithTheSameKeyOnce() throws Exception {
+		IdempotencyStore store = new IdempotencyStore(100, 60000, 60000);
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		List<Future<Integer>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < 200; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return store.execute("1:key", () -> {
+						sleep(50);
+						return runs.incrementAndGet();
+					});
+				}));
+			}
+			start.countDown();
+			for (Future<Integer> result : results)
+				assertThat(result.get()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertThat(runs.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void doesNotStoreFailures() {
+		IdempotencyStore store = new IdempotencyStore(100, 60000, 60000);
+
+		try {
+			store.execute("1:key", () -> {
+				throw new IllegalStateException("order service down");
+			});
+			fail("the failure should be propagated");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+
+		assertThat(store.execute("1:key", () -> "retried")).isEqualTo("retried");
+	}
+
+	@Test
+	public void stopsWaitingForAStuckRequest() throws Exception {
+		IdempotencyStore store = new IdempotencyStore(100, 60000, 50);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> first = executor.submit(() -> store.execute("1:key", () -> {
+				started.countDown();
+				await(release);
+				return "first";
+			}));
+			started.await();
+
+			try {
+				store.execute("1:key", () -> "second");
+				fail("the repeated request should not wait for the stuck one");
+			}
+			catch (IdempotencyStore.RequestInProgressException e) {
+				// expected
+			}
+
+			release.countDown();
+			assertThat(first.get()).isEqualTo("first");
+			assertThat(store.execute("1:key", () -> "second")).isEqualTo("first");
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void forgetsExpiredAndEvictedKeys() {
+		IdempotencyStore expiring = new IdempotencyStore(100, 0, 60000);
+		expiring.execute("1:key", () -> "first");
+		assertThat(expiring.execute("1:key", () -> "second")).isEqualTo("second");
+
+		IdempotencyStore bounded = new IdempotencyStore(2, 60000, 60000);
+		bounded.execute("1:a", () -> "a");
+		bounded.execute("1:b", () -> "b");
+		bounded.execute("1:c", () -> "c");
+		assertThat(bounded.size()).isEqualTo(2);
+		assertThat(bounded.getEvictions()).isEqualTo(1);
+		assertThat(bounded.execute("1:a", () -> "a again")).isEqualTo("a again");
+		assertThat(bounded.getReplays()).isZero();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.accenture.outbox;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Order;
+import com.accenture.entity.OutboxOrder;
+import com.accenture.repository.OutboxOrderRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {PersistenceTestConfiguration.class, OrderOutbox.class,
+		OrderOutboxTests.OutboxConfiguration.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {"cart.outbox.dispatch-interval=3600000", "cart.outbox.retry-backoff=0",
+		"cart.outbox.max-attempts=2"})
+public class OrderOutboxTests {
+
+	private static final String ORDERS = "http://order-microservice/orders/";
+
+	/**
+	 * Provides the RestTemplate of the tested beans
+	 */
+	@Configuration
+	static class OutboxConfiguration {
+
+		@Bean
+		public RestTemplate restTemplate() {
+			return new RestTemplate();
+		}
+	}
+
+	@Autowired
+	private OrderOutbox orderOutbox;
+
+	@Autowired
+	private OutboxOrderRepository outboxOrderRepository;
+
+	@Autowired
+	private RestTemplate restTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private MockRestServiceServer orderService;
+
+	@Before
+	public void setUp() {
+		orderService = MockRestServiceServer.bindTo(restTemplate).build();
+	}
+
+	@After
+	public void tearDown() {
+		outboxOrderRepository.deleteAll();
+	}
+
+	@Test
+	public void deliversPendingOrdersWithTheTokenOfTheCart() {
+		long now = System.currentTimeMillis();
+		enqueue(1, "10.00");
+		enqueue(2, "20.00");
+
+		expectOrder(1, "10.00").andExpect(request -> {
+			Claims claims = Jwts.parser().setSigningKey("secret")
+					.parseClaimsJws(request.getHeaders().getFirst("Authorization").replace("Bearer ", ""))
+					.getBody();
+			assertThat(claims.getSubject()).isEqualTo("cart-microservice");
+			assertThat(claims.get("svc", Boolean.class)).isTrue();
+			assertThat(claims.getExpiration()).isAfter(new Date(now));
+			assertThat(request.getHeaders().getFirst("Idempotency-Key")).matches("cart-outbox-[0-9a-f-]{36}");
+		}).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		expectOrder(2, "20.00").andExpect(request -> assertThat(request.getHeaders().getFirst("Authorization"))
+				.startsWith("Bearer "))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		orderOutbox.dispatch();
+
+		orderService.verify();
+		assertThat(outboxOrderRepository.count()).isZero();
+	}
+
+	@Test
+	public void keepsTheOrdersOfAnAccountBehindAFailedOne() {
+		enqueue(1, "10.00");
+		enqueue(1, "11.00");
+		enqueue(2, "20.00");
+
+		expectOrder(1, "10.00").andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+		expectOrder(2, "20.00").andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		orderOutbox.dispatch();
+
+		orderService.verify();
+		List<OutboxOrder> pending = outboxOrderRepository.findAll();
+		assertThat(pending).extracting(OutboxOrder::getAccountId).containsExactly(1, 1);
+		assertThat(pending.get(0).getAttempts()).isEqualTo(1);
+		assertThat(pending.get(1).getAttempts()).isZero();
+	}
+
+	@Test
+	public void setsAsideOrdersFailingTooManyTimes() {
+		enqueue(1, "10.00");
+		enqueue(1, "11.00");
+
+		orderService.expect(requestTo(ORDERS)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+		orderService.expect(requestTo(ORDERS)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+		expectOrder(1, "11.00").andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		orderOutbox.dispatch();
+		orderOutbox.dispatch();
+
+		orderService.verify();
+		assertThat(outboxOrderRepository.countByFailedFalse()).isZero();
+		assertThat(outboxOrderRepository.countByFailedTrue()).isEqualTo(1);
+	}
+
+	@Test
+	public void doesNotFillTheBatchWithTheOrdersWaitingForARetry() {
+		OrderOutbox smallBatches = new OrderOutbox(outboxOrderRepository, restTemplate, transactionManager,
+				3600000, 2, 10, 60000, 60000, 300000);
+		enqueue(1, "10.00");
+		enqueue(1, "11.00");
+		enqueue(2, "20.00");
+
+		expectOrder(1, "10.00").andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+		expectOrder(2, "20.00").andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		smallBatches.dispatch();
+		smallBatches.dispatch();
+
+		orderService.verify();
+		assertThat(outboxOrderRepository.findAll()).extracting(OutboxOrder::getAccountId).containsExactly(1, 1);
+	}
+
+	private void enqueue(Integer accountId, String cost) {
+		Order order = new Order(accountId, "John Doe", "Main Street", new BigDecimal(cost), "01-01-2018 10:00");
+		new TransactionTemplate(transactionManager).execute(status -> {
+			orderOutbox.enqueue(order);
+			return null;
+		});
+	}
+
+	private ResponseActions expectOrder(Integer accountId, String cost) {
+		return orderService.expect(requestTo(ORDERS))
+				.andExpect(method(HttpMethod.POST))
+				.andExpect(content().string(allOf(
+						containsString("\"accountId\":" + accountId), containsString("\"cost\":" + cost))));
+	}
+}
@@ -0,0 +1,96 @@
+package com.accenture.store;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.CartItem;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {PersistenceTestConfiguration.class, JpaCartStore.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JpaCartStoreTests {
+
+	private static final int ACCOUNTS = 4;
+	private static final int PRODUCTS = 5;
+	private static final int ADDS = 4000;
+
+	@Autowired
+	private JpaCartStore cartStore;
+
+	@After
+	public void tearDown() {
+		for (int accountId = 1; accountId <= ACCOUNTS; accountId++)
+			cartStore.deleteCart(accountId);
+	}
+
+	@Test
+	public void addsTheSameProductToDifferentAccounts() {
+		cartStore.addItem(1, 7, "Nike Trainers", BigDecimal.ONE, 1);
+		cartStore.addItem(2, 7, "Nike Trainers", BigDecimal.ONE, 2);
+		cartStore.addItem(1, 7, "Nike Trainers", BigDecimal.ONE, 3);
+
+		assertThat(quantitiesOf(1)).containsOnly(entry(7, 4));
+		assertThat(quantitiesOf(2)).containsOnly(entry(7, 2));
+	}
+
+	@Test
+	public void concurrentAddsDoNotLoseUpdates() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(32);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> adds = new ArrayList<>();
+		try {
+			for (int i = 0; i < ADDS; i++) {
+				int accountId = 1 + i % ACCOUNTS;
+				int productId = 1 + (i / ACCOUNTS) % PRODUCTS;
+				adds.add(executor.submit(() -> {
+					start.await();
+					cartStore.addItem(accountId, productId, "Product " + productId, BigDecimal.TEN, 1);
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> add : adds)
+				add.get();
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		for (int accountId = 1; accountId <= ACCOUNTS; accountId++) {
+			Map<Integer, Integer> quantities = quantitiesOf(accountId);
+			assertThat(quantities).hasSize(PRODUCTS);
+			for (int productId = 1; productId <= PRODUCTS; productId++)
+				assertThat(quantities.get(productId)).isEqualTo(ADDS / (ACCOUNTS * PRODUCTS));
+		}
+	}
+
+	private Map<Integer, Integer> quantitiesOf(Integer accountId) {
+		Map<Integer, Integer> quantities = new HashMap<>();
+		for (CartItem cartItem : cartStore.findCart(accountId))
+			quantities.put(cartItem.getCartItemProductId(), cartItem.getCartItemQuantity());
+		return quantities;
+	}
+}
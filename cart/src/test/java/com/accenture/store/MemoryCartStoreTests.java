@@ -0,0 +1,187 @@
+package com.accenture.store;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.CartItem;
+import com.accenture.repository.CartItemRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class MemoryCartStoreTests {
+
+	@Autowired
+	private CartItemRepository cartItemRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private MemoryCartStore cartStore;
+
+	@After
+	public void tearDown() {
+		cartStore.shutdown();
+		cartItemRepository.deleteAll();
+	}
+
+	@Test
+	public void writesTheCartsChangedAfterTheyWereFlushed() {
+		cartStore = store(200);
+
+		cartStore.addItem(1, 7, "Nike Trainers", BigDecimal.ONE, 1);
+		cartStore.flush();
+		cartStore.addItem(1, 7, "Nike Trainers", BigDecimal.ONE, 2);
+		cartStore.addItem(1, 8, "Adidas Cap", BigDecimal.ONE, 1);
+		cartStore.flush();
+
+		assertThat(persistedQuantitiesOf(1)).containsOnly(entry(7, 3), entry(8, 1));
+		assertThat(metrics()).containsEntry("cart.store.failed-flushes", 0L).containsEntry("cart.store.dirty", 0);
+
+		cartStore.deleteCart(1);
+		cartStore.flush();
+		assertThat(persistedQuantitiesOf(1)).isEmpty();
+	}
+
+	@Test
+	public void keepsWritingTheBatchesFollowingAFailedOne() {
+		cartStore = store(1);
+
+		cartStore.addItem(1, 7, new String(new char[300]).replace('\0', 'x'), BigDecimal.ONE, 1);
+		cartStore.addItem(2, 7, "Nike Trainers", BigDecimal.ONE, 1);
+		cartStore.addItem(3, 7, "Nike Trainers", BigDecimal.ONE, 1);
+		cartStore.flush();
+
+		assertThat(persistedQuantitiesOf(1)).isEmpty();
+		assertThat(persistedQuantitiesOf(2)).containsOnly(entry(7, 1));
+		assertThat(persistedQuantitiesOf(3)).containsOnly(entry(7, 1));
+		assertThat(metrics()).containsEntry("cart.store.failed-flushes", 1L).containsEntry("cart.store.dirty", 1);
+
+		cartStore.deleteCart(1);
+		cartStore.flush();
+		assertThat(metrics()).containsEntry("cart.store.dirty", 0);
+	}
+
+	@Test
+	public void deletesThePersistedCartWithinTheTransactionWhichDeletesIt() {
+		cartStore = store(200);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+		cartStore.addItem(1, 7, "Nike Trainers", BigDecimal.ONE, 2);
+		cartStore.flush();
+		transactionTemplate.execute(status -> {
+			cartStore.deleteCart(1);
+			status.setRollbackOnly();
+			return null;
+		});
+		assertThat(cartStore.findCart(1)).hasSize(1);
+		assertThat(persistedQuantitiesOf(1)).containsOnly(entry(7, 2));
+
+		cartStore.addItem(1, 7, "Nike Trainers", BigDecimal.ONE, 1);
+		transactionTemplate.execute(status -> {
+			cartStore.deleteCart(1);
+			cartStore.flush();
+			return null;
+		});
+		assertThat(cartStore.findCart(1)).isEmpty();
+		assertThat(persistedQuantitiesOf(1)).isEmpty();
+
+		cartStore.flush();
+		assertThat(persistedQuantitiesOf(1)).isEmpty();
+		assertThat(metrics()).containsEntry("cart.store.dirty", 0);
+	}
+
+	@Test
+	public void deletesACartWithoutWaitingForARunningFlush() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CartItemRepository blockingRepository = mock(CartItemRepository.class, delegatesTo(cartItemRepository));
+		doAnswer(invocation -> {
+			writing.countDown();
+			release.await();
+			@SuppressWarnings("unchecked")
+			List<CartItem> cartItems = (List<CartItem>) invocation.getArguments()[0];
+			return cartItemRepository.save(cartItems);
+		}).when(blockingRepository).save(anyListOf(CartItem.class));
+		cartStore = store(blockingRepository, 200);
+
+		cartStore.addItem(1, 7, "Nike Trainers", BigDecimal.ONE, 1);
+		cartStore.addItem(2, 7, "Nike Trainers", BigDecimal.ONE, 1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> flush = executor.submit(cartStore::flush);
+			assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+			long startedAt = System.nanoTime();
+			cartStore.deleteCart(2);
+			assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(1000);
+			assertThat(cartStore.findCart(2)).isEmpty();
+			assertThat(flush.isDone()).isFalse();
+
+			release.countDown();
+			flush.get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+
+		cartStore.flush();
+		assertThat(persistedQuantitiesOf(1)).containsOnly(entry(7, 1));
+		assertThat(persistedQuantitiesOf(2)).isEmpty();
+	}
+
+	private MemoryCartStore store(int batchSize) {
+		return store(cartItemRepository, batchSize);
+	}
+
+	private MemoryCartStore store(CartItemRepository repository, int batchSize) {
+		MemoryCartStore store = new MemoryCartStore(repository, transactionManager, 4, 60000, 1000, batchSize);
+		store.start();
+		return store;
+	}
+
+	private Map<Integer, Integer> persistedQuantitiesOf(Integer accountId) {
+		Map<Integer, Integer> quantities = new HashMap<>();
+		for (CartItem cartItem : cartItemRepository.findAllByCartItemAccountId(accountId))
+			quantities.put(cartItem.getCartItemProductId(), cartItem.getCartItemQuantity());
+		return quantities;
+	}
+
+	private Map<String, Object> metrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		for (Metric<?> metric : cartStore.metrics())
+			metrics.put(metric.getName(), metric.getValue());
+		return metrics;
+	}
+}
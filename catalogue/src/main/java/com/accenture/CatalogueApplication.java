@@ -1,8 +1,12 @@
 package com.accenture;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
 
 /**
  * Default Spring Boot application for passing arguments to the application,
@@ -15,6 +19,21 @@ import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 @EnableDiscoveryClient
 public class CatalogueApplication {
 
+	/**
+	 * Allows the communication with the cart microservice instances
+	 * @param connectTimeout milliseconds to wait for a connection to a cart instance
+	 * @param readTimeout milliseconds to wait for the answer of a cart instance
+	 * @return RestTemplate to notify the product changes to cart application
+	 */
+	@Bean
+	public RestTemplate getRestTemplate(@Value("${catalogue.cart-invalidation.connect-timeout:1000}") int connectTimeout,
+										@Value("${catalogue.cart-invalidation.read-timeout:2000}") int readTimeout) {
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(connectTimeout);
+		requestFactory.setReadTimeout(readTimeout);
+		return new RestTemplate(requestFactory);
+	}
+
 	/**
 	 * Run the application using Spring Boot’s SpringApplication.run().
 	 * Let Spring Boot decide the exit code and use its value for System.exit().
@@ -1,14 +1,39 @@
 package com.accenture;
 
+import com.accenture.dto.ImportReport;
+import com.accenture.dto.ProductBatch;
+import com.accenture.dto.ProductChanges;
+import com.accenture.dto.ProductFacets;
+import com.accenture.dto.ProductPage;
+import com.accenture.dto.StockLevel;
+import com.accenture.dto.StockReservation;
 import com.accenture.entity.Product;
+import com.accenture.export.ProductExporter;
+import com.accenture.http.ConditionalGetInterceptor;
+import com.accenture.image.ImageSender;
+import com.accenture.image.ProductImages;
+import com.accenture.importer.ProductImporter;
+import com.accenture.index.NameIndex;
+import com.accenture.snapshot.CatalogueSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Handles the different web requests to routes starting with /catalogue.
@@ -18,14 +43,17 @@ import java.util.List;
 public class CatalogueController {
 
     private final CatalogueService catalogueService;
+    private final ImageSender imageSender;
 
     /**
-     * Default constructor to allow injecting the service class as dependency.
+     * Default constructor to allow injecting the service class and the image sender as dependencies.
      * @param catalogueService dependency class.
+     * @param imageSender the writer of the product images to the responses.
      */
     @Autowired
-    public CatalogueController(CatalogueService catalogueService) {
+    public CatalogueController(CatalogueService catalogueService, ImageSender imageSender) {
         this.catalogueService = catalogueService;
+        this.imageSender = imageSender;
     }
 
     /**
@@ -41,14 +69,47 @@ public class CatalogueController {
         return new ResponseEntity<>(allCategories, HttpStatus.OK);
     }
 
+    /**
+     * Maps the resource's route (/catalogue/categories/counts) to the getCategoryCounts() method.
+     * Gets all categories with their number of products by calling the appropiate function in service class.
+     * @return ResponseEntity with the number of products by category.
+     */
+    @GetMapping("/categories/counts")
+    public ResponseEntity<Map<String, Integer>> getCategoryCounts() {
+        Map<String, Integer> categoryCounts = catalogueService.retrieveCategoryCounts();
+        if (categoryCounts.isEmpty())
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        return new ResponseEntity<>(categoryCounts, HttpStatus.OK);
+    }
+
     /**
      * Maps the resource's route (/catalogue/category/name={categoryName}) to the getProductsByCategory() method.
      * Gets the products with same category by calling the appropiate function in service class.
+     * When any of the paging parameters is provided, only one page of the products is returned; otherwise the
+     * listing is served from the catalogue snapshot when it is up to date.
      * @param categoryName the category of the products to be listed.
+     * @param after the cursor returned with the previous page.
+     * @param size the number of products of the page.
+     * @param sort the sort order of the products: id, name or price.
+     * @param acceptEncoding the encodings accepted by the client.
+     * @param response the response, to tag a gzipped listing.
      * @return ResponseEntity with products belonging to the requested category.
      */
     @GetMapping("/categories/category={categoryName}")
-    public ResponseEntity<List<Product>> getProductsByrCategory(@PathVariable String categoryName) {
+    public ResponseEntity<?> getProductsByrCategory(@PathVariable String categoryName,
+                                                    @RequestParam(required = false) String after,
+                                                    @RequestParam(required = false) Integer size,
+                                                    @RequestParam(required = false) String sort,
+                                                    @RequestHeader(value = "Accept-Encoding", required = false)
+                                                            String acceptEncoding,
+                                                    HttpServletResponse response) {
+        if (isPaged(after, size, sort))
+            return getProductsPage(categoryName, null, after, size, sort);
+
+        CatalogueSnapshot.Listing listing = catalogueService.retrieveProductsByCategorySnapshot(categoryName);
+        if (listing != null)
+            return getSnapshotListing(listing, acceptEncoding, response);
+
         List<Product> productsOfCategory = catalogueService.retrieveProductsByCategory(categoryName);
         if (productsOfCategory.isEmpty())
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -58,11 +119,21 @@ public class CatalogueController {
     /**
      * Maps the resource's route (/catalogue/products/color={productColor}) to the getProductsByColor() method.
      * Gets the products with same color by calling the appropiate function in service class.
+     * When any of the paging parameters is provided, only one page of the products is returned.
      * @param productColor the color of the products to be listed.
+     * @param after the cursor returned with the previous page.
+     * @param size the number of products of the page.
+     * @param sort the sort order of the products: id, name or price.
      * @return ResponseEntity with products which have the requested color.
      */
     @GetMapping("/products/color={productColor}")
-    public ResponseEntity<List<Product>> getProductsByColor(@PathVariable String productColor) {
+    public ResponseEntity<?> getProductsByColor(@PathVariable String productColor,
+                                                @RequestParam(required = false) String after,
+                                                @RequestParam(required = false) Integer size,
+                                                @RequestParam(required = false) String sort) {
+        if (isPaged(after, size, sort))
+            return getProductsPage(null, productColor, after, size, sort);
+
         List<Product> productsOfColor = catalogueService.retrieveProductsByColor(productColor);
         if (productsOfColor.isEmpty())
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -72,10 +143,28 @@ public class CatalogueController {
     /**
      * Maps the resource's route (/catalogue/products) to the getAllProducts() method.
      * Gets all products by calling the appropiate function in service class.
+     * When any of the paging parameters is provided, only one page of the products is returned; otherwise the
+     * listing is served from the catalogue snapshot when it is up to date.
+     * @param after the cursor returned with the previous page.
+     * @param size the number of products of the page.
+     * @param sort the sort order of the products: id, name or price.
+     * @param acceptEncoding the encodings accepted by the client.
+     * @param response the response, to tag a gzipped listing.
      * @return ResponseEntity with all products.
      */
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer size,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestHeader(value = "Accept-Encoding", required = false)
+                                                    String acceptEncoding,
+                                            HttpServletResponse response) {
+        if (isPaged(after, size, sort))
+            return getProductsPage(null, null, after, size, sort);
+
+        CatalogueSnapshot.Listing listing = catalogueService.retrieveAllProductsSnapshot();
+        if (listing != null)
+            return getSnapshotListing(listing, acceptEncoding, response);
 
         List<Product> allProducts = catalogueService.retrieveAllProducts();
 
@@ -85,6 +174,169 @@ public class CatalogueController {
         return new ResponseEntity<>(allProducts, HttpStatus.OK);
     }
 
+    /**
+     * Maps the resource's route (/catalogue/products/facets) to the getProductFacets() method.
+     * Gets the products matching all the provided filters by calling the appropiate function in service class.
+     * @param category the category of the products.
+     * @param color the color of the products.
+     * @param minPrice the lowest price of the products, inclusive.
+     * @param maxPrice the highest price of the products, inclusive.
+     * @param limit the maximum number of products to return.
+     * @return ResponseEntity with the first matching products and the number of products by category and color.
+     */
+    @GetMapping("/products/facets")
+    public ResponseEntity<?> getProductFacets(@RequestParam(required = false) String category,
+                                              @RequestParam(required = false) String color,
+                                              @RequestParam(required = false) BigDecimal minPrice,
+                                              @RequestParam(required = false) BigDecimal maxPrice,
+                                              @RequestParam(defaultValue = "50") int limit) {
+        try {
+            ProductFacets facets = catalogueService.retrieveProductFacets(category, color, minPrice, maxPrice, limit);
+            return new ResponseEntity<>(facets, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/price-range) to the getProductsByPriceRange() method.
+     * Gets the products within a price range, cheapest first, by calling the appropiate function in service class.
+     * @param min the lowest price of the products, inclusive.
+     * @param max the highest price of the products, inclusive.
+     * @param category the category of the products.
+     * @param limit the maximum number of products to return.
+     * @return ResponseEntity with the products within the range in price order.
+     */
+    @GetMapping("/products/price-range")
+    public ResponseEntity<?> getProductsByPriceRange(@RequestParam(required = false) BigDecimal min,
+                                                     @RequestParam(required = false) BigDecimal max,
+                                                     @RequestParam(required = false) String category,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        return getProductsByPrice(category, min, max, false, limit);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/top-by-price) to the getTopProductsByPrice() method.
+     * Gets the cheapest or the most expensive products by calling the appropiate function in service class.
+     * @param category the category of the products.
+     * @param order asc for the cheapest products; desc for the most expensive ones.
+     * @param limit the number of products to return.
+     * @return ResponseEntity with the first products in price order.
+     */
+    @GetMapping("/products/top-by-price")
+    public ResponseEntity<?> getTopProductsByPrice(@RequestParam(required = false) String category,
+                                                   @RequestParam(defaultValue = "asc") String order,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        if (!"asc".equalsIgnoreCase(order) && !"desc".equalsIgnoreCase(order))
+            return new ResponseEntity<>("Order must be asc or desc.", HttpStatus.BAD_REQUEST);
+        return getProductsByPrice(category, null, null, "desc".equalsIgnoreCase(order), limit);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/search) to the searchProducts() method.
+     * Searches the products by name by calling the appropiate function in service class.
+     * @param q the words to be found in the product names; the last one may be incomplete.
+     * @param limit the maximum number of products to return.
+     * @return ResponseEntity with the best matching products, best first.
+     */
+    @GetMapping("/products/search")
+    public ResponseEntity<?> searchProducts(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<Product> products = catalogueService.searchProducts(q, limit);
+            if (products.isEmpty())
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            return new ResponseEntity<>(products, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/suggest) to the suggestProductNames() method.
+     * Completes a partially typed query by calling the appropiate function in service class.
+     * @param q the words typed so far.
+     * @param limit the maximum number of suggestions.
+     * @return ResponseEntity with the names of the best matching products.
+     */
+    @GetMapping("/products/suggest")
+    public ResponseEntity<?> suggestProductNames(@RequestParam String q,
+                                                 @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return new ResponseEntity<>(catalogueService.suggestProductNames(q, limit), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/search/stats) to the getSearchStats() method.
+     * Gets the size of the product name index by calling the appropiate function in service class.
+     * @return ResponseEntity with the number of indexed products and their estimated memory use.
+     */
+    @GetMapping("/products/search/stats")
+    public ResponseEntity<NameIndex.Stats> getSearchStats() {
+        return new ResponseEntity<>(catalogueService.retrieveSearchStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/export) to the exportProducts() method.
+     * Streams all products as newline-delimited JSON by calling the appropiate function in service class.
+     * @param after the id of the last product already received, to resume an interrupted export.
+     * @return ResponseEntity with the products written one per line, in id order.
+     */
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(required = false) Integer after) {
+        StreamingResponseBody body = outputStream -> catalogueService.exportProducts(after, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(ProductExporter.MEDIA_TYPE)).body(body);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/changes) to the getProductChanges() method.
+     * Gets the product changes after a catalogue version by calling the appropiate function in service class.
+     * @param since the catalogue version held by the client.
+     * @param instance the catalogue instance the version was received from.
+     * @param limit the maximum number of changes to return.
+     * @return ResponseEntity with the changes in sequence order; gone when the catalogue must be reloaded.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getProductChanges(@RequestParam long since,
+                                               @RequestParam(required = false) String instance,
+                                               @RequestParam(defaultValue = "500") int limit) {
+        try {
+            ProductChanges changes = catalogueService.retrieveProductChanges(instance, since, limit);
+            if (changes == null)
+                return new ResponseEntity<>("Changes since version " + since + " are no longer available. "
+                        + "Reload the catalogue.", HttpStatus.GONE);
+            return new ResponseEntity<>(changes, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/changes/stream) to the streamProductChanges() method.
+     * Opens a Server-Sent Events stream of the product changes by calling the appropiate function in service class.
+     * @param lastEventId the id of the last event received, sent by the clients when they reconnect.
+     * @param since the catalogue version to start from, for clients which cannot set the Last-Event-ID header.
+     * @return ResponseEntity with the stream of changes; service unavailable when too many streams are open.
+     */
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamProductChanges(@RequestHeader(value = "Last-Event-ID", required = false)
+                                                                   String lastEventId,
+                                                           @RequestParam(required = false) String since) {
+        try {
+            String position = lastEventId != null ? lastEventId : since;
+            return new ResponseEntity<>(catalogueService.subscribeToProductChanges(position), HttpStatus.OK);
+        }
+        catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
     /**
      * Maps the resource's route (/catalogue/products) to the removeAllProducts() method.
      * Deletes all products by calling the appropiate function in service class.
@@ -109,10 +361,27 @@ public class CatalogueController {
     public ResponseEntity<?> getProductById(@PathVariable Integer productId) {
         Product product = catalogueService.retrieveProductById(productId);
         if (product == null)
-            return new ResponseEntity<>("Product with ID: " + productId + " does not exist.", HttpStatus.OK);
+            return new ResponseEntity<>("Product with ID: " + productId + " does not exist.", HttpStatus.NOT_FOUND);
         return new ResponseEntity<>(product, HttpStatus.OK);
     }
 
+    /**
+     * Maps the resource's route (/catalogue/products/ids={productIds}) to the getProductsByIds() method.
+     * Gets several products at once by calling the appropiate function in service class.
+     * @param productIds the comma separated ids of the requested products.
+     * @return ResponseEntity with the existing products and the ids which do not exist; bad request when an id is
+     * empty or there are too many ids.
+     */
+    @GetMapping("/products/ids={productIds}")
+    public ResponseEntity<?> getProductsByIds(@PathVariable List<Integer> productIds) {
+        try {
+            return new ResponseEntity<>(catalogueService.retrieveProductsByIds(productIds), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * Maps the resource's route (/catalogue/products) to the addProduct() method.
      * Inserts new product by calling the appropiate function in service class.
@@ -129,6 +398,29 @@ public class CatalogueController {
         return ResponseEntity.created(location).build();
     }
 
+    /**
+     * Maps the resource's route (/catalogue/products/import) to the importProducts() method.
+     * Inserts products in bulk by calling the appropiate function in service class.
+     * @param contentType the format of the body: text/csv with a header line, or application/x-ndjson.
+     * @param body the products to be imported, one per line, read as it arrives.
+     * @return ResponseEntity with the number of products imported and rejected and the progress of every chunk;
+     * bad request when the body cannot be read as the declared format.
+     */
+    @PostMapping("/products/import")
+    public ResponseEntity<?> importProducts(
+            @RequestHeader(value = "Content-Type", required = false) String contentType, InputStream body) {
+        ProductImporter.Format format = ProductImporter.Format.fromContentType(contentType);
+        if (format == null)
+            return new ResponseEntity<>("Use text/csv or application/x-ndjson.", HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+
+        ImportReport report = catalogueService.importProducts(body, format);
+        if (report.isInvalidInput())
+            return new ResponseEntity<>(report, HttpStatus.BAD_REQUEST);
+        if (report.getFailure() != null)
+            return new ResponseEntity<>(report, HttpStatus.INTERNAL_SERVER_ERROR);
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
     /**
      * Maps the resource's route (/catalogue/products/id={productId}) to the editProduct() method.
      * Updates one product by calling the appropiate function in service class.
@@ -138,12 +430,186 @@ public class CatalogueController {
      */
     @PutMapping("/products/id={productId}")
     public ResponseEntity<?> editProduct(@PathVariable("productId") Integer productId, @RequestBody Product productUpdate) {
+        try {
+            if (catalogueService.updateProduct(productId, productUpdate) == null)
+                return new ResponseEntity<>("Product requested does not exist", HttpStatus.NOT_FOUND);
+        }
+        catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>("Product has been changed by someone else. Reload it and try again.",
+                    HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>("Product has been updated successfully.", HttpStatus.OK);
+    }
 
+    /**
+     * Maps the resource's route (/catalogue/products/id={productId}) to the patchProduct() method.
+     * Changes only the provided fields of one product by calling the appropiate function in service class.
+     * @param productId the id of the product to be changed.
+     * @param patch the fields to be changed, with the version of the product they were based on; missing fields
+     *              are left unchanged.
+     * @return ResponseEntity with the changed product; conflict when it was changed by someone else.
+     */
+    @PatchMapping("/products/id={productId}")
+    public ResponseEntity<?> patchProduct(@PathVariable("productId") Integer productId, @RequestBody Product patch) {
+        try {
+            Product product = catalogueService.patchProduct(productId, patch, patch.getVersion());
+            if (product == null)
+                return new ResponseEntity<>("Product requested does not exist", HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(product, HttpStatus.OK);
+        }
+        catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>("Product has been changed by someone else. Reload it and try again.",
+                    HttpStatus.CONFLICT);
+        }
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/id={productId}/image) to the getProductImage() method.
+     * Sends the image of one product, or one of its thumbnails, straight from disk.
+     * @param productId the id of the product.
+     * @param size the size of the thumbnail; the image as it was uploaded when not given.
+     * @param request the request, whose If-None-Match, Range and If-Range headers are honoured.
+     * @param response the response the image is written to.
+     * @return ResponseEntity with feedback message when there is no such image; null when the image was sent.
+     * @throws IOException when the image cannot be read or sent.
+     */
+    @GetMapping("/products/id={productId}/image")
+    public ResponseEntity<?> getProductImage(@PathVariable Integer productId,
+                                             @RequestParam(required = false) Integer size,
+                                             HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (size != null && !catalogueService.retrieveImageSizes().contains(size))
+            return new ResponseEntity<>("Size must be one of " + catalogueService.retrieveImageSizes() + ".",
+                    HttpStatus.BAD_REQUEST);
+        ProductImages.ImageFile image = catalogueService.retrieveProductImage(productId, size);
+        if (image == null)
+            return new ResponseEntity<>("Product requested has no image", HttpStatus.NOT_FOUND);
+
+        imageSender.send(request, response, image);
+        return null;
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/id={productId}/image) to the editProductImage() method.
+     * Stores the image of one product and its thumbnails by calling the appropiate function in service class.
+     * @param productId the id of the product.
+     * @param contentType the type of the body: image/jpeg, image/png or image/gif.
+     * @param body the image, read as it arrives.
+     * @return ResponseEntity with the entity tag of the stored image.
+     * @throws IOException when the image cannot be read or stored.
+     */
+    @PutMapping("/products/id={productId}/image")
+    public ResponseEntity<?> editProductImage(@PathVariable Integer productId,
+                                              @RequestHeader(value = "Content-Type", required = false)
+                                                      String contentType,
+                                              InputStream body) throws IOException {
+        if (contentType == null || !contentType.startsWith("image/"))
+            return new ResponseEntity<>("Use image/jpeg, image/png or image/gif.", HttpStatus.UNSUPPORTED_MEDIA_TYPE);
         if (!catalogueService.checkProductExist(productId))
             return new ResponseEntity<>("Product requested does not exist", HttpStatus.NOT_FOUND);
 
-        catalogueService.updateProduct(productId, productUpdate);
-        return new ResponseEntity<>("Product has been updated successfully.", HttpStatus.OK);
+        try {
+            ProductImages.ImageFile image = catalogueService.storeProductImage(productId, body);
+            return ResponseEntity.ok().eTag(image.getETag()).body("Product image has been stored successfully.");
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/products/id={productId}/image) to the removeProductImage() method.
+     * Deletes the image of one product and its thumbnails by calling the appropiate function in service class.
+     * @param productId the id of the product.
+     * @return ResponseEntity with feedback message.
+     */
+    @DeleteMapping("/products/id={productId}/image")
+    public ResponseEntity<String> removeProductImage(@PathVariable Integer productId) {
+        if (!catalogueService.deleteProductImage(productId))
+            return new ResponseEntity<>("Product requested has no image", HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>("Product image has been removed.", HttpStatus.OK);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/stock/id={productId}) to the getStock() method.
+     * Gets the available units of one product by calling the appropiate function in service class.
+     * @param productId the id of the product.
+     * @return ResponseEntity with the units in stock less the reserved ones.
+     */
+    @GetMapping("/stock/id={productId}")
+    public ResponseEntity<?> getStock(@PathVariable Integer productId) {
+        Long available = catalogueService.retrieveAvailableStock(productId);
+        if (available == null)
+            return new ResponseEntity<>("Product requested does not exist", HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(new StockLevel(productId, available), HttpStatus.OK);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/stock/id={productId}) to the addStock() method.
+     * Adds or removes units of one product by calling the appropiate function in service class.
+     * @param productId the id of the product.
+     * @param quantity the units to be added; negative to remove units.
+     * @return ResponseEntity with the available units after the change.
+     */
+    @PostMapping("/stock/id={productId}")
+    public ResponseEntity<?> addStock(@PathVariable Integer productId, @RequestParam long quantity) {
+        if (!catalogueService.checkProductExist(productId))
+            return new ResponseEntity<>("Product requested does not exist", HttpStatus.NOT_FOUND);
+        if (!catalogueService.addStock(productId, quantity))
+            return new ResponseEntity<>("There are not as many available units to remove.", HttpStatus.CONFLICT);
+        return new ResponseEntity<>(new StockLevel(productId, catalogueService.retrieveAvailableStock(productId)),
+                HttpStatus.OK);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/stock/id={productId}/reservations) to the reserveStock() method.
+     * Reserves units of one product by calling the appropiate function in service class.
+     * @param productId the id of the product.
+     * @param quantity the units to be reserved.
+     * @return ResponseEntity with the reservation; conflict when there are not enough available units.
+     */
+    @PostMapping("/stock/id={productId}/reservations")
+    public ResponseEntity<?> reserveStock(@PathVariable Integer productId,
+                                          @RequestParam(defaultValue = "1") long quantity) {
+        if (!catalogueService.checkProductExist(productId))
+            return new ResponseEntity<>("Product requested does not exist", HttpStatus.NOT_FOUND);
+        try {
+            StockReservation reservation = catalogueService.reserveStock(productId, quantity);
+            if (reservation == null)
+                return new ResponseEntity<>("There are not enough available units.", HttpStatus.CONFLICT);
+            return new ResponseEntity<>(reservation, HttpStatus.CREATED);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/stock/reservations/{reservationId}/commit) to the
+     * commitStockReservation() method.
+     * Takes the reserved units out of the stock by calling the appropiate function in service class.
+     * @param reservationId the id of the reservation.
+     * @return ResponseEntity with feedback message.
+     */
+    @PostMapping("/stock/reservations/{reservationId}/commit")
+    public ResponseEntity<String> commitStockReservation(@PathVariable String reservationId) {
+        if (!catalogueService.commitStockReservation(reservationId))
+            return new ResponseEntity<>("Reservation does not exist or has expired.", HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>("Reservation has been committed.", HttpStatus.OK);
+    }
+
+    /**
+     * Maps the resource's route (/catalogue/stock/reservations/{reservationId}/release) to the
+     * releaseStockReservation() method.
+     * Makes the reserved units available again by calling the appropiate function in service class.
+     * @param reservationId the id of the reservation.
+     * @return ResponseEntity with feedback message.
+     */
+    @PostMapping("/stock/reservations/{reservationId}/release")
+    public ResponseEntity<String> releaseStockReservation(@PathVariable String reservationId) {
+        if (!catalogueService.releaseStockReservation(reservationId))
+            return new ResponseEntity<>("Reservation does not exist or has expired.", HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>("Reservation has been released.", HttpStatus.OK);
     }
 
     /**
@@ -157,4 +623,61 @@ public class CatalogueController {
         catalogueService.deleteProduct(productId);
         return new ResponseEntity<>("The product with ID: " + productId +  " has been removed.", HttpStatus.OK);
     }
+
+    private static boolean isPaged(String after, Integer size, String sort) {
+        return after != null || size != null || sort != null;
+    }
+
+    /**
+     * Writes a snapshot listing as it is, gzipped when the client accepts it. The gzipped body gets the entity tag
+     * of its own representation.
+     * @param listing the serialized products
+     * @param acceptEncoding the encodings accepted by the client
+     * @param response the response, already tagged with the catalogue version
+     * @return ResponseEntity with the JSON bytes; no content when the listing is empty
+     */
+    private static ResponseEntity<?> getSnapshotListing(CatalogueSnapshot.Listing listing, String acceptEncoding,
+                                                        HttpServletResponse response) {
+
+        if (listing.isEmpty())
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (listing.getGzipped() != null && acceptEncoding != null && acceptEncoding.contains("gzip")
+                && !acceptEncoding.contains("gzip;q=0")) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            String eTag = response.getHeader(HttpHeaders.ETAG);
+            if (eTag != null)
+                response.setHeader(HttpHeaders.ETAG, ConditionalGetInterceptor.gzipped(eTag));
+            return new ResponseEntity<>(listing.getGzipped(), headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(listing.getJson(), headers, HttpStatus.OK);
+    }
+
+    private ResponseEntity<?> getProductsByPrice(String category, BigDecimal minPrice, BigDecimal maxPrice,
+                                                 boolean descending, int limit) {
+        try {
+            List<Product> products = catalogueService.retrieveProductsByPrice(category, minPrice, maxPrice,
+                    descending, limit);
+            if (products.isEmpty())
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            return new ResponseEntity<>(products, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private ResponseEntity<?> getProductsPage(String categoryName, String productColor, String after,
+                                              Integer size, String sort) {
+        try {
+            ProductPage page = catalogueService.retrieveProductsPage(categoryName, productColor, after, size, sort);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 
 @Component
 public class CatalogueInitializer implements CommandLineRunner {
@@ -27,15 +28,16 @@ public class CatalogueInitializer implements CommandLineRunner {
 
         //---------------------------- Repository initial content ----------------------------------------
 
-        productRepository.save(new Product("Nike Trainers", "trainers",
-                new BigDecimal(1.0), "red"));
-        productRepository.save(new Product("Adidas Trainers", "trainers",
-                new BigDecimal(2.0), "blue"));
-        productRepository.save(new Product("NB Trainers", "trainers",
-                new BigDecimal(3.0), "green"));
-        productRepository.save(new Product("Reebook Trainers", "trainers",
-                new BigDecimal(4.0), "yellow"));
-        productRepository.save(new Product("Puma shirt", "shirts",
-                new BigDecimal(5.0), "orange"));
+        productRepository.save(Arrays.asList(
+                new Product("Nike Trainers", "trainers",
+                        new BigDecimal(1.0), "red"),
+                new Product("Adidas Trainers", "trainers",
+                        new BigDecimal(2.0), "blue"),
+                new Product("NB Trainers", "trainers",
+                        new BigDecimal(3.0), "green"),
+                new Product("Reebook Trainers", "trainers",
+                        new BigDecimal(4.0), "yellow"),
+                new Product("Puma shirt", "shirts",
+                        new BigDecimal(5.0), "orange")));
     }
 }
\ No newline at end of file
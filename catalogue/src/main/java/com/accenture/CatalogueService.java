@@ -1,12 +1,46 @@
 package com.accenture;
 
+import com.accenture.dto.ImportReport;
+import com.accenture.dto.ProductBatch;
+import com.accenture.dto.ProductChanges;
+import com.accenture.dto.ProductFacets;
+import com.accenture.dto.ProductPage;
+import com.accenture.dto.StockReservation;
 import com.accenture.entity.Product;
+import com.accenture.event.CatalogueVersion;
+import com.accenture.event.ChangeFeed;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.export.ProductExporter;
+import com.accenture.image.ProductImages;
+import com.accenture.importer.ProductImporter;
+import com.accenture.index.CategoryIndex;
+import com.accenture.index.FacetIndex;
+import com.accenture.index.NameIndex;
+import com.accenture.index.PriceIndex;
 import com.accenture.repository.ProductRepository;
+import com.accenture.repository.ProductSort;
+import com.accenture.snapshot.CatalogueSnapshot;
+import com.accenture.stock.ProductStocks;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Contains the different methods to process the requested actions
@@ -15,14 +49,64 @@ import java.util.List;
 public class CatalogueService {
 
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryIndex categoryIndex;
+    private final FacetIndex facetIndex;
+    private final NameIndex nameIndex;
+    private final PriceIndex priceIndex;
+    private final ProductExporter productExporter;
+    private final ProductImporter productImporter;
+    private final CatalogueSnapshot catalogueSnapshot;
+    private final ChangeFeed changeFeed;
+    private final CatalogueVersion catalogueVersion;
+    private final ProductStocks productStocks;
+    private final ProductImages productImages;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     /**
-     * Default constructor to allow injecting the repository class as dependency.
+     * Default constructor to allow injecting the repository, event publisher and index classes as dependencies.
      * @param productRepository the repository for the products.
+     * @param eventPublisher the publisher used to notify the product changes.
+     * @param categoryIndex the in-memory index of the product categories.
+     * @param facetIndex the in-memory bitmap index of the product facets.
+     * @param nameIndex the in-memory inverted index of the product names.
+     * @param priceIndex the in-memory price order of the most requested categories.
+     * @param productExporter the writer of the catalogue exports.
+     * @param productImporter the loader of the bulk imports.
+     * @param catalogueSnapshot the pre-serialized copy of the product listings.
+     * @param changeFeed the ordered feed of the product changes.
+     * @param catalogueVersion the version of the catalogue, which orders the writes with their events.
+     * @param productStocks the stock of the products and its reservations.
+     * @param productImages the images of the products and their thumbnails.
+     * @param defaultPageSize the page size of the listings when the request does not provide one.
+     * @param maxPageSize the largest page size a request may ask for.
      */
     @Autowired
-    public CatalogueService(ProductRepository productRepository) {
+    public CatalogueService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher,
+                            CategoryIndex categoryIndex, FacetIndex facetIndex, NameIndex nameIndex,
+                            PriceIndex priceIndex,
+                            ProductExporter productExporter, ProductImporter productImporter,
+                            CatalogueSnapshot catalogueSnapshot, ChangeFeed changeFeed,
+                            CatalogueVersion catalogueVersion,
+                            ProductStocks productStocks, ProductImages productImages,
+                            @Value("${catalogue.page.default-size:50}") int defaultPageSize,
+                            @Value("${catalogue.page.max-size:500}") int maxPageSize) {
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.categoryIndex = categoryIndex;
+        this.facetIndex = facetIndex;
+        this.nameIndex = nameIndex;
+        this.priceIndex = priceIndex;
+        this.productExporter = productExporter;
+        this.productImporter = productImporter;
+        this.catalogueSnapshot = catalogueSnapshot;
+        this.changeFeed = changeFeed;
+        this.catalogueVersion = catalogueVersion;
+        this.productStocks = productStocks;
+        this.productImages = productImages;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
@@ -30,14 +114,15 @@ public class CatalogueService {
      * @return a list of the different product categories
      */
     public List<String> retrieveAllCategoriesNames() {
+        return new ArrayList<>(categoryIndex.getCategoryCounts().keySet());
+    }
 
-        List<String> categoriesNames = new ArrayList<>();
-
-        for (Product product : productRepository.findAll()) {
-            if (!categoriesNames.contains(product.getProductCategory()) && product.getProductCategory() != null)
-                categoriesNames.add(product.getProductCategory());
-        }
-        return categoriesNames;
+    /**
+     * Retrieves all product categories with the number of products of each one
+     * @return the number of products by category name
+     */
+    public Map<String, Integer> retrieveCategoryCounts() {
+        return categoryIndex.getCategoryCounts();
     }
 
     /**
@@ -49,6 +134,15 @@ public class CatalogueService {
         return productRepository.findAllByProductCategory(categoryName);
     }
 
+    /**
+     * Retrieves the already serialized products of one category from the catalogue snapshot
+     * @param categoryName the category to be listed
+     * @return the JSON listing of the category; null when the snapshot is not up to date
+     */
+    public CatalogueSnapshot.Listing retrieveProductsByCategorySnapshot(String categoryName) {
+        return catalogueSnapshot.getProductsByCategory(categoryName);
+    }
+
     /**
      * Retrieves the products which have the same color
      * @param productColor the color to be listed
@@ -66,12 +160,201 @@ public class CatalogueService {
         return productRepository.findAll();
     }
 
+    /**
+     * Retrieves all the already serialized products from the catalogue snapshot
+     * @return the JSON listing of all products; null when the snapshot is not up to date
+     */
+    public CatalogueSnapshot.Listing retrieveAllProductsSnapshot() {
+        return catalogueSnapshot.getAllProducts();
+    }
+
+    /**
+     * Retrieves the products matching several facets at once, with the number of products of every category
+     * and color. The filtering runs on the in-memory facet index; only the returned products are read from the
+     * repository.
+     * @param categoryName the category of the products; any category when null
+     * @param productColor the color of the products; any color when null
+     * @param minPrice the lowest price, inclusive; no lower bound when null
+     * @param maxPrice the highest price, inclusive; no upper bound when null
+     * @param limit the maximum number of products to return; zero to get only the counts
+     * @return the first matching products in id order together with the facet counts
+     * @throws IllegalArgumentException when the limit or the price range are not valid
+     */
+    public ProductFacets retrieveProductFacets(String categoryName, String productColor, BigDecimal minPrice,
+                                               BigDecimal maxPrice, int limit) {
+
+        if (limit < 0 || limit > maxPageSize)
+            throw new IllegalArgumentException("Limit must be between 0 and " + maxPageSize + ".");
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0)
+            throw new IllegalArgumentException("Minimum price cannot be greater than maximum price.");
+
+        FacetIndex.Result result = facetIndex.search(categoryName, productColor, minPrice, maxPrice, limit);
+
+        List<Product> products = result.getProductIds().isEmpty()
+                ? new ArrayList<>() : productRepository.findAllByProductIdIn(result.getProductIds());
+        products.sort(Comparator.comparing(Product::getProductId));
+
+        return new ProductFacets(products, result.getTotal(), result.getCategoryCounts(), result.getColorCounts());
+    }
+
+    /**
+     * Searches the products by name. The last word of the query may be incomplete.
+     * @param query the words to be found in the product names
+     * @param limit the maximum number of products to return
+     * @return the best matching products, best first
+     * @throws IllegalArgumentException when the limit is not valid
+     */
+    public List<Product> searchProducts(String query, int limit) {
+
+        checkLimit(limit);
+        return retrieveProductsInOrder(nameIndex.search(query, limit));
+    }
+
+    /**
+     * Retrieves the products within a price range in price order. The hottest categories are answered from the
+     * in-memory price index; the rest from the price indexes of the repository.
+     * @param categoryName the category of the products; any category when null
+     * @param minPrice the lowest price, inclusive; no lower bound when null
+     * @param maxPrice the highest price, inclusive; no upper bound when null
+     * @param descending true to start from the most expensive products; false to start from the cheapest ones
+     * @param limit the maximum number of products to return
+     * @return the first products of the range in price order, ties ordered by id
+     * @throws IllegalArgumentException when the limit or the price range are not valid
+     */
+    public List<Product> retrieveProductsByPrice(String categoryName, BigDecimal minPrice, BigDecimal maxPrice,
+                                                 boolean descending, int limit) {
+
+        checkLimit(limit);
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0)
+            throw new IllegalArgumentException("Minimum price cannot be greater than maximum price.");
+
+        if (categoryName != null) {
+            List<Integer> productIds = priceIndex.find(categoryName, minPrice, maxPrice, descending, limit);
+            if (productIds != null)
+                return retrieveProductsInOrder(productIds);
+        }
+        return productRepository.findByPriceRange(categoryName, minPrice, maxPrice, descending, limit);
+    }
+
+    /**
+     * Completes a partially typed query with product names
+     * @param query the words typed so far
+     * @param limit the maximum number of suggestions
+     * @return the names of the best matching products, best first
+     * @throws IllegalArgumentException when the limit is not valid
+     */
+    public List<String> suggestProductNames(String query, int limit) {
+        checkLimit(limit);
+        return nameIndex.suggest(query, limit);
+    }
+
+    /**
+     * Retrieves the size of the product name index
+     * @return the number of indexed products and words, and the estimated memory they take
+     */
+    public NameIndex.Stats retrieveSearchStats() {
+        return nameIndex.getStats();
+    }
+
+    /**
+     * Exports the products as newline-delimited JSON without loading the whole catalogue in memory
+     * @param afterId the id of the last product already exported; null to export all products
+     * @param outputStream the stream where the products are written
+     * @return the number of products exported
+     */
+    public long exportProducts(Integer afterId, OutputStream outputStream) {
+        return productExporter.export(afterId, outputStream);
+    }
+
+    /**
+     * Imports products in bulk
+     * @param inputStream the products to be imported, one per line
+     * @param format the format of the lines
+     * @return the number of products imported and rejected, with the progress of every chunk
+     */
+    public ImportReport importProducts(InputStream inputStream, ProductImporter.Format format) {
+        return productImporter.importProducts(inputStream, format);
+    }
+
+    /**
+     * Retrieves one page of products, optionally filtered by category or color. The page starts right after the
+     * product written in the cursor, so reading any page costs a single index range scan.
+     * @param categoryName the category to be listed; any category when null
+     * @param productColor the color to be listed; any color when null
+     * @param after the cursor returned with the previous page; null for the first page
+     * @param size the number of products of the page; the configured default when null
+     * @param sort the sort order: id, name or price; id when null
+     * @return the page of products with the cursor of the next page
+     * @throws IllegalArgumentException when the sort order, the size or the cursor are not valid
+     */
+    public ProductPage retrieveProductsPage(String categoryName, String productColor, String after,
+                                            Integer size, String sort) {
+
+        ProductSort productSort = ProductSort.fromName(sort);
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize < 1 || pageSize > maxPageSize)
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize + ".");
+
+        Integer afterId = null;
+        Object afterValue = null;
+        if (after != null) {
+            String[] cursor = decodeCursor(after);
+            try {
+                afterId = Integer.valueOf(cursor[0]);
+                afterValue = cursor.length > 1 ? productSort.parseValue(cursor[1]) : null;
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+        }
+
+        // One extra product tells whether there is a next page without counting the rest of the listing
+        List<Product> products = productRepository.findPage(categoryName, productColor, productSort,
+                afterValue, afterId, pageSize + 1);
+
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            products = new ArrayList<>(products.subList(0, pageSize));
+            nextCursor = encodeCursor(products.get(pageSize - 1), productSort);
+        }
+        return new ProductPage(products, productSort.name().toLowerCase(), pageSize, nextCursor);
+    }
+
+    /**
+     * Retrieves the product changes after a catalogue version, oldest first
+     * @param instance the catalogue instance the version was received from; the current one when null
+     * @param since the version held by the client
+     * @param limit the maximum number of changes to return
+     * @return the changes with the version they bring the client to; null when the client must reload the
+     * catalogue because the changes are no longer available
+     * @throws IllegalArgumentException when the limit or the version are not valid
+     */
+    public ProductChanges retrieveProductChanges(String instance, long since, int limit) {
+        checkLimit(limit);
+        if (since < 0)
+            throw new IllegalArgumentException("Version cannot be negative.");
+        return changeFeed.getChanges(instance, since, limit);
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of the product changes
+     * @param lastEventId the id of the last event received, to resume the stream; null to start from now
+     * @return the stream of changes
+     * @throws IllegalStateException when too many streams are open
+     */
+    public SseEmitter subscribeToProductChanges(String lastEventId) {
+        return changeFeed.subscribe(lastEventId);
+    }
 
     /**
      * Deletes all products from the repository
      */
     public void deleteAllProducts() {
-        productRepository.deleteAll();
+        catalogueVersion.publishAlone(() -> {
+            productRepository.deleteAll();
+            eventPublisher.publishEvent(new ProductChangeEvent(this, ProductChangeEvent.Type.CLEARED, null, null));
+            return null;
+        });
     }
 
     /**
@@ -83,23 +366,67 @@ public class CatalogueService {
         return productRepository.findOne(productId);
     }
 
+    /**
+     * Retrieves several products with a single query
+     * @param productIds the ids of the products to be returned
+     * @return the existing products together with the ids which do not exist
+     * @throws IllegalArgumentException when there are no ids, an empty id or more ids than the largest page size
+     */
+    public ProductBatch retrieveProductsByIds(List<Integer> productIds) {
+
+        if (productIds.isEmpty() || productIds.contains(null))
+            throw new IllegalArgumentException("Product ids cannot be empty.");
+        if (productIds.size() > maxPageSize)
+            throw new IllegalArgumentException("At most " + maxPageSize + " product ids can be requested at once.");
+
+        Set<Integer> missingIds = new LinkedHashSet<>(productIds);
+        List<Product> products = productRepository.findAllByProductIdIn(missingIds);
+
+        for (Product product : products)
+            missingIds.remove(product.getProductId());
+
+        return new ProductBatch(products, new ArrayList<>(missingIds));
+    }
+
     /**
      * Stores a new product in the repository
      * @param newProduct the new product to be stored
      * @return the product stored
      */
     public Product saveProduct(Product newProduct) {
-        return productRepository.save(newProduct);
+        return catalogueVersion.publishInOrder(newProduct.getProductId(), () -> {
+            Product product = productRepository.save(newProduct);
+            eventPublisher.publishEvent(new ProductChangeEvent(this, ProductChangeEvent.Type.CREATED,
+                    product.getProductId(), product));
+            return product;
+        });
     }
 
     /**
      * Updates a product
      * @param productId the id of the product to be updated
-     * @param productUpdate the content to be changed in the product
+     * @param productUpdate the content to be changed in the product, with the version the client changed; a null
+     *                      version updates the current version
+     * @return the updated product; null when the product does not exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException when the product was changed since the
+     * version of the update, or while it was being updated
      */
-    public void updateProduct(Integer productId, Product productUpdate) {
+    public Product updateProduct(Integer productId, Product productUpdate) {
+        return catalogueVersion.publishInOrder(productId, () -> update(productId, productUpdate));
+    }
+
+    private Product update(Integer productId, Product productUpdate) {
 
         Product product = productRepository.findOne(productId);
+        if (product == null)
+            return null;
+        if (productUpdate.getVersion() != null && !productUpdate.getVersion().equals(product.getVersion()))
+            throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+
+        Product previous = new Product(product.getProductName(), product.getProductCategory(),
+                product.getProductPrice(), product.getProductColor());
+        previous.setProductId(productId);
+        previous.setVersion(product.getVersion());
 
         product.setProductId(product.getProductId());
         product.setProductName(productUpdate.getProductName());
@@ -107,7 +434,54 @@ public class CatalogueService {
         product.setProductPrice(productUpdate.getProductPrice());
         product.setProductColor(productUpdate.getProductColor());
 
-        productRepository.save(product);
+        product = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(this, ProductChangeEvent.Type.UPDATED, productId,
+                product, previous));
+        return product;
+    }
+
+    /**
+     * Changes only the provided fields of a product. The product is read from the second-level cache when it is
+     * enabled, and a single UPDATE of the changed columns is issued, conditioned on the version read. Loading the
+     * product is needed anyway to publish its previous state to the indexes and the change feed, and unlike a bulk
+     * JPQL update, as done for the accounts, the merge keeps the other products in the second-level cache.
+     * @param productId the id of the product to be changed
+     * @param patch the fields to be changed; null fields are left unchanged
+     * @param expectedVersion the version the client changed; null to change the current version
+     * @return the changed product; null when the product does not exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException when the product was changed since the
+     * expected version, or while it was being changed
+     */
+    public Product patchProduct(Integer productId, Product patch, Long expectedVersion) {
+        return catalogueVersion.publishInOrder(productId, () -> patch(productId, patch, expectedVersion));
+    }
+
+    private Product patch(Integer productId, Product patch, Long expectedVersion) {
+
+        Product product = productRepository.findOne(productId);
+        if (product == null)
+            return null;
+        if (expectedVersion != null && !expectedVersion.equals(product.getVersion()))
+            throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+
+        Product previous = new Product(product.getProductName(), product.getProductCategory(),
+                product.getProductPrice(), product.getProductColor());
+        previous.setProductId(productId);
+        previous.setVersion(product.getVersion());
+
+        if (patch.getProductName() != null)
+            product.setProductName(patch.getProductName());
+        if (patch.getProductCategory() != null)
+            product.setProductCategory(patch.getProductCategory());
+        if (patch.getProductPrice() != null)
+            product.setProductPrice(patch.getProductPrice());
+        if (patch.getProductColor() != null)
+            product.setProductColor(patch.getProductColor());
+
+        product = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(this, ProductChangeEvent.Type.UPDATED, productId,
+                product, previous));
+        return product;
     }
 
     /**
@@ -115,7 +489,103 @@ public class CatalogueService {
      * @param productId the id of the product to be deleted
      */
     public void deleteProduct(Integer productId) {
-        productRepository.delete(productId);
+        catalogueVersion.publishInOrder(productId, () -> {
+            Product product = productRepository.findOne(productId);
+            if (product != null) {
+                productRepository.delete(product);
+                eventPublisher.publishEvent(new ProductChangeEvent(this, ProductChangeEvent.Type.DELETED, productId,
+                        product));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves the thumbnail sizes of the product images
+     * @return the largest width and height of every thumbnail, in ascending order
+     */
+    public List<Integer> retrieveImageSizes() {
+        return productImages.getThumbnailSizes();
+    }
+
+    /**
+     * Retrieves the image of a product, or one of its thumbnails
+     * @param productId the id of the product
+     * @param size the size of the thumbnail; null for the image as it was uploaded
+     * @return the image file; null when the product has no image
+     */
+    public ProductImages.ImageFile retrieveProductImage(Integer productId, Integer size) {
+        return productImages.find(productId, size);
+    }
+
+    /**
+     * Stores the image of a product and its thumbnails, replacing the previous ones
+     * @param productId the id of the product
+     * @param content the JPEG, PNG or GIF image
+     * @return the stored image file
+     * @throws IllegalArgumentException when the content is not a supported image, or is too large
+     * @throws IOException when the image cannot be read or stored
+     */
+    public ProductImages.ImageFile storeProductImage(Integer productId, InputStream content) throws IOException {
+        return productImages.store(productId, content);
+    }
+
+    /**
+     * Deletes the image of a product and its thumbnails
+     * @param productId the id of the product
+     * @return true if the product had an image; false if not
+     */
+    public boolean deleteProductImage(Integer productId) {
+        return productImages.delete(productId);
+    }
+
+    /**
+     * Retrieves the available units of a product
+     * @param productId the id of the product
+     * @return the units in stock less the reserved ones; null when the product does not exist
+     */
+    public Long retrieveAvailableStock(Integer productId) {
+        return productStocks.getAvailable(productId);
+    }
+
+    /**
+     * Adds units to the stock of a product, or removes them when the quantity is negative
+     * @param productId the id of the product
+     * @param quantity the units to be added; negative to remove units
+     * @return true if the stock was changed; false if there are not as many available units as the ones to be
+     * removed
+     */
+    public boolean addStock(Integer productId, long quantity) {
+        return productStocks.addStock(productId, quantity);
+    }
+
+    /**
+     * Reserves units of a product until the reservation is committed, released or expires
+     * @param productId the id of the product
+     * @param quantity the units to be reserved
+     * @return the reservation; null when there are not enough available units
+     * @throws IllegalArgumentException when the quantity is not positive
+     */
+    public StockReservation reserveStock(Integer productId, long quantity) {
+        return productStocks.reserve(productId, quantity);
+    }
+
+    /**
+     * Commits a stock reservation, taking its units out of the stock
+     * @param reservationId the id of the reservation
+     * @return true if the reservation was committed; false if it does not exist or has expired
+     */
+    public boolean commitStockReservation(String reservationId) {
+        return productStocks.commit(reservationId);
+    }
+
+    /**
+     * Releases a stock reservation, making its units available again
+     * @param reservationId the id of the reservation
+     * @return true if the reservation was released; false if it does not exist
+     */
+    public boolean releaseStockReservation(String reservationId) {
+        return productStocks.release(reservationId);
     }
 
     /**
@@ -130,5 +600,52 @@ public class CatalogueService {
         return true;
     }
 
+    /**
+     * Reads several products with a single query, keeping the order of the provided ids
+     * @param productIds the ids of the products in the requested order
+     * @return the existing products in the order of their ids
+     */
+    private List<Product> retrieveProductsInOrder(List<Integer> productIds) {
+
+        if (productIds.isEmpty())
+            return new ArrayList<>();
 
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByProductIdIn(productIds))
+            products.put(product.getProductId(), product);
+
+        List<Product> ordered = new ArrayList<>();
+        for (Integer productId : productIds)
+            if (products.containsKey(productId))
+                ordered.add(products.get(productId));
+        return ordered;
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > maxPageSize)
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize + ".");
+    }
+
+    /**
+     * Writes the position of a product in a listing as an opaque URL-safe cursor
+     * @param product the last product of a page
+     * @param sort the sort order of the listing
+     * @return the cursor holding the product id and its sorted value, if it has one
+     */
+    private static String encodeCursor(Product product, ProductSort sort) {
+        Object value = sort.valueOf(product);
+        String position = value == null ? String.valueOf(product.getProductId()) : product.getProductId() + "\n" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            byte[] decoded = Base64.getUrlDecoder().decode(cursor);
+            return new String(decoded, StandardCharsets.UTF_8).split("\n", 2);
+        }
+        catch (IllegalArgumentException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
 }
\ No newline at end of file
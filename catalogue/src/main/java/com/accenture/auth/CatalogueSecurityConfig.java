@@ -37,8 +37,12 @@ public class CatalogueSecurityConfig extends WebSecurityConfigurerAdapter {
         http.csrf().disable();
         http.authorizeRequests()
                 .antMatchers(HttpMethod.GET, unsecuredUrls).permitAll()
-                .antMatchers(HttpMethod.POST, "/catalogue/products").hasAuthority("ROLE_ADMIN")
+                .antMatchers(HttpMethod.POST, "/catalogue/products", "/catalogue/products/**").hasAuthority("ROLE_ADMIN")
+                .antMatchers(HttpMethod.POST, "/catalogue/stock/id=*/reservations", "/catalogue/stock/reservations/**")
+                        .hasAnyAuthority("ROLE_ADMIN", "ROLE_USER")
+                .antMatchers(HttpMethod.POST, "/catalogue/stock/**").hasAuthority("ROLE_ADMIN")
                 .antMatchers(HttpMethod.PUT, "/**/**").hasAuthority("ROLE_ADMIN")
+                .antMatchers(HttpMethod.PATCH, "/**/**").hasAuthority("ROLE_ADMIN")
                 .antMatchers(HttpMethod.DELETE, "/**/**").hasAuthority("ROLE_ADMIN")
                 .and()
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
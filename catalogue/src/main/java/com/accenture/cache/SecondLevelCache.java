@@ -0,0 +1,85 @@
+package com.accenture.cache;
+
+import com.accenture.entity.Product;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes the hit ratio of the Hibernate second-level cache of the products and keeps it consistent with the
+ * writes Hibernate does not see.
+ *
+ * Products saved or deleted through the repository update the cached entities and invalidate the cached
+ * queries by themselves. The bulk import inserts the rows with plain JDBC instead, so it evicts the cached
+ * finder results once after every committed chunk.
+ */
+@Component
+public class SecondLevelCache implements PublicMetrics {
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Default constructor to allow injecting the entity manager factory
+     * @param entityManagerFactory the factory whose cache is observed.
+     */
+    @Autowired
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Evicts the cached results of the product finder queries, after products are written behind Hibernate
+     */
+    public void evictQueries() {
+        if (isEnabled())
+            sessionFactory.getCache().evictQueryRegion(Product.QUERY_CACHE_REGION);
+    }
+
+    /**
+     * Verifies whether the second-level cache is enabled by configuration
+     * @return true if products are cached; false if not
+     */
+    public boolean isEnabled() {
+        return sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+
+    /**
+     * Exposes the cache counters through the actuator metrics endpoint
+     * @return the size, hits, misses and hit ratio of the product and query caches
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+
+        List<Metric<?>> metrics = new ArrayList<>();
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!isEnabled() || !statistics.isStatisticsEnabled())
+            return metrics;
+
+        SecondLevelCacheStatistics products = statistics.getSecondLevelCacheStatistics(Product.CACHE_REGION);
+        if (products != null)
+            addMetrics(metrics, "catalogue.cache.product", products.getElementCountInMemory(),
+                    products.getHitCount(), products.getMissCount());
+
+        SecondLevelCacheStatistics queries = statistics.getSecondLevelCacheStatistics(Product.QUERY_CACHE_REGION);
+        if (queries != null)
+            addMetrics(metrics, "catalogue.cache.product-queries", queries.getElementCountInMemory(),
+                    queries.getHitCount(), queries.getMissCount());
+        return metrics;
+    }
+
+    private static void addMetrics(List<Metric<?>> metrics, String prefix, long size, long hits, long misses) {
+        metrics.add(new Metric<>(prefix + ".size", size));
+        metrics.add(new Metric<>(prefix + ".hits", hits));
+        metrics.add(new Metric<>(prefix + ".misses", misses));
+        metrics.add(new Metric<>(prefix + ".hit-ratio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses)));
+    }
+}
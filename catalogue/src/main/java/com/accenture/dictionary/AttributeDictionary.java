@@ -0,0 +1,176 @@
+package com.accenture.dictionary;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-way mapping between the values of a product attribute and their integer ids, backed by a dictionary table
+ */
+public class AttributeDictionary {
+
+    /**
+     * Id written in the queries for a value which is not in the dictionary, so they match no product
+     */
+    public static final int UNKNOWN_ID = 0;
+
+    private final String table;
+    private final String idColumn;
+    private final String selectAll;
+    private final String selectId;
+    private final String selectName;
+    private final String insert;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private volatile boolean loaded;
+
+    /**
+     * Attribute dictionary class constructor
+     * @param table the dictionary table
+     * @param idColumn the column of the ids, generated by the database
+     * @param nameColumn the column of the unique values
+     * @param jdbcTemplate the template used to read and insert the values
+     * @param transactionManager the manager of the transactions inserting new values
+     */
+    public AttributeDictionary(String table, String idColumn, String nameColumn, JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.table = table;
+        this.idColumn = idColumn;
+        this.selectAll = "select " + idColumn + ", " + nameColumn + " from " + table;
+        this.selectId = "select " + idColumn + " from " + table + " where " + nameColumn + " = ?";
+        this.selectName = "select " + nameColumn + " from " + table + " where " + idColumn + " = ?";
+        this.insert = "insert into " + table + " (" + nameColumn + ") values (?)";
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Finds the id of a value, without adding it. A value missing from memory is looked up in the table, as it may
+     * have been added by another instance.
+     * @param name the value
+     * @return the id; null when the value is null or not in the dictionary
+     */
+    public Integer findId(String name) {
+        if (name == null)
+            return null;
+        load();
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+
+        List<Integer> found = jdbcTemplate.queryForList(selectId, Integer.class, name);
+        if (found.isEmpty())
+            return null;
+        add(found.get(0), name);
+        return found.get(0);
+    }
+
+    /**
+     * Finds the value of an id
+     * @param id the id
+     * @return the value, shared by every product having it; null when the id is null
+     * @throws IllegalStateException when there is no such id in the dictionary
+     */
+    public String findName(Integer id) {
+        if (id == null)
+            return null;
+        load();
+        String[] current = names;
+        String name = id < current.length ? current[id] : null;
+        if (name != null)
+            return name;
+
+        List<String> found = jdbcTemplate.queryForList(selectName, String.class, id);
+        if (found.isEmpty())
+            throw new IllegalStateException("There is no id " + id + " in " + table);
+        return add(id, found.get(0));
+    }
+
+    /**
+     * Adds a value to the dictionary unless it is there already
+     * @param name the value
+     * @return the value kept by the dictionary, to be used instead of the given one; null when it is null
+     */
+    public String intern(String name) {
+        if (name == null)
+            return null;
+        Integer id = findId(name);
+        return findName(id != null ? id : insert(name));
+    }
+
+    /**
+     * Counts the values of the dictionary
+     * @return the number of values known by this instance
+     */
+    public int size() {
+        load();
+        return ids.size();
+    }
+
+    // the whole table is loaded once, so every product with the same value shares the same string
+    private void load() {
+        if (loaded)
+            return;
+        synchronized (this) {
+            if (loaded)
+                return;
+            jdbcTemplate.query(selectAll, row -> {
+                add(row.getInt(1), row.getString(2));
+            });
+            loaded = true;
+        }
+    }
+
+    // runs in its own transaction, so an id handed out is never rolled back with the product which introduced it
+    private synchronized int insert(String name) {
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+        try {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            transactionTemplate.execute(status -> jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(insert, new String[] {idColumn});
+                statement.setString(1, name);
+                return statement;
+            }, keyHolder));
+            id = keyHolder.getKey().intValue();
+        }
+        catch (DuplicateKeyException e) {
+            // inserted meanwhile by another instance
+            id = jdbcTemplate.queryForObject(selectId, Integer.class, name);
+        }
+        add(id, name);
+        return id;
+    }
+
+    /**
+     * Records a value. The array slot is written before the array is published again, so a reader seeing the
+     * new array also sees the value.
+     * @return the value kept by the dictionary
+     */
+    private synchronized String add(int id, String name) {
+        String[] current = names;
+        if (id < current.length && current[id] != null)
+            return current[id];
+        if (id >= current.length)
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+        current[id] = name;
+        names = current;
+        ids.put(name, id);
+        return name;
+    }
+}
@@ -0,0 +1,15 @@
+package com.accenture.dictionary;
+
+import javax.persistence.Converter;
+
+/**
+ * Stores the product categories as the ids of the category dictionary
+ */
+@Converter
+public class CategoryConverter extends DictionaryConverter {
+
+    @Override
+    protected AttributeDictionary getDictionary(ProductDictionaries dictionaries) {
+        return dictionaries.getCategories();
+    }
+}
@@ -0,0 +1,15 @@
+package com.accenture.dictionary;
+
+import javax.persistence.Converter;
+
+/**
+ * Stores the product colors as the ids of the color dictionary
+ */
+@Converter
+public class ColorConverter extends DictionaryConverter {
+
+    @Override
+    protected AttributeDictionary getDictionary(ProductDictionaries dictionaries) {
+        return dictionaries.getColors();
+    }
+}
@@ -0,0 +1,53 @@
+package com.accenture.dictionary;
+
+import javax.persistence.AttributeConverter;
+import java.util.function.Supplier;
+
+/**
+ * Stores the values of a product attribute as the ids of its dictionary
+ */
+public abstract class DictionaryConverter implements AttributeConverter<String, Integer> {
+
+    // created by Hibernate rather than by Spring, so the DictionaryIntegrator injects the dictionaries
+    private volatile Supplier<ProductDictionaries> productDictionaries;
+
+    /**
+     * Injects the dictionaries of the running application
+     * @param productDictionaries the supplier of the dictionaries, which are created after the persistence unit
+     */
+    void setProductDictionaries(Supplier<ProductDictionaries> productDictionaries) {
+        this.productDictionaries = productDictionaries;
+    }
+
+    /**
+     * Selects the dictionary of the converted attribute
+     * @param dictionaries the dictionaries of the running application
+     * @return the dictionary of the attribute
+     */
+    protected abstract AttributeDictionary getDictionary(ProductDictionaries dictionaries);
+
+    /**
+     * Converts a value to its id. Only a query can ask for a value which is not in the dictionary table, as the
+     * dictionary listener adds the ones being saved, and gets an id matching no product.
+     */
+    @Override
+    public Integer convertToDatabaseColumn(String name) {
+        if (name == null)
+            return null;
+        Integer id = getDictionary().findId(name);
+        return id != null ? id : AttributeDictionary.UNKNOWN_ID;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return getDictionary().findName(id);
+    }
+
+    private AttributeDictionary getDictionary() {
+        Supplier<ProductDictionaries> dictionaries = productDictionaries;
+        if (dictionaries == null)
+            throw new IllegalStateException("The product dictionaries have not been injected into "
+                    + getClass().getSimpleName() + ".");
+        return getDictionary(dictionaries.get());
+    }
+}
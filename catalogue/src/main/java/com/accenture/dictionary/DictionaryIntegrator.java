@@ -0,0 +1,94 @@
+package com.accenture.dictionary;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.type.Type;
+import org.hibernate.type.descriptor.converter.AttributeConverterTypeAdapter;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Injects the product dictionaries into the persistence unit of the application.
+ *
+ * The attribute converters of the product entity are created by Hibernate rather than by Spring, so this class
+ * registers itself in the settings of the entity manager factory before it is built, then hands the dictionaries
+ * to the converters of the mapping and registers the listener adding the saved values. Every application context
+ * converts with its own dictionaries. The dictionaries need the transaction manager, which needs the entity
+ * manager factory, so they are only looked up on the first conversion.
+ */
+@Component
+public class DictionaryIntegrator implements Integrator, BeanPostProcessor {
+
+    private final ObjectFactory<ProductDictionaries> dictionaryFactory;
+    private volatile ProductDictionaries productDictionaries;
+
+    /**
+     * Default constructor to allow injecting the dictionaries as dependency.
+     * @param dictionaryFactory the factory of the dictionaries, which are created after the persistence unit.
+     */
+    @Autowired
+    public DictionaryIntegrator(ObjectFactory<ProductDictionaries> dictionaryFactory) {
+        this.dictionaryFactory = dictionaryFactory;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+            IntegratorProvider integrators = () -> Collections.singletonList(this);
+            ((LocalContainerEntityManagerFactoryBean) bean).getJpaPropertyMap()
+                    .put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, integrators);
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+
+        for (PersistentClass entity : metadata.getEntityBindings()) {
+            Iterator<?> properties = entity.getPropertyIterator();
+            while (properties.hasNext()) {
+                Type type = ((Property) properties.next()).getType();
+                Object converter = type instanceof AttributeConverterTypeAdapter
+                        ? ((AttributeConverterTypeAdapter<?>) type).getAttributeConverter() : null;
+                if (converter instanceof DictionaryConverter)
+                    ((DictionaryConverter) converter).setProductDictionaries(this::getProductDictionaries);
+            }
+        }
+
+        DictionaryListener listener = new DictionaryListener(this::getProductDictionaries);
+        EventListenerRegistry listeners = serviceRegistry.getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.PRE_INSERT, listener);
+        listeners.appendListeners(EventType.PRE_UPDATE, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    private ProductDictionaries getProductDictionaries() {
+        ProductDictionaries dictionaries = productDictionaries;
+        if (dictionaries == null)
+            productDictionaries = dictionaries = dictionaryFactory.getObject();
+        return dictionaries;
+    }
+}
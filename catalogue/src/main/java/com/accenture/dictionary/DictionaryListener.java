@@ -0,0 +1,58 @@
+package com.accenture.dictionary;
+
+import com.accenture.entity.Product;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.tuple.entity.EntityMetamodel;
+
+import java.util.function.Supplier;
+
+/**
+ * Adds the category and the color of the products being saved to their dictionaries, before Hibernate converts
+ * them to ids. Values are only added by writes: a query for a value which is not in a dictionary matches no
+ * product and leaves the dictionary unchanged.
+ */
+public class DictionaryListener implements PreInsertEventListener, PreUpdateEventListener {
+
+    private final Supplier<ProductDictionaries> productDictionaries;
+
+    /**
+     * DictionaryListener class constructor
+     * @param productDictionaries the supplier of the dictionaries, which are created after the persistence unit
+     */
+    DictionaryListener(Supplier<ProductDictionaries> productDictionaries) {
+        this.productDictionaries = productDictionaries;
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        addAttributes(event.getEntity(), event.getPersister().getEntityMetamodel(), event.getState());
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        addAttributes(event.getEntity(), event.getPersister().getEntityMetamodel(), event.getState());
+        return false;
+    }
+
+    /**
+     * Replaces the values of the written state, and of the product, with the ones kept by the dictionaries
+     */
+    private void addAttributes(Object entity, EntityMetamodel metamodel, Object[] state) {
+        if (!(entity instanceof Product))
+            return;
+        Product product = (Product) entity;
+        ProductDictionaries dictionaries = productDictionaries.get();
+
+        int category = metamodel.getPropertyIndex("productCategory");
+        product.setProductCategory(dictionaries.getCategories().intern((String) state[category]));
+        state[category] = product.getProductCategory();
+
+        int color = metamodel.getPropertyIndex("productColor");
+        product.setProductColor(dictionaries.getColors().intern((String) state[color]));
+        state[color] = product.getProductColor();
+    }
+}
@@ -0,0 +1,37 @@
+package com.accenture.dictionary;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Dictionaries of the product categories and colors. The attribute converters of the product entity get them
+ * from the {@link DictionaryIntegrator}.
+ */
+@Component
+public class ProductDictionaries {
+
+    private final AttributeDictionary categories;
+    private final AttributeDictionary colors;
+
+    /**
+     * Default constructor to allow injecting the JDBC and transaction support of the dictionaries.
+     * @param jdbcTemplate the template used to read and insert the dictionary values.
+     * @param transactionManager the manager of the transactions inserting new values.
+     */
+    @Autowired
+    public ProductDictionaries(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.categories = new AttributeDictionary("category", "category_id", "category_name", jdbcTemplate,
+                transactionManager);
+        this.colors = new AttributeDictionary("color", "color_id", "color_name", jdbcTemplate, transactionManager);
+    }
+
+    public AttributeDictionary getCategories() {
+        return categories;
+    }
+
+    public AttributeDictionary getColors() {
+        return colors;
+    }
+}
@@ -0,0 +1,168 @@
+package com.accenture.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a bulk product import
+ */
+public class ImportReport {
+
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private List<String> errors = new ArrayList<>();
+    private List<Chunk> chunks = new ArrayList<>();
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    private String failure;
+    private boolean invalidInput;
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+    public void setRowsImported(long rowsImported) {
+        this.rowsImported = rowsImported;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+    public void setRowsRejected(long rowsRejected) {
+        this.rowsRejected = rowsRejected;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+    public void setChunks(List<Chunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Tells whether the import failed because of the input itself, such as a CSV header without
+     * the required columns, rather than because of the server
+     * @return true when the failure was caused by the input
+     */
+    public boolean isInvalidInput() {
+        return invalidInput;
+    }
+    public void setInvalidInput(boolean invalidInput) {
+        this.invalidInput = invalidInput;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{" +
+                "rowsRead=" + rowsRead +
+                ", rowsImported=" + rowsImported +
+                ", rowsRejected=" + rowsRejected +
+                ", chunks=" + chunks.size() +
+                ", elapsedMillis=" + elapsedMillis +
+                ", rowsPerSecond=" + rowsPerSecond +
+                ", failure='" + failure + '\'' +
+                '}';
+    }
+
+    /**
+     * Progress of one committed chunk of an import
+     */
+    public static class Chunk {
+
+        private int number;
+        private int rows;
+        private long lastLine;
+        private long millis;
+        private long rowsPerSecond;
+
+        /**
+         * Chunk class constructor
+         */
+        public Chunk() {}
+
+        /**
+         * Chunk class constructor
+         * @param number the position of the chunk in the import, starting at 1
+         * @param rows the number of products inserted
+         * @param lastLine the input line of the last product of the chunk; an import can resume after it
+         * @param millis the time taken to insert and commit the chunk
+         */
+        public Chunk(int number, int rows, long lastLine, long millis) {
+            this.number = number;
+            this.rows = rows;
+            this.lastLine = lastLine;
+            this.millis = millis;
+            this.rowsPerSecond = rows * 1000L / Math.max(1, millis);
+        }
+
+        public int getNumber() {
+            return number;
+        }
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+        public void setRows(int rows) {
+            this.rows = rows;
+        }
+
+        public long getLastLine() {
+            return lastLine;
+        }
+        public void setLastLine(long lastLine) {
+            this.lastLine = lastLine;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+        public void setMillis(long millis) {
+            this.millis = millis;
+        }
+
+        public long getRowsPerSecond() {
+            return rowsPerSecond;
+        }
+        public void setRowsPerSecond(long rowsPerSecond) {
+            this.rowsPerSecond = rowsPerSecond;
+        }
+    }
+}
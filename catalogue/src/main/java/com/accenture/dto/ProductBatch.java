@@ -0,0 +1,51 @@
+package com.accenture.dto;
+
+import com.accenture.entity.Product;
+
+import java.util.List;
+
+/**
+ * Result of a multiple product lookup
+ */
+public class ProductBatch {
+
+    private List<Product> products;
+    private List<Integer> missingIds;
+
+    /**
+     * Product batch class constructor
+     */
+    public ProductBatch() {}
+
+    /**
+     * Product batch class constructor
+     * @param products the products found
+     * @param missingIds the requested ids which do not belong to any product
+     */
+    public ProductBatch(List<Product> products, List<Integer> missingIds) {
+        this.products = products;
+        this.missingIds = missingIds;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public List<Integer> getMissingIds() {
+        return missingIds;
+    }
+    public void setMissingIds(List<Integer> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductBatch{" +
+                "products=" + products +
+                ", missingIds=" + missingIds +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+package com.accenture.dto;
+
+import com.accenture.entity.Product;
+
+/**
+ * One entry of the catalogue change feed
+ */
+public class ProductChange {
+
+    private long sequence;
+    private String type;
+    private Integer productId;
+    private Product product;
+    private long timestamp;
+
+    /**
+     * Product change class constructor
+     */
+    public ProductChange() {}
+
+    /**
+     * Product change class constructor
+     * @param sequence the position of the change in the feed, equal to the catalogue version it produced
+     * @param type the kind of change: created, updated, deleted or cleared
+     * @param productId the id of the changed product; null when the whole catalogue was cleared
+     * @param product the product after the change; null for deletions and clears
+     * @param timestamp the time of the change in milliseconds since the epoch
+     */
+    public ProductChange(long sequence, String type, Integer productId, Product product, long timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.timestamp = timestamp;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChange{" +
+                "sequence=" + sequence +
+                ", type='" + type + '\'' +
+                ", productId=" + productId +
+                ", product=" + product +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package com.accenture.dto;
+
+import java.util.List;
+
+/**
+ * Changes of the catalogue after a given version
+ */
+public class ProductChanges {
+
+    private String instance;
+    private List<ProductChange> changes;
+    private long version;
+    private boolean more;
+
+    /**
+     * Product changes class constructor
+     */
+    public ProductChanges() {}
+
+    /**
+     * Product changes class constructor
+     * @param instance the identifier of the catalogue instance whose versions are listed
+     * @param changes the changes in sequence order
+     * @param version the version the client is up to date with after applying the changes
+     * @param more true when there are further changes after this version
+     */
+    public ProductChanges(String instance, List<ProductChange> changes, long version, boolean more) {
+        this.instance = instance;
+        this.changes = changes;
+        this.version = version;
+        this.more = more;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+    public void setInstance(String instance) {
+        this.instance = instance;
+    }
+
+    public List<ProductChange> getChanges() {
+        return changes;
+    }
+    public void setChanges(List<ProductChange> changes) {
+        this.changes = changes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isMore() {
+        return more;
+    }
+    public void setMore(boolean more) {
+        this.more = more;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChanges{" +
+                "instance='" + instance + '\'' +
+                ", changes=" + changes +
+                ", version=" + version +
+                ", more=" + more +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package com.accenture.dto;
+
+import com.accenture.entity.Product;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a faceted product search
+ */
+public class ProductFacets {
+
+    private List<Product> products;
+    private int total;
+    private Map<String, Integer> categories;
+    private Map<String, Integer> colors;
+
+    /**
+     * Product facets class constructor
+     */
+    public ProductFacets() {}
+
+    /**
+     * Product facets class constructor
+     * @param products the first matching products
+     * @param total the number of matching products
+     * @param categories the number of matching products by category, leaving out the category filter
+     * @param colors the number of matching products by color, leaving out the color filter
+     */
+    public ProductFacets(List<Product> products, int total, Map<String, Integer> categories,
+                         Map<String, Integer> colors) {
+        this.products = products;
+        this.total = total;
+        this.categories = categories;
+        this.colors = colors;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public Map<String, Integer> getCategories() {
+        return categories;
+    }
+    public void setCategories(Map<String, Integer> categories) {
+        this.categories = categories;
+    }
+
+    public Map<String, Integer> getColors() {
+        return colors;
+    }
+    public void setColors(Map<String, Integer> colors) {
+        this.colors = colors;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductFacets{" +
+                "products=" + products +
+                ", total=" + total +
+                ", categories=" + categories +
+                ", colors=" + colors +
+                '}';
+    }
+}
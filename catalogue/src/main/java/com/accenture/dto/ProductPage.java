@@ -0,0 +1,73 @@
+package com.accenture.dto;
+
+import com.accenture.entity.Product;
+
+import java.util.List;
+
+/**
+ * One page of a product listing
+ */
+public class ProductPage {
+
+    private List<Product> products;
+    private String sort;
+    private int size;
+    private String nextCursor;
+
+    /**
+     * Product page class constructor
+     */
+    public ProductPage() {}
+
+    /**
+     * Product page class constructor
+     * @param products the products of the page
+     * @param sort the sort order of the listing
+     * @param size the requested page size
+     * @param nextCursor the cursor to request the next page; null when this is the last page
+     */
+    public ProductPage(List<Product> products, String sort, int size, String nextCursor) {
+        this.products = products;
+        this.sort = sort;
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public int getSize() {
+        return size;
+    }
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductPage{" +
+                "products=" + products +
+                ", sort='" + sort + '\'' +
+                ", size=" + size +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
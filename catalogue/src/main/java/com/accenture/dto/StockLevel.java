@@ -0,0 +1,39 @@
+package com.accenture.dto;
+
+/**
+ * Available units of a product, which are the units in stock less the reserved ones
+ */
+public class StockLevel {
+
+    private Integer productId;
+    private long available;
+
+    /**
+     * Stock level class constructor
+     */
+    public StockLevel() {}
+
+    /**
+     * Stock level class constructor
+     * @param productId the id of the product
+     * @param available the units which can still be reserved
+     */
+    public StockLevel(Integer productId, long available) {
+        this.productId = productId;
+        this.available = available;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+    public void setAvailable(long available) {
+        this.available = available;
+    }
+}
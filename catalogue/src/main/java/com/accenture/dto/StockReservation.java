@@ -0,0 +1,60 @@
+package com.accenture.dto;
+
+/**
+ * Units of a product held for a buyer until the reservation is committed, released or expires
+ */
+public class StockReservation {
+
+    private String reservationId;
+    private Integer productId;
+    private long quantity;
+    private long expiresAt;
+
+    /**
+     * Stock reservation class constructor
+     */
+    public StockReservation() {}
+
+    /**
+     * Stock reservation class constructor
+     * @param reservationId the id used to commit or release the reservation
+     * @param productId the id of the reserved product
+     * @param quantity the reserved units
+     * @param expiresAt the time the units are released if the reservation was not committed, in milliseconds since
+     *                  the epoch
+     */
+    public StockReservation(String reservationId, Integer productId, long quantity, long expiresAt) {
+        this.reservationId = reservationId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,53 @@
+package com.accenture.entity;
+
+import javax.persistence.*;
+
+/**
+ * Entity class for the dictionary of the product categories. Products store the id of their category, so every
+ * category name is kept once.
+ */
+@Entity
+public class Category {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer categoryId;
+
+    @Column(nullable = false, unique = true)
+    private String categoryName;
+
+    /**
+     * Category class constructor
+     */
+    public Category() {}
+
+    /**
+     * Category class constructor
+     * @param categoryName the name of the category
+     */
+    public Category(String categoryName) {
+        this.categoryName = categoryName;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+
+    @Override
+    public String toString() {
+        return "Category{" +
+                "categoryId=" + categoryId +
+                ", categoryName='" + categoryName + '\'' +
+                '}';
+    }
+}
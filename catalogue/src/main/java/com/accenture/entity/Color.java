@@ -0,0 +1,53 @@
+package com.accenture.entity;
+
+import javax.persistence.*;
+
+/**
+ * Entity class for the dictionary of the product colors. Products store the id of their color, so every
+ * color name is kept once.
+ */
+@Entity
+public class Color {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer colorId;
+
+    @Column(nullable = false, unique = true)
+    private String colorName;
+
+    /**
+     * Color class constructor
+     */
+    public Color() {}
+
+    /**
+     * Color class constructor
+     * @param colorName the name of the color
+     */
+    public Color(String colorName) {
+        this.colorName = colorName;
+    }
+
+    public Integer getColorId() {
+        return colorId;
+    }
+    public void setColorId(Integer colorId) {
+        this.colorId = colorId;
+    }
+
+    public String getColorName() {
+        return colorName;
+    }
+    public void setColorName(String colorName) {
+        this.colorName = colorName;
+    }
+
+    @Override
+    public String toString() {
+        return "Color{" +
+                "colorId=" + colorId +
+                ", colorName='" + colorName + '\'' +
+                '}';
+    }
+}
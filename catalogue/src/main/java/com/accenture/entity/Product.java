@@ -1,5 +1,11 @@
 package com.accenture.entity;
 
+import com.accenture.dictionary.CategoryConverter;
+import com.accenture.dictionary.ColorConverter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
 
@@ -7,17 +13,52 @@ import java.math.BigDecimal;
  * Entity class for products
  */
 @Entity
+@Cacheable
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
+@Table(indexes = {
+        @Index(name = "idx_product_name", columnList = "productName, productId"),
+        @Index(name = "idx_product_price", columnList = "productPrice, productId"),
+        @Index(name = "idx_product_category", columnList = "productCategory, productId"),
+        @Index(name = "idx_product_category_name", columnList = "productCategory, productName, productId"),
+        @Index(name = "idx_product_category_price", columnList = "productCategory, productPrice, productId"),
+        @Index(name = "idx_product_color", columnList = "productColor, productId"),
+        @Index(name = "idx_product_color_name", columnList = "productColor, productName, productId"),
+        @Index(name = "idx_product_color_price", columnList = "productColor, productPrice, productId")
+})
 public class Product {
 
+    /**
+     * Sequence of the product ids. Every value reserves a block of ids, so products can be inserted in batches
+     * without asking the database for every id.
+     */
+    public static final String ID_SEQUENCE = "product_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Second-level cache regions of the products and of the product finder queries
+     */
+    public static final String CACHE_REGION = "product";
+    public static final String QUERY_CACHE_REGION = "product-queries";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Integer productId;
 
     private String productName;
+
+    @Convert(converter = CategoryConverter.class)
     private String productCategory;
+
     private BigDecimal productPrice;
+
+    @Convert(converter = ColorConverter.class)
     private String productColor;
 
+    @Version
+    private Long version;
+
     /**
      * Product class constructor
      */
@@ -72,6 +113,13 @@ public class Product {
         this.productColor = productColor;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Product{" +
@@ -80,6 +128,7 @@ public class Product {
                 ", productCategory='" + productCategory + '\'' +
                 ", productPrice=" + productPrice +
                 ", productColor='" + productColor + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
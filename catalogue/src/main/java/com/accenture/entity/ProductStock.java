@@ -0,0 +1,54 @@
+package com.accenture.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Entity class for the stock of the products. It is kept apart from the product, so the frequent stock changes
+ * neither lock the product rows nor evict them from the second-level cache.
+ */
+@Entity
+public class ProductStock {
+
+    @Id
+    private Integer productId;
+
+    private long stockQuantity;
+
+    /**
+     * Product stock class constructor
+     */
+    public ProductStock() {}
+
+    /**
+     * Product stock class constructor
+     * @param productId the id of the product
+     * @param stockQuantity the units of the product in stock, including the reserved ones
+     */
+    public ProductStock(Integer productId, long stockQuantity) {
+        this.productId = productId;
+        this.stockQuantity = stockQuantity;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public long getStockQuantity() {
+        return stockQuantity;
+    }
+    public void setStockQuantity(long stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductStock{" +
+                "productId=" + productId +
+                ", stockQuantity=" + stockQuantity +
+                '}';
+    }
+}
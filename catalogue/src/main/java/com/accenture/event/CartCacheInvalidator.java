@@ -0,0 +1,135 @@
+package com.accenture.event;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evicts the changed products from the product cache of every cart microservice instance.
+ *
+ * The notifications are sent by a single background thread, so a slow or unreachable cart never delays the
+ * writes of the catalogue, and they carry a token of the catalogue itself, so they are authorized whichever
+ * thread made the change. The token expires after a short lifetime and is signed again once half of it has
+ * passed. Notifications which do not fit in the queue are dropped: the cart cache entries expire anyway.
+ */
+@Component
+public class CartCacheInvalidator {
+
+    private static final Logger log = LoggerFactory.getLogger(CartCacheInvalidator.class);
+
+    private final RestTemplate restTemplate;
+    private final DiscoveryClient discoveryClient;
+    private final long tokenLifetime;
+    private final ExecutorService sender;
+
+    // only used by the sender thread
+    private HttpEntity<Void> entity;
+    private long renewAt;
+
+    /**
+     * Default constructor to allow injecting the restTemplate and discoveryClient classes as dependencies.
+     * @param restTemplate the RestTemplate to communicate with cart application.
+     * @param discoveryClient the client used to request the instances of the cart microservice.
+     * @param queueCapacity the maximum number of notifications waiting to be sent.
+     * @param tokenLifetime the milliseconds the token sent to the carts is valid for.
+     */
+    @Autowired
+    public CartCacheInvalidator(RestTemplate restTemplate, DiscoveryClient discoveryClient,
+                                @Value("${catalogue.cart-invalidation.queue-capacity:10000}") int queueCapacity,
+                                @Value("${catalogue.cart-invalidation.token-lifetime:300000}") long tokenLifetime) {
+        if (tokenLifetime < 1)
+            throw new IllegalArgumentException("The token lifetime must be positive");
+        this.restTemplate = restTemplate;
+        this.discoveryClient = discoveryClient;
+        this.tokenLifetime = tokenLifetime;
+
+        this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "cart-cache-invalidator");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues the notification of updated, deleted or cleared products to the cart instances.
+     * New products are not notified since the carts cache unknown ids for a short time only.
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+
+        if (event.getType() == ProductChangeEvent.Type.CREATED)
+            return;
+
+        String path = event.getType() == ProductChangeEvent.Type.CLEARED
+                ? "/cart/products" : "/cart/products/id=" + event.getProductId();
+        try {
+            sender.execute(() -> notifyCarts(path));
+        }
+        catch (RejectedExecutionException e) {
+            log.warn("Too many pending cart cache invalidations, {} dropped", path);
+        }
+    }
+
+    /**
+     * Sends an eviction to every cart instance. Failures are logged and ignored.
+     */
+    private void notifyCarts(String path) {
+        HttpEntity<Void> entity = authorization();
+        for (ServiceInstance serviceInstance : discoveryClient.getInstances("cart-microservice")) {
+            try {
+                restTemplate.exchange(serviceInstance.getUri().toString() + path, HttpMethod.DELETE, entity, String.class);
+            }
+            catch (RestClientException e) {
+                log.warn("Could not invalidate {} on cart instance {}: {}", path, serviceInstance.getUri(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the headers carrying the token of the catalogue, signing a new one when half of its lifetime has
+     * passed. The carts grant the admin role to the admin subject, as for the tokens issued by the account service.
+     */
+    private HttpEntity<Void> authorization() {
+        long now = System.currentTimeMillis();
+        if (entity == null || now >= renewAt) {
+            String token = Jwts.builder()
+                    .setSubject("admin")
+                    .setIssuedAt(new Date(now))
+                    .setExpiration(new Date(now + tokenLifetime))
+                    .signWith(SignatureAlgorithm.HS256, "secret")
+                    .compact();
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", "Bearer " + token);
+            entity = new HttpEntity<>(headers);
+            renewAt = now + tokenLifetime / 2;
+        }
+        return entity;
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+    }
+}
@@ -0,0 +1,113 @@
+package com.accenture.event;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Monotonic version of the catalogue content, increased by every product change published by the catalogue service.
+ * The change feed increases it while recording the change, so the version is also the sequence number of the last
+ * change in the feed. Writers apply every change through {@link #publishInOrder(Integer, Supplier)} or
+ * {@link #publishAlone(Supplier)}, so the changes of each product get versions in the order they were committed,
+ * while the changes of different products are written in parallel. The version restarts with the application, so it
+ * is paired with the start time of this instance when used as an entity tag or as a feed position.
+ */
+@Component
+public class CatalogueVersion {
+
+    private final String instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong version = new AtomicLong();
+
+    // the changes of products share the catalogue lock, and take the stripe of their product
+    private static final int STRIPES = 64;
+    private final Object[] productLocks = new Object[STRIPES];
+    private final ReadWriteLock catalogueLock = new ReentrantReadWriteLock();
+
+    /**
+     * CatalogueVersion class constructor
+     */
+    public CatalogueVersion() {
+        for (int i = 0; i < STRIPES; i++)
+            productLocks[i] = new Object();
+    }
+
+    /**
+     * Gets the identifier of this instance, which changes when the application restarts
+     * @return the start time of this instance in base 36
+     */
+    public String getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the current version
+     * @return the number of changes applied since this instance started
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Gets a strong entity tag for the current version
+     * @return the quoted entity tag
+     */
+    public String getETag() {
+        return "\"" + instance + "-" + version.get() + "\"";
+    }
+
+    /**
+     * Increases the version after a product change
+     * @return the new version
+     */
+    public long increment() {
+        return version.incrementAndGet();
+    }
+
+    /**
+     * Writes a product change and publishes its events before any other change of the same product is written.
+     * The catalogue service is not transactional and the listeners of the events run synchronously, so without it
+     * two concurrent changes of a product could be committed in one order and recorded in the change feed in the
+     * other. Only the changes of products falling in the same stripe wait for each other.
+     * @param productId the id of the changed product; null for new products, whose ids no other writer knows yet
+     * @param change the write, which must commit before returning, followed by the publication of its events
+     * @param <T> the type of the result of the change
+     * @return the result of the change
+     */
+    public <T> T publishInOrder(Integer productId, Supplier<T> change) {
+        Lock shared = catalogueLock.readLock();
+        shared.lock();
+        try {
+            if (productId == null)
+                return change.get();
+            int hash = productId.hashCode();
+            synchronized (productLocks[(hash ^ (hash >>> 16)) & (STRIPES - 1)]) {
+                return change.get();
+            }
+        }
+        finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Writes a change of the whole catalogue, such as removing every product, once the product changes being
+     * written are published, and publishes its events before any other change is written
+     * @param change the write, which must commit before returning, followed by the publication of its events
+     * @param <T> the type of the result of the change
+     * @return the result of the change
+     */
+    public <T> T publishAlone(Supplier<T> change) {
+        Lock exclusive = catalogueLock.writeLock();
+        exclusive.lock();
+        try {
+            return change.get();
+        }
+        finally {
+            exclusive.unlock();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.accenture.event;
+
+import com.accenture.dto.ProductChange;
+import com.accenture.dto.ProductChanges;
+import com.accenture.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered feed of the product changes published by the catalogue service, for the clients keeping a copy of the
+ * catalogue.
+ *
+ * Every change gets the next catalogue version as its sequence number and is kept in a bounded ring of recent
+ * changes. The sequence number is taken when the change is published, after its commit, and the writers publish
+ * the changes of a product in the order of {@link CatalogueVersion#publishInOrder}, so the sequence numbers of a
+ * product follow the order in which its changes were committed. Clients either pull the changes after
+ * the version they hold, or subscribe to a Server-Sent Events stream whose event ids carry the instance and the
+ * sequence number, so a reconnecting client resumes right after the last change it received. A position which is no
+ * longer in the ring, or which belongs to another instance, cannot be resumed: the client must reload the catalogue.
+ * Stream events are written by a single dispatcher thread, so a slow subscriber never delays the writes of the
+ * catalogue.
+ */
+@Component
+public class ChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private static final int DISPATCH_BATCH = 500;
+
+    private final CatalogueVersion catalogueVersion;
+    private final ProductChange[] history;
+    private final long streamTimeout;
+    private final int maxSubscribers;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService dispatcher;
+
+    /**
+     * Default constructor to allow injecting the catalogue version and the feed settings.
+     * @param catalogueVersion the version increased by every change.
+     * @param historySize the number of recent changes which can be resumed; at least 1.
+     * @param streamTimeout milliseconds a stream stays open before the client has to reconnect.
+     * @param heartbeatInterval milliseconds between the comments sent to idle streams; zero to send none.
+     * @param maxSubscribers the maximum number of open streams.
+     */
+    @Autowired
+    public ChangeFeed(CatalogueVersion catalogueVersion,
+                      @Value("${catalogue.change-feed.history-size:10000}") int historySize,
+                      @Value("${catalogue.change-feed.stream-timeout:1800000}") long streamTimeout,
+                      @Value("${catalogue.change-feed.heartbeat-interval:15000}") long heartbeatInterval,
+                      @Value("${catalogue.change-feed.max-subscribers:100}") int maxSubscribers) {
+        if (historySize < 1)
+            throw new IllegalArgumentException("The change feed history size must be at least 1.");
+        this.catalogueVersion = catalogueVersion;
+        this.history = new ProductChange[historySize];
+        this.streamTimeout = streamTimeout;
+        this.maxSubscribers = maxSubscribers;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (heartbeatInterval > 0)
+            dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval, heartbeatInterval,
+                    TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a product change and wakes up the stream dispatcher
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        append(event);
+        if (!subscribers.isEmpty())
+            dispatcher.execute(this::dispatch);
+    }
+
+    /**
+     * Reads the changes after a version
+     * @param instance the instance the version belongs to; the current one when null
+     * @param since the version the client holds
+     * @param limit the maximum number of changes to return
+     * @return the changes in sequence order; null when they cannot be resumed from that version
+     */
+    public synchronized ProductChanges getChanges(String instance, long since, int limit) {
+
+        long version = catalogueVersion.getVersion();
+        if (instance != null && !instance.equals(catalogueVersion.getInstance()))
+            return null;
+        if (since > version || since < version - history.length)
+            return null;
+
+        int count = (int) Math.min(limit, version - since);
+        List<ProductChange> changes = new ArrayList<>(count);
+        for (long sequence = since + 1; sequence <= since + count; sequence++)
+            changes.add(history[(int) (sequence % history.length)]);
+        return new ProductChanges(catalogueVersion.getInstance(), changes, since + count, since + count < version);
+    }
+
+    /**
+     * Opens a stream of the changes
+     * @param lastEventId the id of the last event received by the client, as "instance-sequence", or a version of
+     *                    the current instance; null to receive only the changes from now on
+     * @return the stream; it starts with a reset event when the position cannot be resumed
+     * @throws IllegalStateException when the maximum number of streams is open
+     */
+    public SseEmitter subscribe(String lastEventId) {
+
+        if (subscribers.size() >= maxSubscribers)
+            throw new IllegalStateException("Too many change feed subscribers.");
+
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        Subscriber subscriber = new Subscriber(emitter, position(lastEventId));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        dispatcher.execute(this::dispatch);
+        return emitter;
+    }
+
+    private synchronized void append(ProductChangeEvent event) {
+        long sequence = catalogueVersion.increment();
+        Product product = event.getType() == ProductChangeEvent.Type.DELETED ? null : copy(event.getProduct());
+        history[(int) (sequence % history.length)] = new ProductChange(sequence, event.getType().name().toLowerCase(),
+                event.getProductId(), product, event.getTimestamp());
+    }
+
+    /**
+     * Finds the version a stream resumes from
+     * @return the version after which the changes are sent; -1 when the client must reload the catalogue
+     */
+    private long position(String lastEventId) {
+        if (lastEventId == null)
+            return catalogueVersion.getVersion();
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator == 0 || separator > 0
+                && !lastEventId.substring(0, separator).equals(catalogueVersion.getInstance()))
+            return -1;
+        try {
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Sends every subscriber the changes after its position. Runs on the dispatcher thread only.
+     */
+    private void dispatch() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                while (true) {
+                    ProductChanges changes = subscriber.position < 0
+                            ? null : getChanges(null, subscriber.position, DISPATCH_BATCH);
+                    if (changes == null) {
+                        long version = catalogueVersion.getVersion();
+                        subscriber.emitter.send(SseEmitter.event().id(eventId(version)).name("reset")
+                                .data(version));
+                        subscriber.position = version;
+                        continue;
+                    }
+                    for (ProductChange change : changes.getChanges())
+                        subscriber.emitter.send(SseEmitter.event().id(eventId(change.getSequence()))
+                                .name("change").data(change, MediaType.APPLICATION_JSON));
+                    subscriber.position = changes.getVersion();
+                    if (!changes.isMore())
+                        break;
+                }
+            }
+            catch (IOException | IllegalStateException e) {
+                drop(subscriber, e);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+            catch (IOException | IllegalStateException e) {
+                drop(subscriber, e);
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        log.debug("Change feed subscriber dropped: {}", cause.getMessage());
+        subscribers.remove(subscriber);
+        try {
+            subscriber.emitter.completeWithError(cause);
+        }
+        catch (IllegalStateException e) {
+            // already completed
+        }
+    }
+
+    private String eventId(long sequence) {
+        return catalogueVersion.getInstance() + "-" + sequence;
+    }
+
+    private static Product copy(Product product) {
+        if (product == null)
+            return null;
+        Product copy = new Product(product.getProductName(), product.getProductCategory(),
+                product.getProductPrice(), product.getProductColor());
+        copy.setProductId(product.getProductId());
+        copy.setVersion(product.getVersion());
+        return copy;
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers)
+            subscriber.emitter.complete();
+        subscribers.clear();
+    }
+
+    /**
+     * Open stream with the version of the last change sent to it
+     */
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private long position;
+
+        private Subscriber(SseEmitter emitter, long position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+    }
+}
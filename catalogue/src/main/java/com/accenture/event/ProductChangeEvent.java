@@ -0,0 +1,71 @@
+package com.accenture.event;
+
+import com.accenture.entity.Product;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published by the catalogue service every time the stored products change
+ */
+public class ProductChangeEvent extends ApplicationEvent {
+
+    /**
+     * Kind of change applied to the catalogue
+     */
+    public enum Type { CREATED, UPDATED, DELETED, CLEARED }
+
+    private final Type type;
+    private final Integer productId;
+    private final Product product;
+    private final Product previous;
+
+    /**
+     * Product change event class constructor
+     * @param source the object which published the event
+     * @param type the kind of change
+     * @param productId the id of the changed product; null when the whole catalogue was cleared
+     * @param product the product after the change; for deletions, the product as it was before being removed
+     */
+    public ProductChangeEvent(Object source, Type type, Integer productId, Product product) {
+        this(source, type, productId, product, null);
+    }
+
+    /**
+     * Product change event class constructor
+     * @param source the object which published the event
+     * @param type the kind of change
+     * @param productId the id of the changed product; null when the whole catalogue was cleared
+     * @param product the product after the change; for deletions, the product as it was before being removed
+     * @param previous the product before an update; null for the other kinds of change
+     */
+    public ProductChangeEvent(Object source, Type type, Integer productId, Product product, Product previous) {
+        super(source);
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.previous = previous;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public Product getPrevious() {
+        return previous;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChangeEvent{" +
+                "type=" + type +
+                ", productId=" + productId +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.accenture.export;
+
+import com.accenture.entity.Product;
+import com.accenture.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the catalogue as newline-delimited JSON, one product per line in id order.
+ *
+ * The products are read through a database cursor and every product is detached once written, so the memory
+ * used by an export does not depend on the size of the catalogue. An interrupted export can be resumed by
+ * requesting the products after the id of the last line received. The response is flushed once every
+ * configured number of products rather than after each of them.
+ */
+@Component
+public class ProductExporter {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter productWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushInterval;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Default constructor to allow injecting the repository, mapper and transaction manager as dependencies.
+     * @param productRepository the repository for the products.
+     * @param objectMapper the mapper used to write the products.
+     * @param transactionManager the transaction manager which keeps the cursor open during the export.
+     * @param flushInterval the number of products written between two flushes of the response.
+     */
+    @Autowired
+    public ProductExporter(ProductRepository productRepository, ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${catalogue.export.flush-interval:500}") int flushInterval) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.productWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Writes the products whose id is greater than the provided one
+     * @param afterId the id of the last product already exported; null to export the whole catalogue
+     * @param outputStream the stream where the products are written
+     * @return the number of products written
+     */
+    public long export(Integer afterId, OutputStream outputStream) {
+        int firstId = afterId == null ? Integer.MIN_VALUE : afterId;
+        return transactionTemplate.execute(status -> {
+            try (Stream<Product> products = productRepository.streamAllByProductIdGreaterThan(firstId)) {
+                return write(products.iterator(), outputStream);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private long write(Iterator<Product> products, OutputStream outputStream) throws IOException {
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        long written = 0;
+        while (products.hasNext()) {
+            Product product = products.next();
+            productWriter.writeValue(generator, product);
+            generator.writeRaw('\n');
+            entityManager.detach(product);
+
+            if (++written % flushInterval == 0)
+                generator.flush();
+        }
+        generator.flush();
+        return written;
+    }
+}
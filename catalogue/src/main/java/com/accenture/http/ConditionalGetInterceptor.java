@@ -0,0 +1,119 @@
+package com.accenture.http;
+
+import com.accenture.event.CatalogueVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds validators to the catalogue reads and answers the conditional ones before the controller runs.
+ *
+ * Every read gets the entity tag of the catalogue version, which changes with any product change, so a request
+ * whose If-None-Match holds the current tag is answered with 304 without touching the repository or serializing
+ * anything. The version is read before the controller, so a response is never tagged newer than its content.
+ * A gzipped body is a different representation, so it carries the version tag with a -gzip suffix, and every
+ * tagged response varies on Accept-Encoding.
+ * The Cache-Control max-age of every route is configured as a list of "ant pattern:seconds" entries, the first
+ * matching pattern winning.
+ */
+@Component
+public class ConditionalGetInterceptor extends HandlerInterceptorAdapter {
+
+    private final CatalogueVersion catalogueVersion;
+    private final Map<String, String> cacheControls = new LinkedHashMap<>();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * Default constructor to allow injecting the catalogue version as dependency.
+     * @param catalogueVersion the version used as entity tag.
+     * @param maxAges the max-age of every route, as comma separated "ant pattern:seconds" entries.
+     */
+    @Autowired
+    public ConditionalGetInterceptor(CatalogueVersion catalogueVersion,
+                                     @Value("${catalogue.http-cache.max-age:/catalogue/**:0}") String[] maxAges) {
+        this.catalogueVersion = catalogueVersion;
+        for (String maxAge : maxAges) {
+            int separator = maxAge.lastIndexOf(':');
+            if (separator < 1)
+                throw new IllegalArgumentException("Invalid max-age entry: " + maxAge + ". Use pattern:seconds.");
+            long seconds = Long.parseLong(maxAge.substring(separator + 1).trim());
+            cacheControls.put(maxAge.substring(0, separator).trim(),
+                    CacheControl.maxAge(seconds, TimeUnit.SECONDS).getHeaderValue());
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        // The headers of an asynchronous response were already written by its first dispatch
+        if (request.getDispatcherType() == DispatcherType.ASYNC)
+            return true;
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod()))
+            return true;
+
+        String eTag = catalogueVersion.getETag();
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String cacheControl = cacheControl(request.getRequestURI().substring(request.getContextPath().length()));
+        if (cacheControl != null)
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (matches(ifNoneMatch, eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        if (matches(ifNoneMatch, gzipped(eTag))) {
+            response.setHeader(HttpHeaders.ETAG, gzipped(eTag));
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the entity tag of the gzipped body of a response
+     * @param eTag the entity tag of the response, as set before the controller ran
+     * @return the entity tag with the -gzip suffix
+     */
+    public static String gzipped(String eTag) {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    private String cacheControl(String path) {
+        for (Map.Entry<String, String> entry : cacheControls.entrySet())
+            if (pathMatcher.match(entry.getKey(), path))
+                return entry.getValue();
+        return null;
+    }
+
+    /**
+     * Compares the entity tags of an If-None-Match header with the current one, ignoring the weak prefix as
+     * required for this header. A "*" is left to the controller: it only matches when the resource exists, which
+     * is not known before the controller runs.
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (candidate.equals(eTag))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.accenture.http;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Registers the validators of the catalogue reads. The change stream is left out: it is never a complete
+ * representation a client could revalidate. The product images are left out too: they carry the entity tags of
+ * their own files. The stock and the search statistics change without a product change, so the catalogue version
+ * does not validate them and they are never cached.
+ */
+@Configuration
+public class HttpCacheConfig extends WebMvcConfigurerAdapter {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    /**
+     * Default constructor to allow injecting the interceptor as dependency.
+     * @param conditionalGetInterceptor the interceptor answering the conditional reads.
+     */
+    @Autowired
+    public HttpCacheConfig(ConditionalGetInterceptor conditionalGetInterceptor) {
+        this.conditionalGetInterceptor = conditionalGetInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conditionalGetInterceptor).addPathPatterns("/catalogue/**")
+                .excludePathPatterns("/catalogue/changes/stream", "/catalogue/products/id=*/image",
+                        "/catalogue/stock/**", "/catalogue/products/search/stats");
+    }
+}
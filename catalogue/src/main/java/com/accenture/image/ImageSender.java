@@ -0,0 +1,164 @@
+package com.accenture.image;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the files of the product images to the HTTP responses, with sendfile when the container offers it
+ */
+@Component
+public class ImageSender {
+
+    // Request attributes of the Tomcat sendfile support
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final String cacheControl;
+
+    /**
+     * Default constructor to allow injecting the cache settings of the images.
+     * @param maxAge seconds the clients may use an image before revalidating it.
+     */
+    @Autowired
+    public ImageSender(@Value("${catalogue.images.max-age:3600}") long maxAge) {
+        this.cacheControl = CacheControl.maxAge(maxAge, TimeUnit.SECONDS).getHeaderValue();
+    }
+
+    /**
+     * Answers a GET or HEAD request with an image file, or with the part of it the request asks for
+     * @param request the request, whose conditional and range headers are honoured
+     * @param response the response the file is written to
+     * @param file the file to be sent
+     * @throws IOException when the file cannot be read or the response cannot be written
+     */
+    public void send(HttpServletRequest request, HttpServletResponse response, ProductImages.ImageFile file)
+            throws IOException {
+
+        String eTag = file.getETag();
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = file.getLength();
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.trim().equals(eTag))) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            }
+        }
+
+        response.setContentType(file.getMediaType());
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equals(request.getMethod()))
+            return;
+
+        // the container opens the file only after the request returns, which the retention of ProductImages allows
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end + 1 - position, output);
+                if (transferred <= 0)
+                    throw new IOException("Image file " + file.getPath() + " is shorter than " + length + " bytes");
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Reads a single byte range
+     * @return the first and last byte of the range; null when the header must be ignored, because it is invalid
+     * or asks for several ranges; UNSATISFIABLE when the range starts after the end of the file
+     */
+    private static long[] parseRange(String range, long length) {
+
+        range = range.trim();
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0)
+            return null;
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return null;
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix < 0)
+                    return null;
+                if (suffix == 0)
+                    return UNSATISFIABLE;
+                return new long[] {Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start)
+                return null;
+            if (start >= length)
+                return UNSATISFIABLE;
+            return new long[] {start, Math.min(end, length - 1)};
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compares the entity tags of an If-None-Match header with the one of the file, ignoring the weak prefix as
+     * required for this header
+     */
+    private static boolean matchesAny(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(eTag))
+                return true;
+        }
+        return false;
+    }
+}
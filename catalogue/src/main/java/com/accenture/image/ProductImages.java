@@ -0,0 +1,522 @@
+package com.accenture.image;
+
+import com.accenture.event.ProductChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Images of the products, stored with their thumbnails on the local disk of the catalogue instance
+ */
+@Component
+public class ProductImages {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImages.class);
+
+    /**
+     * Name of the variant holding the image as it was uploaded
+     */
+    public static final String ORIGINAL = "original";
+
+    private static final String STAGING_PREFIX = ".upload-";
+    private static final Pattern PRODUCT_DIRECTORY = Pattern.compile("-?[0-9]+");
+    private static final Pattern VERSION_DIRECTORY = Pattern.compile("[0-9a-f]{64}");
+    private static final Map<String, String> MEDIA_TYPES = new HashMap<>();
+    static {
+        MEDIA_TYPES.put("jpg", "image/jpeg");
+        MEDIA_TYPES.put("png", "image/png");
+        MEDIA_TYPES.put("gif", "image/gif");
+    }
+    private static final StoredImage NO_IMAGE = new StoredImage(Collections.emptyMap());
+
+    private final Path directory;
+    private final boolean temporary;
+    private final List<Integer> thumbnailSizes;
+    private final long maxSize;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final long retention;
+
+    private final Map<Integer, StoredImage> images = new ConcurrentHashMap<>();
+    private final Set<Path> retired = new HashSet<>();
+    private final ScheduledExecutorService cleaner;
+
+    /**
+     * Default constructor to allow injecting the image settings.
+     * @param directory the directory the images are stored in, created if it does not exist and cleared of the
+     *                    images of a previous run; empty to use a temporary directory.
+     * @param thumbnailSizes the largest width and height of every thumbnail generated at upload.
+     * @param maxSize the largest upload accepted, in bytes.
+     * @param maxPixels the largest width times height accepted, checked before decoding an upload.
+     * @param jpegQuality the quality of the JPEG thumbnails, from 0 to 1.
+     * @param retention milliseconds the files of a replaced or removed image are kept; zero to remove them at once.
+     * @throws IOException when the directory cannot be created or cleared.
+     */
+    @Autowired
+    public ProductImages(@Value("${catalogue.images.directory:}") String directory,
+                         @Value("${catalogue.images.thumbnail-sizes:160,320,640}") int[] thumbnailSizes,
+                         @Value("${catalogue.images.max-size:10485760}") long maxSize,
+                         @Value("${catalogue.images.max-pixels:40000000}") long maxPixels,
+                         @Value("${catalogue.images.jpeg-quality:0.85}") float jpegQuality,
+                         @Value("${catalogue.images.retention:60000}") long retention) throws IOException {
+        this.temporary = directory.isEmpty();
+        this.directory = temporary ? Files.createTempDirectory("catalogue-images-").toAbsolutePath()
+                : Files.createDirectories(Paths.get(directory)).toAbsolutePath();
+        // the product ids restart with the in-memory database, so the images of a previous run are someone else's
+        if (!temporary)
+            clear(this.directory);
+        this.thumbnailSizes = Arrays.stream(thumbnailSizes).sorted().distinct().boxed().collect(Collectors.toList());
+        this.maxSize = maxSize;
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+        this.retention = retention;
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-images-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Integer size : this.thumbnailSizes)
+            if (size <= 0)
+                throw new IllegalArgumentException("Thumbnail sizes must be positive: " + size);
+    }
+
+    /**
+     * Lists the thumbnail sizes generated at upload
+     * @return the largest width and height of every thumbnail, in ascending order
+     */
+    public List<Integer> getThumbnailSizes() {
+        return Collections.unmodifiableList(thumbnailSizes);
+    }
+
+    /**
+     * Finds a file of the image of a product
+     * @param productId the id of the product
+     * @param size the size of the thumbnail; null for the image as it was uploaded
+     * @return the file; null when the product has no image or the image has no thumbnail of that size
+     */
+    public ImageFile find(Integer productId, Integer size) {
+        StoredImage image = images.getOrDefault(productId, NO_IMAGE);
+        return image.files.get(size == null ? ORIGINAL : size.toString());
+    }
+
+    /**
+     * Stores the image of a product, replacing the previous one
+     * @param productId the id of the product
+     * @param content the JPEG, PNG or GIF image, read until its end
+     * @return the stored image as it was uploaded
+     * @throws IllegalArgumentException when the content is not a supported image, or is too large
+     * @throws IOException when the content cannot be read or the files cannot be written
+     */
+    public ImageFile store(Integer productId, InputStream content) throws IOException {
+
+        Path productDirectory = directory.resolve(productId.toString());
+        Files.createDirectories(productDirectory);
+        Path staging = productDirectory.resolve(STAGING_PREFIX + UUID.randomUUID());
+        Files.createDirectory(staging);
+        try {
+            Path upload = staging.resolve("upload");
+            String digest = copy(content, upload);
+            String extension = prepare(upload, staging);
+            Files.move(upload, staging.resolve(ORIGINAL + "." + extension));
+            return publish(productId, productDirectory, staging, digest).files.get(ORIGINAL);
+        }
+        finally {
+            if (Files.exists(staging))
+                deleteDirectory(staging);
+        }
+    }
+
+    /**
+     * Removes the image of a product
+     * @param productId the id of the product
+     * @return true if the product had an image; false if not
+     */
+    public synchronized boolean delete(Integer productId) {
+        boolean existed = images.remove(productId) != null;
+        retireVersions(directory.resolve(productId.toString()), null);
+        return existed;
+    }
+
+    /**
+     * Removes the images of the removed products
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case DELETED:
+                delete(event.getProductId());
+                break;
+            case CLEARED:
+                synchronized (this) {
+                    images.clear();
+                    try (DirectoryStream<Path> products = Files.newDirectoryStream(directory,
+                            ProductImages::isProductDirectory)) {
+                        for (Path product : products)
+                            retireVersions(product, null);
+                    }
+                    catch (IOException e) {
+                        log.warn("Product images could not be removed from " + directory, e);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Copies an upload to a file, computing its digest on the way
+     * @return the hexadecimal SHA-256 digest of the content
+     */
+    private String copy(InputStream content, Path file) throws IOException {
+        MessageDigest digest = sha256();
+        long copied = 0;
+        byte[] buffer = new byte[16 * 1024];
+        try (OutputStream output = new DigestOutputStream(Files.newOutputStream(file), digest)) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                copied += read;
+                if (copied > maxSize)
+                    throw new IllegalArgumentException("The image must not be larger than " + maxSize + " bytes.");
+                output.write(buffer, 0, read);
+            }
+        }
+        if (copied == 0)
+            throw new IllegalArgumentException("The image is empty.");
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest())
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    /**
+     * Decodes an upload and writes its thumbnails next to it
+     * @return the file extension of the upload
+     */
+    private String prepare(Path upload, Path staging) throws IOException {
+
+        BufferedImage image;
+        String extension;
+        try (ImageInputStream input = ImageIO.createImageInputStream(upload.toFile())) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+                throw new IllegalArgumentException("The image must be a JPEG, PNG or GIF image.");
+            ImageReader reader = readers.next();
+            try {
+                extension = extension(reader.getFormatName());
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels)
+                    throw new IllegalArgumentException("The image must not have more than " + maxPixels + " pixels.");
+                image = reader.read(0);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("The image cannot be decoded: " + e.getMessage(), e);
+        }
+
+        String thumbnailExtension = "jpg".equals(extension) ? "jpg" : "png";
+        for (Integer size : thumbnailSizes)
+            write(resize(image, size, thumbnailExtension), thumbnailExtension,
+                    staging.resolve(size + "." + thumbnailExtension));
+        return extension;
+    }
+
+    /**
+     * Moves a prepared image into place and retires the previous one. Uploads are published one at a time; an
+     * image uploaded again while it is retired is kept.
+     */
+    private synchronized StoredImage publish(Integer productId, Path productDirectory, Path staging, String digest)
+            throws IOException {
+
+        // named after the digest, which tags the files without reading them; the rename lets readers see either
+        // the old image or the new one, never a mix
+        Path target = productDirectory.resolve(digest);
+        retired.remove(target);
+        if (!Files.isDirectory(target)) {
+            try {
+                Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, target);
+            }
+        }
+        StoredImage image = read(target);
+        images.put(productId, image);
+        retireVersions(productDirectory, target);
+        return image;
+    }
+
+    /**
+     * Retires the published images of a product, leaving alone the uploads in progress. Runs holding the lock.
+     * @param current the image to be kept; null to retire them all
+     */
+    private void retireVersions(Path productDirectory, Path current) {
+        if (!Files.isDirectory(productDirectory))
+            return;
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(productDirectory,
+                path -> !path.equals(current) && isVersionDirectory(path))) {
+            for (Path version : versions) {
+                if (retention <= 0)
+                    deleteDirectory(version);
+                else if (retired.add(version))
+                    // the container may open a file given to sendfile after the request which found it has returned
+                    cleaner.schedule(() -> remove(version), retention, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (IOException e) {
+            log.warn("Product images could not be removed from " + productDirectory, e);
+        }
+    }
+
+    /**
+     * Removes a retired image once its retention is over, unless it was uploaded again meanwhile
+     */
+    private synchronized void remove(Path version) {
+        if (retired.remove(version))
+            deleteDirectory(version);
+    }
+
+    /**
+     * Removes the images and uploads left by a previous run of the instance, and the product directories they leave
+     * empty; any other file in the directory is left alone
+     */
+    private static void clear(Path directory) throws IOException {
+        try (DirectoryStream<Path> products = Files.newDirectoryStream(directory, ProductImages::isProductDirectory)) {
+            for (Path product : products) {
+                try (DirectoryStream<Path> previous = Files.newDirectoryStream(product, path -> isVersionDirectory(path)
+                        || path.getFileName().toString().startsWith(STAGING_PREFIX))) {
+                    for (Path path : previous)
+                        deleteDirectory(path);
+                }
+                try {
+                    Files.delete(product);
+                }
+                catch (DirectoryNotEmptyException e) {
+                    log.warn("Product image directory " + product + " holds other files and was kept");
+                }
+            }
+        }
+    }
+
+    private static boolean isProductDirectory(Path path) {
+        return PRODUCT_DIRECTORY.matcher(path.getFileName().toString()).matches() && Files.isDirectory(path);
+    }
+
+    private static boolean isVersionDirectory(Path path) {
+        return VERSION_DIRECTORY.matcher(path.getFileName().toString()).matches() && Files.isDirectory(path);
+    }
+
+    /**
+     * Stops removing the retired images; a temporary directory is removed with all its images
+     */
+    @PreDestroy
+    public void stop() {
+        cleaner.shutdownNow();
+        if (temporary)
+            deleteDirectory(directory);
+    }
+
+    private StoredImage read(Path version) throws IOException {
+        String digest = version.getFileName().toString();
+        Map<String, ImageFile> files = new HashMap<>();
+        try (Stream<Path> paths = Files.list(version)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String name = path.getFileName().toString();
+                int dot = name.lastIndexOf('.');
+                String mediaType = dot < 0 ? null : MEDIA_TYPES.get(name.substring(dot + 1));
+                if (mediaType == null)
+                    continue;
+                String variant = name.substring(0, dot);
+                String eTag = "\"" + digest + (ORIGINAL.equals(variant) ? "" : "-" + variant) + "\"";
+                files.put(variant, new ImageFile(path, Files.size(path), mediaType, eTag));
+            }
+        }
+        return new StoredImage(files);
+    }
+
+    /**
+     * Scales an image down to fit a square, keeping its proportions; smaller images are only re-encoded. Large
+     * reductions are done in halving steps so the thumbnail keeps the detail of every source pixel.
+     */
+    private static BufferedImage resize(BufferedImage image, int size, String extension) {
+
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        int type = "jpg".equals(extension) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = image;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            }
+            finally {
+                graphics.dispose();
+            }
+            current = step;
+        }
+        while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    private void write(BufferedImage image, String extension, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersBySuffix(extension).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(Files.newOutputStream(file))) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(extension)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        }
+        finally {
+            writer.dispose();
+        }
+    }
+
+    private static String extension(String formatName) {
+        switch (formatName.toLowerCase()) {
+            case "jpeg":
+            case "jpg":
+                return "jpg";
+            case "png":
+                return "png";
+            case "gif":
+                return "gif";
+            default:
+                throw new IllegalArgumentException("The image must be a JPEG, PNG or GIF image.");
+        }
+    }
+
+    private static void deleteDirectory(Path path) {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(file);
+        }
+        catch (NoSuchFileException e) {
+            // removed meanwhile
+        }
+        catch (IOException e) {
+            log.warn("Image files could not be removed from " + path, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * One file of a product image, with what is needed to send it without reading it
+     */
+    public static final class ImageFile {
+
+        private final Path path;
+        private final long length;
+        private final String mediaType;
+        private final String eTag;
+
+        private ImageFile(Path path, long length, String mediaType, String eTag) {
+            this.path = path;
+            this.length = length;
+            this.mediaType = mediaType;
+            this.eTag = eTag;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Gets the strong entity tag of the file, derived from the digest of the uploaded image
+         * @return the quoted entity tag
+         */
+        public String getETag() {
+            return eTag;
+        }
+    }
+
+    /**
+     * Files of the current image of a product, by variant
+     */
+    private static final class StoredImage {
+
+        private final Map<String, ImageFile> files;
+
+        private StoredImage(Map<String, ImageFile> files) {
+            this.files = files;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.accenture.importer;
+
+import com.accenture.cache.SecondLevelCache;
+import com.accenture.dictionary.ProductDictionaries;
+import com.accenture.dto.ImportReport;
+import com.accenture.entity.Product;
+import com.accenture.event.CatalogueVersion;
+import com.accenture.event.ProductChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads products in bulk from a CSV or newline-delimited JSON stream
+ */
+@Component
+public class ProductImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImporter.class);
+
+    private static final String INSERT = "insert into product (product_id, product_name, product_category, "
+            + "product_price, product_color, version) values (?, ?, ?, ?, ?, 0)";
+    private static final String[] CSV_COLUMNS = {"productName", "productCategory", "productPrice", "productColor"};
+    private static final int MAX_ERRORS = 100;
+    private static final List<Row> END = Collections.emptyList();
+
+    /**
+     * Formats accepted by the import
+     */
+    public enum Format {
+        CSV, NDJSON;
+
+        /**
+         * Finds the format of a request body
+         * @param contentType the content type of the body
+         * @return the format; null when it is not supported
+         */
+        public static Format fromContentType(String contentType) {
+            if (contentType == null)
+                return null;
+            if (contentType.startsWith("text/csv"))
+                return CSV;
+            if (contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/json"))
+                return NDJSON;
+            return null;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ProductDictionaries productDictionaries;
+    private final SecondLevelCache secondLevelCache;
+    private final CatalogueVersion catalogueVersion;
+    private final int batchSize;
+    private final int chunkSize;
+    private final int queueCapacity;
+    private final ExecutorService writers;
+
+    /**
+     * Default constructor to allow injecting the JDBC template, transaction manager, event publisher, mapper,
+     * dictionaries, second-level cache and catalogue version.
+     * @param jdbcTemplate the template used to insert the products.
+     * @param transactionManager the transaction manager of the chunk transactions.
+     * @param eventPublisher the publisher used to notify the imported products.
+     * @param objectMapper the mapper used to read the NDJSON rows.
+     * @param productDictionaries the dictionaries of the categories and colors written as ids.
+     * @param secondLevelCache the cache whose finder results are evicted after every chunk.
+     * @param catalogueVersion the version of the catalogue, which orders the chunks with the other changes.
+     * @param batchSize the number of rows sent to the database in every JDBC batch.
+     * @param chunkSize the number of rows committed in every transaction.
+     * @param queueCapacity the number of parsed chunks waiting for the writer.
+     */
+    @Autowired
+    public ProductImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                           ProductDictionaries productDictionaries, SecondLevelCache secondLevelCache,
+                           CatalogueVersion catalogueVersion,
+                           @Value("${catalogue.import.batch-size:500}") int batchSize,
+                           @Value("${catalogue.import.chunk-size:5000}") int chunkSize,
+                           @Value("${catalogue.import.queue-capacity:4}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.productDictionaries = productDictionaries;
+        this.secondLevelCache = secondLevelCache;
+        this.catalogueVersion = catalogueVersion;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.writers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "product-import-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Imports the products of a stream. Invalid rows are skipped and reported; the id of the rows is ignored.
+     * @param inputStream the rows to be imported
+     * @param format the format of the rows
+     * @return the number of rows imported and rejected, with the progress of every chunk
+     */
+    public ImportReport importProducts(InputStream inputStream, Format format) {
+
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        List<ImportReport.Chunk> chunks = Collections.synchronizedList(new ArrayList<>());
+        BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Future<?> writer = writers.submit(() -> {
+            write(queue, chunks, stopped);
+            return null;
+        });
+
+        try {
+            read(inputStream, format, queue, writer, report);
+        }
+        catch (IllegalArgumentException e) {
+            // Rows are validated one by one, so what fails the reading is the CSV header
+            report.setInvalidInput(true);
+            report.setFailure(e.getMessage());
+        }
+        catch (IOException | RuntimeException e) {
+            report.setFailure(e.getMessage());
+            log.error("Product import failed", e);
+        }
+        catch (InterruptedException e) {
+            stopped.set(true);
+            Thread.currentThread().interrupt();
+            report.setFailure("Import interrupted");
+        }
+
+        // The chunks handed to the writer are written even when the reading failed
+        if (!stopped.get()) {
+            try {
+                enqueue(queue, END, writer);
+                writer.get();
+            }
+            catch (ExecutionException e) {
+                report.setFailure(e.getCause().getMessage());
+                log.error("Product import failed", e.getCause());
+            }
+            catch (InterruptedException e) {
+                stopped.set(true);
+                Thread.currentThread().interrupt();
+                report.setFailure("Import interrupted");
+            }
+        }
+
+        report.setChunks(new ArrayList<>(chunks));
+        report.setRowsImported(chunks.stream().mapToLong(ImportReport.Chunk::getRows).sum());
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        report.setRowsPerSecond(report.getRowsImported() * 1000 / Math.max(1, report.getElapsedMillis()));
+        log.info("Product import finished: {}", report);
+        return report;
+    }
+
+    /**
+     * Parsing stage: converts the lines into products and hands them to the writer in chunks
+     */
+    private void read(InputStream inputStream, Format format, BlockingQueue<List<Row>> queue, Future<?> writer,
+                      ImportReport report) throws IOException, InterruptedException {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        Map<String, Integer> columns = null;
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty())
+                continue;
+            if (format == Format.CSV && columns == null) {
+                columns = header(line);
+                continue;
+            }
+
+            report.setRowsRead(report.getRowsRead() + 1);
+            try {
+                Product product = format == Format.CSV
+                        ? fromCsv(line, columns) : objectMapper.readValue(line, Product.class);
+                validate(product);
+                chunk.add(new Row(lineNumber, product));
+            }
+            catch (IOException | RuntimeException e) {
+                report.setRowsRejected(report.getRowsRejected() + 1);
+                if (report.getErrors().size() < MAX_ERRORS)
+                    report.getErrors().add("Line " + lineNumber + ": " + e.getMessage());
+            }
+
+            if (chunk.size() == chunkSize) {
+                if (!enqueue(queue, chunk, writer))
+                    return;
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty())
+            enqueue(queue, chunk, writer);
+    }
+
+    /**
+     * Writing stage: inserts and commits every chunk, then publishes the created products. The stop flag is only
+     * checked between two chunks, so a committed chunk always gets its events. The ids of the chunk are unknown to
+     * the other writers until it is committed, so the chunk only waits for a change of the whole catalogue.
+     */
+    private void write(BlockingQueue<List<Row>> queue, List<ImportReport.Chunk> chunks, AtomicBoolean stopped)
+            throws InterruptedException {
+
+        while (!stopped.get()) {
+            List<Row> chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (chunk == END)
+                return;
+            if (chunk == null)
+                continue;
+
+            long start = System.nanoTime();
+            reserveIds(chunk);
+
+            List<Row> rows = chunk;
+            long millis = catalogueVersion.publishInOrder(null, () -> {
+                transactionTemplate.execute(status -> insert(rows));
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                // Hibernate does not see the JDBC inserts, so its cached finder results would miss them
+                secondLevelCache.evictQueries();
+                for (Row row : rows)
+                    eventPublisher.publishEvent(new ProductChangeEvent(this, ProductChangeEvent.Type.CREATED,
+                            row.product.getProductId(), row.product));
+                return elapsed;
+            });
+
+            ImportReport.Chunk progress = new ImportReport.Chunk(chunks.size() + 1, chunk.size(),
+                    chunk.get(chunk.size() - 1).line, millis);
+            chunks.add(progress);
+            log.info("Imported chunk {}: {} products up to line {} in {} ms ({} products/s)", progress.getNumber(),
+                    progress.getRows(), progress.getLastLine(), progress.getMillis(), progress.getRowsPerSecond());
+        }
+    }
+
+    private int[][] insert(List<Row> rows) {
+        return jdbcTemplate.batchUpdate(INSERT, rows, batchSize, (statement, row) -> {
+            statement.setInt(1, row.product.getProductId());
+            statement.setString(2, row.product.getProductName());
+            setId(statement, 3, productDictionaries.getCategories().findId(row.product.getProductCategory()));
+            statement.setBigDecimal(4, row.product.getProductPrice());
+            setId(statement, 5, productDictionaries.getColors().findId(row.product.getProductColor()));
+        });
+    }
+
+    /**
+     * Hands a chunk to the writer
+     * @return false when the writer has stopped, so there is no point in reading further
+     */
+    private static boolean enqueue(BlockingQueue<List<Row>> queue, List<Row> chunk, Future<?> writer)
+            throws InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS))
+            if (writer.isDone())
+                return false;
+        return true;
+    }
+
+    /**
+     * Reserves the ids of a chunk from the product sequence. Like the pooled optimizer of the entity generator,
+     * every sequence value reserves the block of ids ending with it; a first value lower than the block size
+     * is skipped, as the generator does.
+     */
+    private void reserveIds(List<Row> rows) {
+        int next = 0;
+        int last = -1;
+        for (Row row : rows) {
+            if (next > last) {
+                last = nextSequenceValue();
+                if (last < Product.ID_ALLOCATION_SIZE)
+                    last = nextSequenceValue();
+                next = last - Product.ID_ALLOCATION_SIZE + 1;
+            }
+            row.product.setProductId(next++);
+        }
+    }
+
+    private int nextSequenceValue() {
+        return jdbcTemplate.queryForObject("select next value for " + Product.ID_SEQUENCE, Integer.class);
+    }
+
+    private static Map<String, Integer> header(String line) {
+        List<String> names = splitCsv(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (String column : CSV_COLUMNS)
+            if (names.contains(column))
+                columns.put(column, names.indexOf(column));
+        if (!columns.containsKey("productName") || !columns.containsKey("productPrice"))
+            throw new IllegalArgumentException("The CSV header must name the productName and productPrice columns");
+        return columns;
+    }
+
+    private static Product fromCsv(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        String price = column(values, columns, "productPrice");
+        return new Product(column(values, columns, "productName"), column(values, columns, "productCategory"),
+                price == null ? null : new BigDecimal(price), column(values, columns, "productColor"));
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size())
+            return null;
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits a CSV line into its values. Values may be quoted, with doubled quotes inside them.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                    quoted = false;
+                else
+                    value.append(c);
+            }
+            else if (c == '"')
+                quoted = true;
+            else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else
+                value.append(c);
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static void setId(PreparedStatement statement, int index, Integer id) throws SQLException {
+        if (id == null)
+            statement.setNull(index, Types.INTEGER);
+        else
+            statement.setInt(index, id);
+    }
+
+    /**
+     * Checks a row and adds its category and color to the dictionaries, so the writer finds their ids
+     */
+    private void validate(Product product) {
+        if (product.getProductName() == null || product.getProductName().trim().isEmpty())
+            throw new IllegalArgumentException("The product name is required");
+        if (product.getProductPrice() == null || product.getProductPrice().signum() < 0)
+            throw new IllegalArgumentException("The product price is required and cannot be negative");
+        product.setProductId(null);
+        product.setVersion(0L);
+        product.setProductCategory(productDictionaries.getCategories().intern(product.getProductCategory()));
+        product.setProductColor(productDictionaries.getColors().intern(product.getProductColor()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        writers.shutdownNow();
+    }
+
+    private static class Row {
+
+        private final long line;
+        private final Product product;
+
+        Row(long line, Product product) {
+            this.line = line;
+            this.product = product;
+        }
+    }
+}
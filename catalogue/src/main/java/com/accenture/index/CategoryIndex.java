@@ -0,0 +1,139 @@
+package com.accenture.index;
+
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of the product categories with the number of products of each one.
+ *
+ * The index is built on the first read with a single group-by query, and then kept up to date with the
+ * product changes published by the catalogue service, so reads never touch the repository again.
+ * Readers get an immutable snapshot, replaced after every change.
+ */
+@Component
+public class CategoryIndex {
+
+    private static final int MAX_BUILD_ATTEMPTS = 3;
+
+    private final ProductRepository productRepository;
+
+    private final Object lock = new Object();
+    private Map<String, Integer> counts;
+    private long changes;
+    private volatile Map<String, Integer> snapshot;
+
+    /**
+     * Default constructor to allow injecting the repository class as dependency.
+     * @param productRepository the repository used to build the index.
+     */
+    @Autowired
+    public CategoryIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Gets the categories with the number of products of each one, sorted by category name
+     * @return an immutable map with the number of products by category name
+     */
+    public Map<String, Integer> getCategoryCounts() {
+        Map<String, Integer> current = snapshot;
+        if (current != null)
+            return current;
+        return build();
+    }
+
+    /**
+     * Applies a product change to the index. Changes received before the index is built are only counted,
+     * so a build running at the same time knows it may have missed them.
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        synchronized (lock) {
+            changes++;
+            if (counts == null)
+                return;
+
+            switch (event.getType()) {
+                case CREATED:
+                    increment(event.getProduct().getProductCategory(), 1);
+                    break;
+                case UPDATED:
+                    String previousCategory = categoryOf(event.getPrevious());
+                    String category = categoryOf(event.getProduct());
+                    if (!Objects.equals(previousCategory, category)) {
+                        increment(previousCategory, -1);
+                        increment(category, 1);
+                    }
+                    break;
+                case DELETED:
+                    increment(event.getProduct().getProductCategory(), -1);
+                    break;
+                case CLEARED:
+                    counts.clear();
+                    break;
+            }
+            snapshot = Collections.unmodifiableMap(new TreeMap<>(counts));
+        }
+    }
+
+    /**
+     * Builds the index from the repository. The query runs without holding the lock; when a product changes
+     * while it runs, its result is discarded and the query is repeated.
+     * @return the built index
+     */
+    private Map<String, Integer> build() {
+
+        for (int attempt = 0; attempt < MAX_BUILD_ATTEMPTS; attempt++) {
+            long changesBefore;
+            synchronized (lock) {
+                if (snapshot != null)
+                    return snapshot;
+                changesBefore = changes;
+            }
+
+            Map<String, Integer> loaded = load();
+
+            synchronized (lock) {
+                if (snapshot != null)
+                    return snapshot;
+                if (changes == changesBefore) {
+                    counts = loaded;
+                    snapshot = Collections.unmodifiableMap(new TreeMap<>(loaded));
+                    return snapshot;
+                }
+            }
+        }
+        return Collections.unmodifiableMap(load());
+    }
+
+    private Map<String, Integer> load() {
+        Map<String, Integer> loaded = new TreeMap<>();
+        for (Object[] row : productRepository.countProductsByCategory())
+            loaded.put((String)row[0], ((Number)row[1]).intValue());
+        return loaded;
+    }
+
+    private void increment(String category, int delta) {
+        if (category == null)
+            return;
+        int count = counts.getOrDefault(category, 0) + delta;
+        if (count > 0)
+            counts.put(category, count);
+        else
+            counts.remove(category);
+    }
+
+    private static String categoryOf(Product product) {
+        return product == null ? null : product.getProductCategory();
+    }
+}
@@ -0,0 +1,314 @@
+package com.accenture.index;
+
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the product ids by category, color and price, stored as compressed bitmaps
+ */
+@Component
+public class FacetIndex {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final FacetValues categories = new FacetValues();
+    private final FacetValues colors = new FacetValues();
+    // Prices are indexed by exact value for the ends of a range, and by whole unit for everything in between
+    private final NavigableMap<BigDecimal, RoaringBitmap> byPrice = new TreeMap<>();
+    private final NavigableMap<BigDecimal, RoaringBitmap> byPriceUnit = new TreeMap<>();
+    private volatile boolean built;
+
+    private final Object pendingLock = new Object();
+    // Changes published while the index is being built; null when no build is running
+    private List<ProductChangeEvent> pending;
+
+    /**
+     * Default constructor to allow injecting the repository and transaction manager as dependencies.
+     * @param productRepository the repository used to build the index.
+     * @param transactionManager the transaction manager used to read the products through a cursor.
+     */
+    @Autowired
+    public FacetIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Finds the products matching all the provided filters, together with the number of matching products of
+     * every category and color when the filter on that same facet is left out.
+     * @param category the category of the products; any category when null
+     * @param color the color of the products; any color when null
+     * @param minPrice the lowest price, inclusive; no lower bound when null
+     * @param maxPrice the highest price, inclusive; no upper bound when null
+     * @param limit the maximum number of product ids to return
+     * @return the lowest ids of the matching products, the number of matches and the facet counts
+     */
+    public Result search(String category, String color, BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        if (!built)
+            build();
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap categoryFilter = category == null ? null : categories.get(category);
+            RoaringBitmap colorFilter = color == null ? null : colors.get(color);
+            RoaringBitmap priceFilter = minPrice == null && maxPrice == null ? null : priceRange(minPrice, maxPrice);
+
+            RoaringBitmap withoutCategory = intersect(colorFilter, priceFilter);
+            RoaringBitmap withoutColor = intersect(categoryFilter, priceFilter);
+            RoaringBitmap matches = categoryFilter == null
+                    ? withoutCategory : RoaringBitmap.and(categoryFilter, withoutCategory);
+
+            List<Integer> productIds = new ArrayList<>(Math.min(limit, matches.getCardinality()));
+            IntIterator iterator = matches.getIntIterator();
+            while (iterator.hasNext() && productIds.size() < limit)
+                productIds.add(iterator.next());
+            return new Result(productIds, matches.getCardinality(),
+                    categories.count(withoutCategory, all), colors.count(withoutColor, all));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a product change to the index. Changes received while the index is being built are kept until
+     * the build has loaded the stored products; changes received before it started are already visible to it
+     * and are ignored.
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        synchronized (pendingLock) {
+            if (pending != null) {
+                pending.add(event);
+                return;
+            }
+            if (!built)
+                return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            apply(event);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(ProductChangeEvent event) {
+        // Idempotent, since a change held back during a build may already be visible to the build query
+        switch (event.getType()) {
+            case CREATED:
+                add(event.getProduct());
+                break;
+            case UPDATED:
+                remove(event.getPrevious());
+                add(event.getProduct());
+                break;
+            case DELETED:
+                remove(event.getProduct());
+                all.remove(event.getProductId());
+                break;
+            case CLEARED:
+                clear();
+                break;
+        }
+    }
+
+    /**
+     * Builds the index from the repository. The write lock is held while the products are read, and the changes
+     * published from the moment the build starts are collected and applied on top of the loaded state.
+     */
+    private void build() {
+        lock.writeLock().lock();
+        try {
+            if (built)
+                return;
+            synchronized (pendingLock) {
+                pending = new ArrayList<>();
+            }
+            clear();
+            transactionTemplate.execute(status -> {
+                try (Stream<Object[]> rows = productRepository.streamProductFacets()) {
+                    rows.forEach(row -> add((Integer)row[0], (String)row[1], (String)row[2], (BigDecimal)row[3]));
+                }
+                return null;
+            });
+            applyPending();
+            all.runOptimize();
+        }
+        finally {
+            synchronized (pendingLock) {
+                pending = null;
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the changes collected during the build until there are none left, and then marks the index built
+     * so the next changes are applied as they are published
+     */
+    private void applyPending() {
+        while (true) {
+            List<ProductChangeEvent> events;
+            synchronized (pendingLock) {
+                events = pending;
+                if (events.isEmpty()) {
+                    pending = null;
+                    built = true;
+                    return;
+                }
+                pending = new ArrayList<>();
+            }
+            events.forEach(this::apply);
+        }
+    }
+
+    private void add(Product product) {
+        add(product.getProductId(), product.getProductCategory(), product.getProductColor(), product.getProductPrice());
+    }
+
+    private void add(int productId, String category, String color, BigDecimal price) {
+        all.add(productId);
+        categories.add(productId, category);
+        colors.add(productId, color);
+        if (price != null) {
+            byPrice.computeIfAbsent(price, key -> new RoaringBitmap()).add(productId);
+            byPriceUnit.computeIfAbsent(unit(price), key -> new RoaringBitmap()).add(productId);
+        }
+    }
+
+    private void remove(Product product) {
+        if (product == null)
+            return;
+        int productId = product.getProductId();
+        categories.remove(productId, product.getProductCategory());
+        colors.remove(productId, product.getProductColor());
+        if (product.getProductPrice() != null) {
+            remove(byPrice, product.getProductPrice(), productId);
+            remove(byPriceUnit, unit(product.getProductPrice()), productId);
+        }
+    }
+
+    private static void remove(Map<BigDecimal, RoaringBitmap> bitmaps, BigDecimal key, int productId) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null)
+            return;
+        bitmap.remove(productId);
+        if (bitmap.isEmpty())
+            bitmaps.remove(key);
+    }
+
+    private void clear() {
+        all.clear();
+        categories.clear();
+        colors.clear();
+        byPrice.clear();
+        byPriceUnit.clear();
+    }
+
+    /**
+     * Finds the products within a price range. The whole units inside the range are read from the unit bitmaps,
+     * and only the prices of the partial units at both ends are read one by one.
+     * @return the union of the bitmaps covering the range
+     */
+    private RoaringBitmap priceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        BigDecimal firstUnit = minPrice == null ? null : minPrice.setScale(0, RoundingMode.CEILING);
+        BigDecimal lastUnit = maxPrice == null ? null : maxPrice.setScale(0, RoundingMode.FLOOR);
+
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        if (firstUnit != null && lastUnit != null && firstUnit.compareTo(lastUnit) >= 0) {
+            bitmaps.addAll(byPrice.subMap(minPrice, true, maxPrice, true).values());
+        }
+        else {
+            NavigableMap<BigDecimal, RoaringBitmap> units = byPriceUnit;
+            if (firstUnit != null) {
+                units = units.tailMap(firstUnit, true);
+                bitmaps.addAll(byPrice.subMap(minPrice, true, firstUnit, false).values());
+            }
+            if (lastUnit != null) {
+                units = units.headMap(lastUnit, false);
+                bitmaps.addAll(byPrice.subMap(lastUnit, true, maxPrice, true).values());
+            }
+            bitmaps.addAll(units.values());
+        }
+        return FastAggregation.or(bitmaps.iterator());
+    }
+
+    /**
+     * Intersects the provided filters, skipping the absent ones
+     * @return the intersection; all the products when there is no filter
+     */
+    private RoaringBitmap intersect(RoaringBitmap first, RoaringBitmap second) {
+        if (first == null)
+            return second == null ? all : second;
+        if (second == null)
+            return first;
+        return RoaringBitmap.and(first, second);
+    }
+
+    private static BigDecimal unit(BigDecimal price) {
+        return price.setScale(0, RoundingMode.FLOOR);
+    }
+
+    /**
+     * Result of a search in the index
+     */
+    public static class Result {
+
+        private final List<Integer> productIds;
+        private final int total;
+        private final Map<String, Integer> categoryCounts;
+        private final Map<String, Integer> colorCounts;
+
+        Result(List<Integer> productIds, int total, Map<String, Integer> categoryCounts,
+               Map<String, Integer> colorCounts) {
+            this.productIds = productIds;
+            this.total = total;
+            this.categoryCounts = categoryCounts;
+            this.colorCounts = colorCounts;
+        }
+
+        public List<Integer> getProductIds() {
+            return productIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public Map<String, Integer> getCategoryCounts() {
+            return categoryCounts;
+        }
+
+        public Map<String, Integer> getColorCounts() {
+            return colorCounts;
+        }
+    }
+}
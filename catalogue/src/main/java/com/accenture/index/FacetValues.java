@@ -0,0 +1,110 @@
+package com.accenture.index;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Values of one product facet, such as the category or the color, with the bitmap of the product ids holding
+ * each value. Every value gets a small code, and the code of every product is kept in an array indexed by the
+ * product id, so the products of a filter can be counted by value without intersecting every bitmap.
+ *
+ * This class is not thread safe; the facet index guards it with its own lock.
+ */
+class FacetValues {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<RoaringBitmap> bitmaps = new ArrayList<>();
+    private int[] productCodes = new int[1024];
+
+    /**
+     * Gets the products holding a value
+     * @param value the value of the facet
+     * @return the bitmap of the product ids; empty for an unknown value
+     */
+    RoaringBitmap get(String value) {
+        Integer code = codes.get(value);
+        return code == null ? new RoaringBitmap() : bitmaps.get(code);
+    }
+
+    void add(int productId, String value) {
+        if (value == null)
+            return;
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+            bitmaps.add(new RoaringBitmap());
+        }
+        bitmaps.get(code).add(productId);
+
+        if (productId >= productCodes.length)
+            productCodes = Arrays.copyOf(productCodes, Math.max(productId + 1, productCodes.length * 3 / 2));
+        // Zero is left for the products without value
+        productCodes[productId] = code + 1;
+    }
+
+    void remove(int productId, String value) {
+        Integer code = value == null ? null : codes.get(value);
+        if (code == null)
+            return;
+        bitmaps.get(code).remove(productId);
+        if (productId < productCodes.length && productCodes[productId] == code + 1)
+            productCodes[productId] = 0;
+    }
+
+    void clear() {
+        codes.clear();
+        values.clear();
+        bitmaps.clear();
+        productCodes = new int[1024];
+    }
+
+    /**
+     * Counts the products of every value among the provided ones. The smaller of the filter and its complement
+     * is walked once, looking up the code of each product.
+     * @param filter the products to be counted
+     * @param all all the indexed products, a superset of the filter
+     * @return the number of products by value, leaving out the values without products
+     */
+    Map<String, Integer> count(RoaringBitmap filter, RoaringBitmap all) {
+
+        int[] counts = new int[values.size()];
+        if (filter == all) {
+            for (int code = 0; code < counts.length; code++)
+                counts[code] = bitmaps.get(code).getCardinality();
+        }
+        else if (filter.getCardinality() <= all.getCardinality() / 2) {
+            countCodes(filter, counts, 1);
+        }
+        else {
+            for (int code = 0; code < counts.length; code++)
+                counts[code] = bitmaps.get(code).getCardinality();
+            countCodes(RoaringBitmap.andNot(all, filter), counts, -1);
+        }
+
+        Map<String, Integer> result = new TreeMap<>();
+        for (int code = 0; code < counts.length; code++)
+            if (counts[code] > 0)
+                result.put(values.get(code), counts[code]);
+        return result;
+    }
+
+    private void countCodes(RoaringBitmap products, int[] counts, int delta) {
+        IntIterator iterator = products.getIntIterator();
+        while (iterator.hasNext()) {
+            int productId = iterator.next();
+            int code = productId < productCodes.length ? productCodes[productId] : 0;
+            if (code > 0)
+                counts[code - 1] += delta;
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.accenture.index;
+
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index of the product names
+ */
+@Component
+public class NameIndex {
+
+    static final int MAX_GRAM_LENGTH = 3;
+
+    private static final double PREFIX_WEIGHT = 0.5;
+
+    // Approximate size of a map entry on a 64-bit JVM with compressed pointers
+    private static final int ENTRY_BYTES = 40;
+
+    private static final Comparator<Match> RANKING =
+            Comparator.comparingDouble((Match match) -> match.score).reversed()
+                    .thenComparingInt(match -> match.productId);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, RoaringBitmap> words = new TreeMap<>();
+    // First letters of every word, so the short prefixes typed by an autocomplete are a single lookup
+    private final Map<String, RoaringBitmap> grams = new HashMap<>();
+    // Name and number of words of every indexed product, by product id
+    private String[] names = new String[1024];
+    private byte[] wordCounts = new byte[1024];
+    private int indexed;
+    private volatile boolean built;
+
+    private final Object pendingLock = new Object();
+    // Changes published while the index is being built; null when no build is running
+    private List<ProductChangeEvent> pending;
+
+    /**
+     * Default constructor to allow injecting the repository and transaction manager as dependencies.
+     * @param productRepository the repository used to build the index.
+     * @param transactionManager the transaction manager used to read the products through a cursor.
+     */
+    @Autowired
+    public NameIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Finds the products whose name matches a query
+     * @param query the words to be found; the last one may be incomplete
+     * @param limit the maximum number of product ids to return
+     * @return the ids of the best matching products, best first
+     */
+    public List<Integer> search(String query, int limit) {
+        List<Integer> productIds = new ArrayList<>();
+        for (Match match : rank(query, limit))
+            productIds.add(match.productId);
+        return productIds;
+    }
+
+    /**
+     * Completes a query with the names of the best matching products
+     * @param query the words typed so far; the last one may be incomplete
+     * @param limit the maximum number of suggestions
+     * @return the distinct names of the best matching products, best first
+     */
+    public List<String> suggest(String query, int limit) {
+        Set<String> suggestions = new LinkedHashSet<>();
+        // Several products may share a name, so more matches than suggestions are ranked
+        for (Match match : rank(query, limit * 2)) {
+            suggestions.add(match.name);
+            if (suggestions.size() == limit)
+                break;
+        }
+        return new ArrayList<>(suggestions);
+    }
+
+    /**
+     * Gets the size of the index
+     * @return the number of products and words indexed, and an estimate of the memory they take
+     */
+    public Stats getStats() {
+        if (!built)
+            build();
+
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Map.Entry<String, RoaringBitmap> word : words.entrySet())
+                bytes += ENTRY_BYTES + stringBytes(word.getKey()) + word.getValue().getSizeInBytes();
+            for (Map.Entry<String, RoaringBitmap> gram : grams.entrySet())
+                bytes += ENTRY_BYTES + stringBytes(gram.getKey()) + gram.getValue().getSizeInBytes();
+            bytes += 4L * names.length + wordCounts.length;
+            for (String name : names)
+                if (name != null)
+                    bytes += stringBytes(name);
+            return new Stats(indexed, words.size(), bytes);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a product change to the index. Changes received during a build are held back until the stored
+     * names are loaded, since the build query may have started before they were committed.
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        synchronized (pendingLock) {
+            if (pending != null) {
+                pending.add(event);
+                return;
+            }
+            if (!built)
+                return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            apply(event);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+                add(event.getProductId(), event.getProduct().getProductName());
+                break;
+            case DELETED:
+                remove(event.getProductId());
+                break;
+            case CLEARED:
+                clear();
+                break;
+        }
+    }
+
+    /**
+     * Splits a text into lower-cased words without accents
+     * @param text the text to be split
+     * @return the words, in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        for (String token : normalized.split("[^\\p{L}\\p{N}]+"))
+            if (!token.isEmpty())
+                tokens.add(token);
+        return tokens;
+    }
+
+    /**
+     * Indexes the name of a product, replacing its previous name. Indexing the same name twice has no effect.
+     * @param productId the id of the product
+     * @param name the name of the product; the product is removed when null
+     */
+    void add(int productId, String name) {
+        remove(productId);
+        List<String> tokens = tokenize(name);
+        if (tokens.isEmpty())
+            return;
+
+        for (String token : new LinkedHashSet<>(tokens)) {
+            words.computeIfAbsent(token, key -> new RoaringBitmap()).add(productId);
+            for (int length = 1; length <= Math.min(MAX_GRAM_LENGTH, token.length()); length++)
+                grams.computeIfAbsent(token.substring(0, length), key -> new RoaringBitmap()).add(productId);
+        }
+
+        if (productId >= names.length) {
+            int length = Math.max(productId + 1, names.length * 3 / 2);
+            names = Arrays.copyOf(names, length);
+            wordCounts = Arrays.copyOf(wordCounts, length);
+        }
+        names[productId] = name;
+        wordCounts[productId] = (byte)Math.min(tokens.size(), Byte.MAX_VALUE);
+        indexed++;
+    }
+
+    private void remove(int productId) {
+        String name = productId < names.length ? names[productId] : null;
+        if (name == null)
+            return;
+        names[productId] = null;
+        indexed--;
+
+        for (String token : new LinkedHashSet<>(tokenize(name))) {
+            remove(words, token, productId);
+            for (int length = 1; length <= Math.min(MAX_GRAM_LENGTH, token.length()); length++)
+                remove(grams, token.substring(0, length), productId);
+        }
+    }
+
+    private static void remove(Map<String, RoaringBitmap> bitmaps, String key, int productId) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null)
+            return;
+        bitmap.remove(productId);
+        if (bitmap.isEmpty())
+            bitmaps.remove(key);
+    }
+
+    private void clear() {
+        words.clear();
+        grams.clear();
+        names = new String[1024];
+        wordCounts = new byte[1024];
+        indexed = 0;
+    }
+
+    /**
+     * Builds the index from the repository. The write lock is taken and the changes are held back before the
+     * query starts, so none of the changes committed while it reads is lost.
+     */
+    private void build() {
+        lock.writeLock().lock();
+        try {
+            if (built)
+                return;
+            holdChanges();
+            transactionTemplate.execute(status -> {
+                try (Stream<Object[]> rows = productRepository.streamProductNames()) {
+                    load(rows);
+                }
+                return null;
+            });
+        }
+        finally {
+            releaseChanges();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the index from a stream of names, unless it is already built. The write lock is held while the
+     * names are read, and the changes published meanwhile are applied on top of the loaded state.
+     * @param rows the [id, name] rows of the products
+     */
+    void load(Stream<Object[]> rows) {
+        lock.writeLock().lock();
+        try {
+            if (built)
+                return;
+            holdChanges();
+            clear();
+            rows.forEach(row -> add((Integer)row[0], (String)row[1]));
+
+            // Applies the held changes until there are none left; the next ones are applied as they come
+            while (true) {
+                List<ProductChangeEvent> events;
+                synchronized (pendingLock) {
+                    events = pending;
+                    if (events.isEmpty()) {
+                        pending = null;
+                        built = true;
+                        return;
+                    }
+                    pending = new ArrayList<>();
+                }
+                events.forEach(this::apply);
+            }
+        }
+        finally {
+            releaseChanges();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void holdChanges() {
+        synchronized (pendingLock) {
+            if (pending == null)
+                pending = new ArrayList<>();
+        }
+    }
+
+    private void releaseChanges() {
+        synchronized (pendingLock) {
+            pending = null;
+        }
+    }
+
+    /**
+     * Finds and ranks the products matching a query. All the words but the last must be found exactly; the
+     * last one may also be the prefix of a longer word, which scores less than an exact match.
+     */
+    private List<Match> rank(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0)
+            return Collections.emptyList();
+        if (!built)
+            build();
+
+        lock.readLock().lock();
+        try {
+            int total = indexed;
+            String last = tokens.get(tokens.size() - 1);
+            List<String> exactTokens = new ArrayList<>(new LinkedHashSet<>(tokens.subList(0, tokens.size() - 1)));
+
+            double exactScore = 0;
+            List<RoaringBitmap> filters = new ArrayList<>();
+            for (String token : exactTokens) {
+                RoaringBitmap bitmap = words.get(token);
+                if (bitmap == null)
+                    return Collections.emptyList();
+                filters.add(bitmap);
+                exactScore += idf(bitmap, total);
+            }
+
+            RoaringBitmap lastExact = words.get(last);
+            RoaringBitmap lastPrefix = prefix(last);
+            if (lastPrefix.isEmpty())
+                return Collections.emptyList();
+            filters.add(lastPrefix);
+
+            RoaringBitmap candidates = filters.size() == 1 ? lastPrefix : FastAggregation.and(filters.iterator());
+            double exactLastScore = lastExact == null ? 0 : idf(lastExact, total);
+            double prefixLastScore = idf(lastPrefix, total) * PREFIX_WEIGHT;
+
+            // Keeps the best matches in a bounded heap whose head is the worst of them
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            IntIterator iterator = candidates.getIntIterator();
+            while (iterator.hasNext()) {
+                int productId = iterator.next();
+                boolean exact = lastExact != null && lastExact.contains(productId);
+                double score = (exactScore + (exact ? exactLastScore : prefixLastScore))
+                        / Math.sqrt(wordCounts[productId]);
+
+                // Candidates come in id order, so once the heap is full only a strictly better score gets in
+                if (best.size() == limit && score <= best.peek().score)
+                    continue;
+                best.add(new Match(productId, names[productId], score));
+                if (best.size() > limit)
+                    best.poll();
+            }
+
+            List<Match> ranked = new ArrayList<>(best);
+            ranked.sort(RANKING);
+            return ranked;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products having a word which starts with the provided prefix
+     */
+    private RoaringBitmap prefix(String prefix) {
+        if (prefix.length() <= MAX_GRAM_LENGTH) {
+            RoaringBitmap bitmap = grams.get(prefix);
+            return bitmap == null ? new RoaringBitmap() : bitmap;
+        }
+        NavigableMap<String, RoaringBitmap> completions = words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        return FastAggregation.or(completions.values().iterator());
+    }
+
+    private static double idf(RoaringBitmap bitmap, int total) {
+        return Math.log(1 + (double)total / Math.max(1, bitmap.getCardinality()));
+    }
+
+    private static long stringBytes(String value) {
+        return 40 + 2L * value.length();
+    }
+
+    private static class Match {
+
+        private final int productId;
+        private final String name;
+        private final double score;
+
+        Match(int productId, String name, double score) {
+            this.productId = productId;
+            this.name = name;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Size of the name index
+     */
+    public static class Stats {
+
+        private final int products;
+        private final int words;
+        private final long bytes;
+
+        Stats(int products, int words, long bytes) {
+            this.products = products;
+            this.words = words;
+            this.bytes = bytes;
+        }
+
+        public int getProducts() {
+            return products;
+        }
+
+        public int getWords() {
+            return words;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getBytesPerProduct() {
+            return products == 0 ? 0 : bytes / products;
+        }
+    }
+}
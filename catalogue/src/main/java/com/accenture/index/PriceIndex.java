@@ -0,0 +1,199 @@
+package com.accenture.index;
+
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory price order of the products of the most requested categories.
+ *
+ * Every price query of a category is counted, and once a category reaches the configured number of requests its
+ * products are loaded into a skip list sorted by price and id, up to a maximum number of categories. The first N
+ * products of a price range are then read by walking N entries, whatever the size of the category, and readers
+ * do not lock. Indexed categories are kept up to date with the product changes published by the catalogue
+ * service. Loads and changes are serialized and applying a change is idempotent, so a change which is already
+ * visible to the load query may safely be applied again.
+ */
+@Component
+public class PriceIndex {
+
+    private static final int MAX_TRACKED_CATEGORIES = 1000;
+
+    private final ProductRepository productRepository;
+    private final int minRequests;
+    private final int maxCategories;
+
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Entry>> categories = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor to allow injecting the repository and the index settings.
+     * @param productRepository the repository used to load the categories.
+     * @param minRequests the number of price queries after which a category is indexed.
+     * @param maxCategories the maximum number of indexed categories.
+     */
+    @Autowired
+    public PriceIndex(ProductRepository productRepository,
+                      @Value("${catalogue.price-index.min-requests:100}") int minRequests,
+                      @Value("${catalogue.price-index.max-categories:16}") int maxCategories) {
+        this.productRepository = productRepository;
+        this.minRequests = minRequests;
+        this.maxCategories = maxCategories;
+    }
+
+    /**
+     * Finds the products of a category within a price range, counting the request towards indexing the category
+     * @param category the category of the products
+     * @param minPrice the lowest price, inclusive; no lower bound when null
+     * @param maxPrice the highest price, inclusive; no upper bound when null
+     * @param descending true to start from the most expensive products; false to start from the cheapest ones
+     * @param limit the maximum number of product ids to return
+     * @return the ids of the products in price order; null when the category is not indexed
+     */
+    public List<Integer> find(String category, BigDecimal minPrice, BigDecimal maxPrice, boolean descending,
+                              int limit) {
+
+        NavigableSet<Entry> entries = categories.get(category);
+        if (entries == null) {
+            if (!countRequest(category))
+                return null;
+            entries = load(category);
+        }
+
+        NavigableSet<Entry> range = entries;
+        if (minPrice != null)
+            range = range.tailSet(new Entry(minPrice, Integer.MIN_VALUE), true);
+        if (maxPrice != null)
+            range = range.headSet(new Entry(maxPrice, Integer.MAX_VALUE), true);
+        if (descending)
+            range = range.descendingSet();
+
+        List<Integer> productIds = new ArrayList<>(limit);
+        Iterator<Entry> iterator = range.iterator();
+        while (iterator.hasNext() && productIds.size() < limit)
+            productIds.add(iterator.next().productId);
+        return productIds;
+    }
+
+    /**
+     * Verifies whether a category is indexed
+     * @param category the category to be checked
+     * @return true if the category is kept in price order; false if not
+     */
+    public boolean isIndexed(String category) {
+        return categories.containsKey(category);
+    }
+
+    /**
+     * Applies a product change to the indexed categories
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public synchronized void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+                add(event.getProduct());
+                break;
+            case UPDATED:
+                remove(event.getPrevious());
+                add(event.getProduct());
+                break;
+            case DELETED:
+                remove(event.getProduct());
+                break;
+            case CLEARED:
+                for (NavigableSet<Entry> entries : categories.values())
+                    entries.clear();
+                break;
+        }
+    }
+
+    /**
+     * Counts a price query of a category which is not indexed
+     * @return true when the category has become hot enough to be indexed
+     */
+    private boolean countRequest(String category) {
+        if (categories.size() >= maxCategories)
+            return false;
+        AtomicInteger count = requests.get(category);
+        if (count == null) {
+            if (requests.size() >= MAX_TRACKED_CATEGORIES)
+                return false;
+            count = requests.computeIfAbsent(category, key -> new AtomicInteger());
+        }
+        return count.incrementAndGet() >= minRequests;
+    }
+
+    /**
+     * Loads the products of a category. The changes published meanwhile wait and are applied on top of the
+     * loaded state.
+     */
+    private synchronized NavigableSet<Entry> load(String category) {
+        NavigableSet<Entry> entries = categories.get(category);
+        if (entries != null)
+            return entries;
+
+        entries = new ConcurrentSkipListSet<>();
+        for (Object[] row : productRepository.findProductPricesByCategory(category))
+            entries.add(new Entry((BigDecimal)row[1], (Integer)row[0]));
+        categories.put(category, entries);
+        requests.remove(category);
+        return entries;
+    }
+
+    private void add(Product product) {
+        NavigableSet<Entry> entries = entries(product);
+        if (entries != null)
+            entries.add(new Entry(product.getProductPrice(), product.getProductId()));
+    }
+
+    private void remove(Product product) {
+        NavigableSet<Entry> entries = entries(product);
+        if (entries != null)
+            entries.remove(new Entry(product.getProductPrice(), product.getProductId()));
+    }
+
+    /**
+     * Finds the entries of the category of a product
+     * @return the entries; null when the product has no price or its category is not indexed
+     */
+    private NavigableSet<Entry> entries(Product product) {
+        if (product == null || product.getProductCategory() == null || product.getProductPrice() == null)
+            return null;
+        return categories.get(product.getProductCategory());
+    }
+
+    /**
+     * Price of one product, ordered by price and then by id
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        private final BigDecimal price;
+        private final int productId;
+
+        private Entry(BigDecimal price, int productId) {
+            this.price = price;
+            this.productId = productId;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byPrice = price.compareTo(other.price);
+            return byPrice != 0 ? byPrice : Integer.compare(productId, other.productId);
+        }
+    }
+}
@@ -2,26 +2,92 @@ package com.accenture.repository;
 
 import com.accenture.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * Repository class for products
  */
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, ProductRepositoryCustom {
 
     /**
-     * Finds all products of one category
+     * Finds all products of one category. The result is kept in the query cache when it is enabled.
      * @param productCategory category of the products
      * @return a list of products with the provided category
      */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = Product.QUERY_CACHE_REGION)})
     List<Product> findAllByProductCategory(@Param("productCategory") String productCategory);
 
     /**
-     * Finds all product of one color
+     * Finds all product of one color. The result is kept in the query cache when it is enabled.
      * @param productColor color of the products
      * @return a list of products with the provided color
      */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = Product.QUERY_CACHE_REGION)})
     List<Product> findAllByProductColor(@Param("productColor") String productColor);
+
+    /**
+     * Finds all products whose id is in the provided collection
+     * @param productIds ids of the products
+     * @return a list with the existing products among the provided ids
+     */
+    List<Product> findAllByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    /**
+     * Counts the products of every category with a single projection query, without loading the products
+     * @return a list of [category name, number of products] pairs
+     */
+    @Query("select p.productCategory, count(p) from Product p where p.productCategory is not null "
+            + "group by p.productCategory")
+    List<Object[]> countProductsByCategory();
+
+    /**
+     * Reads the products whose id is greater than the provided one through a database cursor, fetching a fixed
+     * number of rows at a time. The stream must be consumed and closed inside a transaction.
+     * @param productId the id after which the products are read
+     * @return a stream of the products in id order
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select p from Product p where p.productId > :productId order by p.productId")
+    Stream<Product> streamAllByProductIdGreaterThan(@Param("productId") Integer productId);
+
+    /**
+     * Reads the id, category, color and price of every product through a database cursor, without loading the
+     * products. The stream must be consumed and closed inside a transaction.
+     * @return a stream of [id, category, color, price] rows
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.productId, p.productCategory, p.productColor, p.productPrice from Product p")
+    Stream<Object[]> streamProductFacets();
+
+    /**
+     * Reads the id and price of the priced products of one category, without loading the products
+     * @param productCategory category of the products
+     * @return a list of [id, price] rows
+     */
+    @Query("select p.productId, p.productPrice from Product p "
+            + "where p.productCategory = :productCategory and p.productPrice is not null")
+    List<Object[]> findProductPricesByCategory(@Param("productCategory") String productCategory);
+
+    /**
+     * Reads the id and name of every product through a database cursor, without loading the products.
+     * The stream must be consumed and closed inside a transaction.
+     * @return a stream of [id, name] rows
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.productId, p.productName from Product p")
+    Stream<Object[]> streamProductNames();
 }
\ No newline at end of file
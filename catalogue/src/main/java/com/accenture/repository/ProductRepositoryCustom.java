@@ -0,0 +1,41 @@
+package com.accenture.repository;
+
+import com.accenture.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Product queries which cannot be derived from the method names
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Finds one page of products after a keyset cursor. The products are read with a range condition on the
+     * sorted columns instead of an offset, so every page costs the same whatever its position in the listing.
+     * Products without a value in the sorted property are listed after all the others, ordered by id.
+     * @param productCategory category of the products; any category when null
+     * @param productColor color of the products; any color when null
+     * @param sort the sort order of the listing
+     * @param afterValue sorted value of the last product of the previous page; null for the first page
+     *                   or when that product has no value in the sorted property
+     * @param afterId id of the last product of the previous page; null for the first page
+     * @param limit maximum number of products to return
+     * @return the products following the cursor, in the requested order
+     */
+    List<Product> findPage(String productCategory, String productColor, ProductSort sort,
+                           Object afterValue, Integer afterId, int limit);
+
+    /**
+     * Finds the products within a price range, ordered by price and then by id. The range condition and the
+     * order match the price indexes, so only the returned rows are read. Products without a price are not listed.
+     * @param productCategory category of the products; any category when null
+     * @param minPrice lowest price, inclusive; no lower bound when null
+     * @param maxPrice highest price, inclusive; no upper bound when null
+     * @param descending true to start from the most expensive products; false to start from the cheapest ones
+     * @param limit maximum number of products to return
+     * @return the products within the range, in price order
+     */
+    List<Product> findByPriceRange(String productCategory, BigDecimal minPrice, BigDecimal maxPrice,
+                                   boolean descending, int limit);
+}
\ No newline at end of file
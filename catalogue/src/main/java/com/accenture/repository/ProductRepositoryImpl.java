@@ -0,0 +1,107 @@
+package com.accenture.repository;
+
+import com.accenture.entity.Product;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of the product queries built at runtime
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> findPage(String productCategory, String productColor, ProductSort sort,
+                                  Object afterValue, Integer afterId, int limit) {
+
+        if (sort == ProductSort.ID)
+            return findPage(productCategory, productColor, null, "p.productId", null, afterId, limit);
+
+        // The products with a value come first, read by the index of the sorted property. The products
+        // without it follow in id order, so they are read once the cursor has gone past the others.
+        String property = "p." + sort.getProperty();
+        List<Product> products = new ArrayList<>();
+        if (afterId == null || afterValue != null)
+            products.addAll(findPage(productCategory, productColor, property + " is not null", property,
+                    afterValue, afterId, limit));
+        if (products.size() < limit)
+            products.addAll(findPage(productCategory, productColor, property + " is null", "p.productId", null,
+                    afterValue == null ? afterId : null, limit - products.size()));
+        return products;
+    }
+
+    private List<Product> findPage(String productCategory, String productColor, String condition, String property,
+                                   Object afterValue, Integer afterId, int limit) {
+
+        boolean byId = property.equals("p.productId");
+        List<String> conditions = new ArrayList<>();
+        if (productCategory != null)
+            conditions.add("p.productCategory = :productCategory");
+        if (productColor != null)
+            conditions.add("p.productColor = :productColor");
+        if (condition != null)
+            conditions.add(condition);
+
+        if (afterId != null) {
+            if (byId)
+                conditions.add("p.productId > :afterId");
+            else
+                conditions.add("(" + property + " > :afterValue or ("
+                        + property + " = :afterValue and p.productId > :afterId))");
+        }
+
+        StringBuilder jpql = new StringBuilder("select p from Product p");
+        if (!conditions.isEmpty())
+            jpql.append(" where ").append(String.join(" and ", conditions));
+        jpql.append(" order by ");
+        if (!byId)
+            jpql.append(property).append(", ");
+        jpql.append("p.productId");
+
+        TypedQuery<Product> query = entityManager.createQuery(jpql.toString(), Product.class);
+        if (productCategory != null)
+            query.setParameter("productCategory", productCategory);
+        if (productColor != null)
+            query.setParameter("productColor", productColor);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (!byId)
+                query.setParameter("afterValue", afterValue);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Product> findByPriceRange(String productCategory, BigDecimal minPrice, BigDecimal maxPrice,
+                                          boolean descending, int limit) {
+
+        List<String> conditions = new ArrayList<>();
+        conditions.add("p.productPrice is not null");
+        if (productCategory != null)
+            conditions.add("p.productCategory = :productCategory");
+        if (minPrice != null)
+            conditions.add("p.productPrice >= :minPrice");
+        if (maxPrice != null)
+            conditions.add("p.productPrice <= :maxPrice");
+
+        String direction = descending ? " desc" : "";
+        String jpql = "select p from Product p where " + String.join(" and ", conditions)
+                + " order by p.productPrice" + direction + ", p.productId" + direction;
+
+        TypedQuery<Product> query = entityManager.createQuery(jpql, Product.class);
+        if (productCategory != null)
+            query.setParameter("productCategory", productCategory);
+        if (minPrice != null)
+            query.setParameter("minPrice", minPrice);
+        if (maxPrice != null)
+            query.setParameter("maxPrice", maxPrice);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
\ No newline at end of file
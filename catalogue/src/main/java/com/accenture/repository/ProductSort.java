@@ -0,0 +1,77 @@
+package com.accenture.repository;
+
+import com.accenture.entity.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Sort orders supported by the paged product listings. Every order is completed with the product id, so the
+ * position of a product in the listing is unique and can be used as a keyset cursor.
+ */
+public enum ProductSort {
+
+    ID("productId"),
+    NAME("productName"),
+    PRICE("productPrice");
+
+    private final String property;
+
+    ProductSort(String property) {
+        this.property = property;
+    }
+
+    /**
+     * Gets the product property used to sort
+     * @return the name of the sorted property
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Gets the sorted value of a product
+     * @param product the product to be read
+     * @return the value of the sorted property; the id when sorting by id
+     */
+    public Object valueOf(Product product) {
+        switch (this) {
+            case NAME:
+                return product.getProductName();
+            case PRICE:
+                return product.getProductPrice();
+            default:
+                return product.getProductId();
+        }
+    }
+
+    /**
+     * Parses a sorted value written in a cursor
+     * @param value the value as text
+     * @return the value with the type of the sorted property
+     */
+    public Object parseValue(String value) {
+        switch (this) {
+            case NAME:
+                return value;
+            case PRICE:
+                return new BigDecimal(value);
+            default:
+                return Integer.valueOf(value);
+        }
+    }
+
+    /**
+     * Finds the sort order with the provided name, ignoring case
+     * @param name the name of the sort order; id when null
+     * @return the sort order
+     * @throws IllegalArgumentException when there is no sort order with that name
+     */
+    public static ProductSort fromName(String name) {
+        if (name == null)
+            return ID;
+        for (ProductSort sort : values())
+            if (sort.name().equalsIgnoreCase(name))
+                return sort;
+        throw new IllegalArgumentException("Unknown sort order: " + name + ". Use id, name or price.");
+    }
+}
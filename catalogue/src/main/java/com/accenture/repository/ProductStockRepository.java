@@ -0,0 +1,10 @@
+package com.accenture.repository;
+
+import com.accenture.entity.ProductStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository class for the product stock
+ */
+public interface ProductStockRepository extends JpaRepository<ProductStock, Integer> {
+}
@@ -0,0 +1,245 @@
+package com.accenture.snapshot;
+
+import com.accenture.entity.Product;
+import com.accenture.event.CatalogueVersion;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, already serialized copy of the product listing and of the listing of every category
+ */
+@Component
+public class CatalogueSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueSnapshot.class);
+
+    private static final Listing EMPTY = new Listing(new byte[0], null);
+
+    private final ProductRepository productRepository;
+    private final CatalogueVersion catalogueVersion;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean gzip;
+    private final long rebuildDelay;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ScheduledExecutorService builder;
+
+    /**
+     * Default constructor to allow injecting the repository, catalogue version, mapper and snapshot settings.
+     * @param productRepository the repository the snapshots are built from.
+     * @param catalogueVersion the version of the catalogue content.
+     * @param objectMapper the mapper used to serialize the products, the same the web responses use.
+     * @param enabled whether the snapshots are built and served at all.
+     * @param gzip whether every listing is also kept gzipped.
+     * @param rebuildDelay milliseconds a rebuild waits after a change, so the following changes join it.
+     */
+    @Autowired
+    public CatalogueSnapshot(ProductRepository productRepository, CatalogueVersion catalogueVersion,
+                             ObjectMapper objectMapper,
+                             @Value("${catalogue.snapshot.enabled:true}") boolean enabled,
+                             @Value("${catalogue.snapshot.gzip:true}") boolean gzip,
+                             @Value("${catalogue.snapshot.rebuild-delay:200}") long rebuildDelay) {
+        this.productRepository = productRepository;
+        this.catalogueVersion = catalogueVersion;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.rebuildDelay = rebuildDelay;
+        this.builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalogue-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the serialized listing of all products
+     * @return the listing; null when there is no snapshot of the current catalogue version
+     */
+    public Listing getAllProducts() {
+        Snapshot snapshot = getCurrent();
+        return snapshot == null ? null : snapshot.allProducts;
+    }
+
+    /**
+     * Gets the serialized listing of the products of one category
+     * @param categoryName the category to be listed
+     * @return the listing, empty when the category has no products; null when there is no snapshot of the
+     * current catalogue version
+     */
+    public Listing getProductsByCategory(String categoryName) {
+        Snapshot snapshot = getCurrent();
+        if (snapshot == null)
+            return null;
+        Listing listing = snapshot.categories.get(categoryName);
+        return listing == null ? EMPTY : listing;
+    }
+
+    /**
+     * Schedules a rebuild after a product change, unless one is already waiting
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        requestRebuild();
+    }
+
+    private Snapshot getCurrent() {
+        if (!enabled)
+            return null;
+        Snapshot snapshot = current.get();
+        // An older snapshot could miss a change the reader has already observed
+        if (snapshot != null && snapshot.version == catalogueVersion.getVersion())
+            return snapshot;
+        requestRebuild();
+        return null;
+    }
+
+    private void requestRebuild() {
+        // The changes arriving before the scheduled rebuild starts are coalesced into it
+        if (enabled && rebuildPending.compareAndSet(false, true))
+            builder.schedule(this::rebuild, rebuildDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds a new snapshot and publishes it. The version is read before the products, so the snapshot holds at
+     * least every change counted by it.
+     */
+    void rebuild() {
+
+        rebuildPending.set(false);
+        long version = catalogueVersion.getVersion();
+        try {
+            long start = System.nanoTime();
+            List<Product> products = productRepository.findAll(new Sort("productId"));
+
+            Map<String, List<Product>> productsByCategory = new HashMap<>();
+            for (Product product : products)
+                if (product.getProductCategory() != null)
+                    productsByCategory.computeIfAbsent(product.getProductCategory(), category -> new ArrayList<>())
+                            .add(product);
+
+            Map<String, Listing> categories = new HashMap<>();
+            for (Map.Entry<String, List<Product>> category : productsByCategory.entrySet())
+                categories.put(category.getKey(), serialize(category.getValue()));
+
+            current.set(new Snapshot(version, serialize(products), Collections.unmodifiableMap(categories)));
+            log.info("Catalogue snapshot of version {} built with {} products in {} ms", version, products.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        catch (RuntimeException e) {
+            log.warn("Catalogue snapshot of version " + version + " could not be built", e);
+            return;
+        }
+
+        // A change counted while building, but published before its rebuild was requested, needs another one
+        if (catalogueVersion.getVersion() != version)
+            requestRebuild();
+    }
+
+    private Listing serialize(List<Product> products) {
+
+        if (products.isEmpty())
+            return EMPTY;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(products);
+            return new Listing(json, gzip ? compress(json) : null);
+        }
+        catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(content);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    @PreDestroy
+    public void stop() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Serialized JSON array of products, also gzipped when enabled
+     */
+    public static final class Listing {
+
+        private final byte[] json;
+        private final byte[] gzipped;
+
+        private Listing(byte[] json, byte[] gzipped) {
+            this.json = json;
+            this.gzipped = gzipped;
+        }
+
+        public boolean isEmpty() {
+            return json.length == 0;
+        }
+
+        /**
+         * Gets the JSON array. The array is shared by every reader and must not be modified.
+         * @return the UTF-8 JSON bytes
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * Gets the gzipped JSON array. The array is shared by every reader and must not be modified.
+         * @return the gzipped bytes; null when compression is disabled
+         */
+        public byte[] getGzipped() {
+            return gzipped;
+        }
+    }
+
+    /**
+     * Listings of one catalogue version
+     */
+    private static final class Snapshot {
+
+        private final long version;
+        private final Listing allProducts;
+        private final Map<String, Listing> categories;
+
+        private Snapshot(long version, Listing allProducts, Map<String, Listing> categories) {
+            this.version = version;
+            this.allProducts = allProducts;
+            this.categories = categories;
+        }
+    }
+}
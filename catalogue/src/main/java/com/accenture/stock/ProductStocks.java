@@ -0,0 +1,345 @@
+package com.accenture.stock;
+
+import com.accenture.dto.StockReservation;
+import com.accenture.entity.ProductStock;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import com.accenture.repository.ProductStockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock of the products, reserved by the checkouts without locking the database.
+ *
+ * The available units of every product are kept in a striped lock-free counter, loaded from the database on the
+ * first use of the product. A reservation takes units from the counter and holds them until it is committed,
+ * released or expires; an expired reservation gives its units back. Only committed reservations and stock
+ * adjustments change the units in stock: their net change per product is accumulated in memory and written to
+ * the database in batches, so a product sold by thousands of checkouts costs one update per flush instead of one
+ * row lock per checkout. The counters are the reference for the products they hold, so the stock of a product
+ * must only be changed through one catalogue instance. Changes accumulated since the last flush are lost if the
+ * instance stops abruptly.
+ */
+@Component
+public class ProductStocks implements PublicMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStocks.class);
+
+    private static final String UPDATE = "update product_stock set stock_quantity = stock_quantity + ? "
+            + "where product_id = ?";
+    private static final int FLUSH_BATCH = 500;
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(ProductStocks::newRandom);
+
+    private final ProductRepository productRepository;
+    private final ProductStockRepository productStockRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+    private final long reservationTimeout;
+
+    private final Map<Integer, StockCounter> counters = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> pendingChanges = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Default constructor to allow injecting the repositories, the JDBC and transaction support and the stock
+     * settings.
+     * @param productRepository the repository used to check that a product exists.
+     * @param productStockRepository the repository the stock is loaded from.
+     * @param jdbcTemplate the template used to write the stock changes.
+     * @param transactionManager the manager of the transaction of every flush.
+     * @param stripes the number of stripes of every counter.
+     * @param reservationTimeout milliseconds a reservation holds its units unless it is committed or released.
+     * @param flushInterval milliseconds between the writes of the stock changes; zero to write them only on
+     *                      shutdown.
+     * @param expiryInterval milliseconds between the searches for expired reservations; zero to search never.
+     */
+    @Autowired
+    public ProductStocks(ProductRepository productRepository, ProductStockRepository productStockRepository,
+                         JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         @Value("${catalogue.stock.stripes:16}") int stripes,
+                         @Value("${catalogue.stock.reservation-timeout:900000}") long reservationTimeout,
+                         @Value("${catalogue.stock.flush-interval:1000}") long flushInterval,
+                         @Value("${catalogue.stock.expiry-interval:1000}") long expiryInterval) {
+        this.productRepository = productRepository;
+        this.productStockRepository = productStockRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stripes = stripes;
+        this.reservationTimeout = reservationTimeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-stock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushInterval > 0)
+            scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        if (expiryInterval > 0)
+            scheduler.scheduleWithFixedDelay(this::expire, expiryInterval, expiryInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts the available units of a product
+     * @param productId the id of the product
+     * @return the units in stock less the reserved ones; null when the product does not exist
+     */
+    public Long getAvailable(Integer productId) {
+        StockCounter counter = counter(productId);
+        return counter == null ? null : counter.get();
+    }
+
+    /**
+     * Adds units to the stock of a product, or removes them when the quantity is negative
+     * @param productId the id of the product
+     * @param quantity the units to be added; negative to remove units
+     * @return true if the stock was changed; false if the product does not exist or there are not as many
+     * available units as the ones to be removed
+     */
+    public boolean addStock(Integer productId, long quantity) {
+
+        StockCounter counter = counter(productId);
+        if (counter == null)
+            return false;
+        if (quantity < 0 && !counter.take(-quantity))
+            return false;
+        if (quantity > 0)
+            counter.add(quantity);
+        change(productId, quantity);
+        return true;
+    }
+
+    /**
+     * Reserves units of a product
+     * @param productId the id of the product
+     * @param quantity the units to be reserved
+     * @return the reservation; null if the product does not exist or there are not enough available units
+     * @throws IllegalArgumentException when the quantity is not positive
+     */
+    public StockReservation reserve(Integer productId, long quantity) {
+
+        if (quantity <= 0)
+            throw new IllegalArgumentException("The quantity to reserve must be positive.");
+
+        StockCounter counter = counter(productId);
+        if (counter == null || !counter.take(quantity)) {
+            rejected.increment();
+            return null;
+        }
+
+        Reservation reservation = new Reservation(newReservationId(), productId, quantity,
+                System.currentTimeMillis() + reservationTimeout);
+        reservations.put(reservation.reservationId, reservation);
+        reserved.increment();
+        return new StockReservation(reservation.reservationId, productId, quantity, reservation.expiresAt);
+    }
+
+    /**
+     * Commits a reservation, taking its units out of the stock
+     * @param reservationId the id of the reservation
+     * @return true if the reservation was committed; false if it does not exist, was already committed or
+     * released, or has expired
+     */
+    public boolean commit(String reservationId) {
+
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null)
+            return false;
+        if (reservation.expiresAt < System.currentTimeMillis()) {
+            giveBack(reservation);
+            expired.increment();
+            return false;
+        }
+        change(reservation.productId, -reservation.quantity);
+        return true;
+    }
+
+    /**
+     * Releases a reservation, making its units available again
+     * @param reservationId the id of the reservation
+     * @return true if the reservation was released; false if it does not exist or was already committed or
+     * released
+     */
+    public boolean release(String reservationId) {
+
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null)
+            return false;
+        giveBack(reservation);
+        return true;
+    }
+
+    /**
+     * Forgets the stock of the removed products
+     * @param event the product change published by the catalogue service
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case DELETED:
+                counters.remove(event.getProductId());
+                pendingChanges.remove(event.getProductId());
+                if (productStockRepository.exists(event.getProductId()))
+                    productStockRepository.delete(event.getProductId());
+                break;
+            case CLEARED:
+                counters.clear();
+                pendingChanges.clear();
+                productStockRepository.deleteAllInBatch();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("catalogue.stock.reservations", reservations.size()),
+                new Metric<>("catalogue.stock.reserved", reserved.sum()),
+                new Metric<>("catalogue.stock.rejected", rejected.sum()),
+                new Metric<>("catalogue.stock.expired", expired.sum()));
+    }
+
+    /**
+     * Writes the net stock change of every product since the last flush in a single batch. Changes which could
+     * not be written are kept for the next flush.
+     */
+    synchronized void flush() {
+
+        List<Map.Entry<Integer, Long>> changes = new ArrayList<>();
+        for (Map.Entry<Integer, AtomicLong> pending : pendingChanges.entrySet()) {
+            long quantity = pending.getValue().getAndSet(0);
+            if (quantity != 0)
+                changes.add(new AbstractMap.SimpleImmutableEntry<>(pending.getKey(), quantity));
+        }
+        if (changes.isEmpty())
+            return;
+
+        try {
+            transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE, changes, FLUSH_BATCH,
+                    (statement, change) -> {
+                        statement.setLong(1, change.getValue());
+                        statement.setInt(2, change.getKey());
+                    }));
+        }
+        catch (RuntimeException e) {
+            log.warn("Stock changes of " + changes.size() + " products could not be written, retrying later", e);
+            for (Map.Entry<Integer, Long> change : changes)
+                change(change.getKey(), change.getValue());
+        }
+    }
+
+    /**
+     * Gives back the units of the expired reservations
+     */
+    void expire() {
+        long now = System.currentTimeMillis();
+        for (Reservation reservation : reservations.values())
+            if (reservation.expiresAt < now && reservations.remove(reservation.reservationId, reservation)) {
+                giveBack(reservation);
+                expired.increment();
+            }
+    }
+
+    /**
+     * Finds the counter of a product, loading it on its first use
+     * @return the counter; null when the product does not exist
+     */
+    private StockCounter counter(Integer productId) {
+        StockCounter counter = counters.get(productId);
+        return counter != null ? counter : counters.computeIfAbsent(productId, this::load);
+    }
+
+    private StockCounter load(Integer productId) {
+        ProductStock stock = productStockRepository.findOne(productId);
+        if (stock == null) {
+            if (productRepository.findOne(productId) == null)
+                return null;
+            stock = productStockRepository.save(new ProductStock(productId, 0));
+        }
+        return new StockCounter(stripes, Math.max(0, stock.getStockQuantity()));
+    }
+
+    private void change(Integer productId, long quantity) {
+        pendingChanges.computeIfAbsent(productId, key -> new AtomicLong()).addAndGet(quantity);
+    }
+
+    private void giveBack(Reservation reservation) {
+        StockCounter counter = counters.get(reservation.productId);
+        if (counter != null)
+            counter.add(reservation.quantity);
+    }
+
+    /**
+     * Creates an id which cannot be guessed, without the lock shared by the default secure random generators
+     */
+    private static String newReservationId() {
+        byte[] id = new byte[16];
+        RANDOM.get().nextBytes(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("SHA1PRNG");
+        }
+        catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Units of one product held until their expiry time
+     */
+    private static final class Reservation {
+
+        private final String reservationId;
+        private final Integer productId;
+        private final long quantity;
+        private final long expiresAt;
+
+        private Reservation(String reservationId, Integer productId, long quantity, long expiresAt) {
+            this.reservationId = reservationId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.accenture.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free count of the available units of one product, split into stripes.
+ *
+ * Every thread starts taking and returning units at its own stripe, so the threads buying the same product
+ * compare-and-swap different cells instead of all retrying on a single one. A take which does not fit in the home
+ * stripe continues with the next ones, and returns what it gathered when the stripes together do not hold enough
+ * units. The count never goes below zero. Close to selling out, a take may fail while the units it needs are being
+ * returned by another failed take; the caller sees the product as sold out, which it nearly is.
+ */
+public class StockCounter {
+
+    /**
+     * Cells between two stripes, so every stripe is on its own cache line
+     */
+    private static final int SPACING = 16;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    /**
+     * Stock counter class constructor
+     * @param stripes the number of stripes the units are split into
+     * @param quantity the available units
+     */
+    public StockCounter(int stripes, long quantity) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("The number of stripes must be positive.");
+        if (quantity < 0)
+            throw new IllegalArgumentException("The quantity cannot be negative.");
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * SPACING);
+        for (int stripe = 0; stripe < stripes; stripe++)
+            cells.set(stripe * SPACING, quantity / stripes + (stripe < quantity % stripes ? 1 : 0));
+    }
+
+    /**
+     * Takes units if they are available
+     * @param quantity the units to be taken
+     * @return true if the units were taken; false if there were not enough available units
+     */
+    public boolean take(long quantity) {
+
+        int home = home();
+        long taken = 0;
+        for (int i = 0; i < stripes && taken < quantity; i++)
+            taken += takeFrom((home + i) % stripes, quantity - taken);
+
+        if (taken == quantity)
+            return true;
+        if (taken > 0)
+            cells.addAndGet(home * SPACING, taken);
+        return false;
+    }
+
+    /**
+     * Returns units to the available ones
+     * @param quantity the units to be added
+     */
+    public void add(long quantity) {
+        cells.addAndGet(home() * SPACING, quantity);
+    }
+
+    /**
+     * Counts the available units. The result is not a snapshot when units are taken or added meanwhile.
+     * @return the available units
+     */
+    public long get() {
+        long quantity = 0;
+        for (int stripe = 0; stripe < stripes; stripe++)
+            quantity += cells.get(stripe * SPACING);
+        return quantity;
+    }
+
+    private long takeFrom(int stripe, long wanted) {
+        int index = stripe * SPACING;
+        while (true) {
+            long available = cells.get(index);
+            if (available <= 0)
+                return 0;
+            long taken = Math.min(available, wanted);
+            if (cells.compareAndSet(index, available, available - taken))
+                return taken;
+        }
+    }
+
+    private int home() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 32) % stripes);
+    }
+}
@@ -0,0 +1,159 @@
+package com.accenture;
+
+import com.accenture.dto.ProductChange;
+import com.accenture.entity.Product;
+import com.accenture.event.CatalogueVersion;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CatalogueControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CatalogueService catalogueService;
+
+	@Autowired
+	private CatalogueVersion catalogueVersion;
+
+	private Product product;
+
+	@Before
+	public void setUp() {
+		product = catalogueService.saveProduct(new Product("Nike Trainers", "trainers", BigDecimal.TEN, "red"));
+	}
+
+	@After
+	public void tearDown() {
+		catalogueService.deleteProduct(product.getProductId());
+	}
+
+	@Test
+	public void answersConflictToAnUpdateOfAnOlderVersion() throws Exception {
+		Product changed = catalogueService.patchProduct(product.getProductId(),
+				new Product(null, null, BigDecimal.ONE, null), null);
+
+		mockMvc.perform(asAdmin(put("/catalogue/products/id=" + product.getProductId()))
+				.content(update(product.getVersion())))
+				.andExpect(status().isConflict());
+		assertThat(catalogueService.retrieveProductById(product.getProductId()).getProductName())
+				.isEqualTo("Nike Trainers");
+
+		long since = catalogueVersion.getVersion();
+		mockMvc.perform(asAdmin(put("/catalogue/products/id=" + product.getProductId()))
+				.content(update(changed.getVersion())))
+				.andExpect(status().isOk());
+
+		Product updated = catalogueService.retrieveProductById(product.getProductId());
+		assertThat(updated.getProductName()).isEqualTo("Adidas Samba");
+		List<ProductChange> changes = catalogueService.retrieveProductChanges(null, since, 10).getChanges();
+		assertThat(changes).hasSize(1);
+		assertThat(changes.get(0).getProduct().getVersion()).isEqualTo(updated.getVersion());
+	}
+
+	@Test
+	public void answersNotFoundToAnUpdateOfADeletedProduct() throws Exception {
+		Product deleted = catalogueService.saveProduct(new Product("Vans Old Skool", "trainers", BigDecimal.ONE, "black"));
+		catalogueService.deleteProduct(deleted.getProductId());
+
+		assertThat(catalogueService.updateProduct(deleted.getProductId(),
+				new Product("Vans Era", "trainers", BigDecimal.ONE, "black"))).isNull();
+		mockMvc.perform(asAdmin(put("/catalogue/products/id=" + deleted.getProductId()))
+				.content(update(null)))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void answersConflictToAPatchOfAnOlderVersion() throws Exception {
+		catalogueService.patchProduct(product.getProductId(), new Product(null, null, BigDecimal.ONE, null), null);
+
+		mockMvc.perform(asAdmin(patch("/catalogue/products/id=" + product.getProductId()))
+				.content("{\"productColor\":\"blue\",\"version\":" + product.getVersion() + "}"))
+				.andExpect(status().isConflict());
+		assertThat(catalogueService.retrieveProductById(product.getProductId()).getProductColor()).isEqualTo("red");
+	}
+
+	@Test
+	public void doesNotTagTheStockWithTheCatalogueVersion() throws Exception {
+		mockMvc.perform(get("/catalogue/products/id=" + product.getProductId()))
+				.andExpect(header().string("ETag", catalogueVersion.getETag()));
+
+		mockMvc.perform(get("/catalogue/stock/id=" + product.getProductId()))
+				.andExpect(header().doesNotExist("ETag"));
+		mockMvc.perform(get("/catalogue/products/search/stats"))
+				.andExpect(header().doesNotExist("ETag"));
+	}
+
+	@Test
+	public void rejectsAnEmptyIdOrTooManyIdsInABatchLookup() throws Exception {
+		mockMvc.perform(get("/catalogue/products/ids=" + product.getProductId()))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/catalogue/products/ids=" + product.getProductId() + ",,1"))
+				.andExpect(status().isBadRequest());
+
+		String ids = IntStream.rangeClosed(1, 501).mapToObj(String::valueOf).collect(Collectors.joining(","));
+		mockMvc.perform(get("/catalogue/products/ids=" + ids))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void tagsTheGzippedListingAsAnotherRepresentation() throws Exception {
+		String eTag = catalogueVersion.getETag();
+		MvcResult gzipped = mockMvc.perform(get("/catalogue/products").header("Accept-Encoding", "gzip")).andReturn();
+		for (int attempt = 0; attempt < 50 && gzipped.getResponse().getHeader("Content-Encoding") == null; attempt++) {
+			Thread.sleep(100);
+			gzipped = mockMvc.perform(get("/catalogue/products").header("Accept-Encoding", "gzip")).andReturn();
+		}
+
+		assertThat(gzipped.getResponse().getHeader("Content-Encoding")).isEqualTo("gzip");
+		assertThat(gzipped.getResponse().getHeader("ETag")).isEqualTo(eTag.replaceAll("\"$", "-gzip\""));
+		assertThat(gzipped.getResponse().getHeaders("Vary")).containsExactly("Accept-Encoding");
+		mockMvc.perform(get("/catalogue/products"))
+				.andExpect(header().string("ETag", eTag))
+				.andExpect(header().string("Vary", "Accept-Encoding"));
+
+		mockMvc.perform(get("/catalogue/products").header("Accept-Encoding", "gzip")
+				.header("If-None-Match", gzipped.getResponse().getHeader("ETag")))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", gzipped.getResponse().getHeader("ETag")))
+				.andExpect(header().string("Vary", "Accept-Encoding"));
+	}
+
+	private static String update(Long version) {
+		return "{\"productName\":\"Adidas Samba\",\"productCategory\":\"trainers\",\"productPrice\":12,"
+				+ "\"productColor\":\"white\",\"version\":" + version + "}";
+	}
+
+	private static MockHttpServletRequestBuilder asAdmin(MockHttpServletRequestBuilder request) {
+		String token = Jwts.builder().setSubject("admin").signWith(SignatureAlgorithm.HS256, "secret").compact();
+		return request.header("Authorization", "Bearer " + token).contentType(MediaType.APPLICATION_JSON);
+	}
+}
@@ -0,0 +1,19 @@
+package com.accenture;
+
+import com.accenture.dictionary.DictionaryIntegrator;
+import com.accenture.dictionary.ProductDictionaries;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Loads only the persistence layer and the product dictionaries, leaving out the beans of CatalogueApplication.
+ * The JPA tests list it in their context configuration together with the beans they test.
+ */
+@Configuration
+@EntityScan("com.accenture.entity")
+@EnableJpaRepositories("com.accenture.repository")
+@Import({ProductDictionaries.class, DictionaryIntegrator.class})
+public class PersistenceTestConfiguration {
+}
@@ -0,0 +1,107 @@
+package com.accenture.cache;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.dictionary.ProductDictionaries;
+import com.accenture.entity.Product;
+import com.accenture.repository.ProductRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SecondLevelCacheTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ProductDictionaries productDictionaries;
+
+	private SecondLevelCache secondLevelCache;
+
+	@Before
+	public void setUp() {
+		secondLevelCache = new SecondLevelCache(entityManagerFactory);
+	}
+
+	@After
+	public void tearDown() {
+		productRepository.deleteAll();
+	}
+
+	@Test
+	public void servesTheRepeatedReadsFromTheCache() {
+		assertThat(secondLevelCache.isEnabled()).isTrue();
+		Product product = productRepository.save(new Product("Nike Trainers", "trainers", BigDecimal.TEN, "red"));
+		long hits = metrics().get("catalogue.cache.product.hits").longValue();
+
+		productRepository.findOne(product.getProductId());
+		productRepository.findOne(product.getProductId());
+
+		assertThat(metrics().get("catalogue.cache.product.hits").longValue()).isEqualTo(hits + 2);
+		assertThat(metrics().get("catalogue.cache.product.hit-ratio").doubleValue()).isPositive();
+	}
+
+	@Test
+	public void invalidatesTheFinderResultsOnWrites() {
+		Product product = productRepository.save(new Product("Nike Trainers", "trainers", BigDecimal.TEN, "red"));
+		assertThat(productRepository.findAllByProductCategory("trainers")).hasSize(1);
+		long hits = metrics().get("catalogue.cache.product-queries.hits").longValue();
+
+		assertThat(productRepository.findAllByProductCategory("trainers")).hasSize(1);
+		assertThat(metrics().get("catalogue.cache.product-queries.hits").longValue()).isEqualTo(hits + 1);
+
+		product.setProductName("Nike Air Trainers");
+		productRepository.save(product);
+		productRepository.save(new Product("Adidas Trainers", "trainers", BigDecimal.ONE, "blue"));
+		assertThat(productRepository.findAllByProductCategory("trainers")).extracting(Product::getProductName)
+				.containsExactlyInAnyOrder("Nike Air Trainers", "Adidas Trainers");
+		assertThat(productRepository.findOne(product.getProductId()).getProductName()).isEqualTo("Nike Air Trainers");
+	}
+
+	@Test
+	public void evictsTheFinderResultsAfterWritesBehindHibernate() {
+		assertThat(productRepository.findAllByProductColor("orange")).isEmpty();
+		productDictionaries.getCategories().intern("shirts");
+		productDictionaries.getColors().intern("orange");
+		jdbcTemplate.update("insert into product (product_id, product_name, product_category, product_price, "
+				+ "product_color, version) values (1000000, 'Puma shirt', ?, 5, ?, 0)",
+				productDictionaries.getCategories().findId("shirts"), productDictionaries.getColors().findId("orange"));
+		assertThat(productRepository.findAllByProductColor("orange")).isEmpty();
+
+		secondLevelCache.evictQueries();
+		assertThat(productRepository.findAllByProductColor("orange")).hasSize(1);
+	}
+
+	private Map<String, Number> metrics() {
+		Map<String, Number> metrics = new HashMap<>();
+		for (Metric<?> metric : secondLevelCache.metrics())
+			metrics.put(metric.getName(), metric.getValue());
+		return metrics;
+	}
+}
@@ -0,0 +1,186 @@
+package com.accenture.dictionary;
+
+import org.h2.store.fs.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size and filter latency of a synthetic catalogue of 1M products in H2, with the categories and colors stored
+ * as strings, as before the dictionaries, and as dictionary ids. The setup prints the size of the stored rows and
+ * indexes; the benchmarks run the equality filters of the catalogue. Run it from the test classpath with the main
+ * method; it is not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class DictionaryEncodingBenchmark {
+
+	private static final String[] CATEGORIES = {"trainers", "running shoes", "football boots", "sandals", "shirts",
+			"t-shirts", "polo shirts", "shorts", "jackets", "rain jackets", "hoodies", "sweatshirts", "tracksuits",
+			"leggings", "socks", "caps", "beanies", "gloves", "backpacks", "sports bags", "water bottles",
+			"yoga mats", "swimwear", "goggles", "tennis rackets", "tennis balls", "footballs", "basketballs",
+			"shin guards", "goalkeeper gloves", "cycling jerseys", "cycling shorts"};
+	private static final String[] COLORS = {"black", "white", "red", "blue", "green", "orange", "grey", "navy",
+			"yellow", "pink", "purple", "brown", "beige", "turquoise", "burgundy", "olive"};
+
+	private static final String DATABASE = System.getProperty("java.io.tmpdir") + "/catalogue-dictionary-";
+
+	@Param({"strings", "ids"})
+	private String encoding;
+
+	@Param({"1000000"})
+	private int products;
+
+	private Connection connection;
+	private PreparedStatement countByCategory;
+	private PreparedStatement countByCategoryAndColor;
+	private PreparedStatement firstPageByCategory;
+	private final Map<String, Integer> ids = new HashMap<>();
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		boolean dictionary = "ids".equals(encoding);
+		for (String name : CATEGORIES)
+			intern(name);
+		for (String name : COLORS)
+			intern(name);
+
+		FileUtils.delete(DATABASE + encoding + ".mv.db");
+		connection = DriverManager.getConnection("jdbc:h2:" + DATABASE + encoding);
+		String attributeType = dictionary ? "integer" : "varchar(255)";
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table product (product_id integer not null, product_category "
+					+ attributeType + ", product_color " + attributeType + ", product_name varchar(255), "
+					+ "product_price decimal(19,2), version bigint, primary key (product_id))");
+			statement.execute("create index idx_product_category on product (product_category, product_id)");
+			statement.execute("create index idx_product_category_price on product "
+					+ "(product_category, product_price, product_id)");
+			statement.execute("create index idx_product_color on product (product_color, product_id)");
+		}
+
+		Random random = new Random(42);
+		connection.setAutoCommit(false);
+		try (PreparedStatement insert = connection.prepareStatement("insert into product values (?, ?, ?, ?, ?, 0)")) {
+			for (int productId = 1; productId <= products; productId++) {
+				String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+				String color = COLORS[random.nextInt(COLORS.length)];
+				insert.setInt(1, productId);
+				setAttribute(insert, 2, category);
+				setAttribute(insert, 3, color);
+				insert.setString(4, "Product " + productId);
+				insert.setBigDecimal(5, BigDecimal.valueOf(random.nextInt(20000), 2));
+				insert.addBatch();
+				if (productId % 1000 == 0)
+					insert.executeBatch();
+			}
+			insert.executeBatch();
+		}
+		connection.commit();
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("checkpoint sync");
+		}
+
+		System.out.println();
+		System.out.println(products + " products with " + encoding + ": "
+				+ FileUtils.size(DATABASE + encoding + ".mv.db") / (1024 * 1024) + " MB of rows and indexes");
+
+		countByCategory = connection.prepareStatement("select count(*) from product where product_category = ?");
+		countByCategoryAndColor = connection.prepareStatement(
+				"select count(*) from product where product_category = ? and product_color = ?");
+		firstPageByCategory = connection.prepareStatement("select product_id, product_name, product_category, "
+				+ "product_price, product_color from product where product_category = ? "
+				+ "order by product_price, product_id limit 50");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("drop all objects");
+		}
+		connection.close();
+		FileUtils.delete(DATABASE + encoding + ".mv.db");
+	}
+
+	@Benchmark
+	public int countByCategory() throws SQLException {
+		setAttribute(countByCategory, 1, nextCategory());
+		return count(countByCategory);
+	}
+
+	@Benchmark
+	public int countByCategoryAndColor() throws SQLException {
+		setAttribute(countByCategoryAndColor, 1, nextCategory());
+		setAttribute(countByCategoryAndColor, 2, COLORS[next % COLORS.length]);
+		return count(countByCategoryAndColor);
+	}
+
+	@Benchmark
+	public int firstPageByCategory() throws SQLException {
+		setAttribute(firstPageByCategory, 1, nextCategory());
+		int rows = 0;
+		try (ResultSet resultSet = firstPageByCategory.executeQuery()) {
+			while (resultSet.next())
+				rows++;
+		}
+		return rows;
+	}
+
+	private String nextCategory() {
+		next++;
+		return CATEGORIES[next % CATEGORIES.length];
+	}
+
+	/**
+	 * Binds a category or a color as the application does: the string itself, or its id looked up in memory
+	 */
+	private void setAttribute(PreparedStatement statement, int index, String name) throws SQLException {
+		if ("ids".equals(encoding))
+			statement.setInt(index, ids.get(name));
+		else
+			statement.setString(index, name);
+	}
+
+	private void intern(String name) {
+		ids.putIfAbsent(name, ids.size() + 1);
+	}
+
+	private static int count(PreparedStatement statement) throws SQLException {
+		try (ResultSet resultSet = statement.executeQuery()) {
+			resultSet.next();
+			return resultSet.getInt(1);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(DictionaryEncodingBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,102 @@
+package com.accenture.dictionary;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import com.accenture.repository.ProductRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductDictionariesTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductDictionaries productDictionaries;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@After
+	public void tearDown() {
+		productRepository.deleteAll();
+	}
+
+	@Test
+	public void storesTheIdsAndSharesTheNames() {
+		productRepository.save(Arrays.asList(
+				new Product("Nike Trainers", new String("trainers"), BigDecimal.TEN, "red"),
+				new Product("Adidas Trainers", new String("trainers"), BigDecimal.ONE, "blue")));
+
+		Integer trainersId = productDictionaries.getCategories().findId("trainers");
+		assertThat(jdbcTemplate.queryForList("select product_category from product", Integer.class))
+				.containsOnly(trainersId);
+
+		List<Product> products = productRepository.findAllByProductCategory("trainers");
+		assertThat(products).extracting(Product::getProductColor).containsExactlyInAnyOrder("red", "blue");
+		assertThat(products.get(0).getProductCategory()).isSameAs(products.get(1).getProductCategory());
+	}
+
+	@Test
+	public void queriesOfUnknownValuesDoNotAddThem() {
+		productRepository.save(new Product("Puma shirt", "shirts", BigDecimal.ONE, "orange"));
+		int colors = productDictionaries.getColors().size();
+
+		assertThat(productRepository.findAllByProductColor("purple")).isEmpty();
+		assertThat(productDictionaries.getColors().findId("purple")).isNull();
+		assertThat(productDictionaries.getColors().size()).isEqualTo(colors);
+	}
+
+	@Test
+	public void filtersByValuesAddedByAnotherInstance() {
+		AttributeDictionary other = new AttributeDictionary("category", "category_id", "category_name",
+				jdbcTemplate, transactionManager);
+		productDictionaries.getCategories().size();
+		Integer hoodiesId = other.findId(other.intern("hoodies"));
+		Integer orangeId = productDictionaries.getColors().findId(productDictionaries.getColors().intern("orange"));
+		jdbcTemplate.update("insert into product (product_id, product_name, product_category, product_price, "
+				+ "product_color, version) values (?, ?, ?, ?, ?, 0)", 900001, "Puma hoodie", hoodiesId,
+				BigDecimal.TEN, orangeId);
+
+		assertThat(productRepository.findAllByProductCategory("hoodies"))
+				.extracting(Product::getProductName).containsExactly("Puma hoodie");
+	}
+
+	@Test
+	public void keepsTheIdsAcrossInstances() {
+		Integer shirtsId = productDictionaries.getCategories().findId(
+				productDictionaries.getCategories().intern("shirts"));
+
+		AttributeDictionary reloaded = new AttributeDictionary("category", "category_id", "category_name",
+				jdbcTemplate, transactionManager);
+		assertThat(reloaded.findId("shirts")).isEqualTo(shirtsId);
+		assertThat(reloaded.findName(shirtsId)).isEqualTo("shirts");
+		assertThat(reloaded.intern("shirts")).isEqualTo("shirts");
+		assertThat(reloaded.findId("shirts")).isEqualTo(shirtsId);
+		String polos = reloaded.intern("polos");
+		assertThat(productDictionaries.getCategories().findId("polos")).isEqualTo(reloaded.findId("polos"));
+		assertThat(productDictionaries.getCategories().intern("polos")).isEqualTo(polos);
+	}
+}
@@ -0,0 +1,157 @@
+package com.accenture.event;
+
+import com.accenture.dto.ProductChange;
+import com.accenture.dto.ProductChanges;
+import com.accenture.entity.Product;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeFeedTests {
+
+	private final CatalogueVersion catalogueVersion = new CatalogueVersion();
+	private final ChangeFeed changeFeed = new ChangeFeed(catalogueVersion, 3, 60000, 0, 1);
+
+	@After
+	public void tearDown() {
+		changeFeed.stop();
+	}
+
+	@Test
+	public void numbersTheChangesWithTheCatalogueVersion() {
+		publish(ProductChangeEvent.Type.CREATED, 1);
+		publish(ProductChangeEvent.Type.UPDATED, 1);
+		publish(ProductChangeEvent.Type.DELETED, 2);
+
+		ProductChanges changes = changeFeed.getChanges(null, 0, 10);
+		assertThat(changes.getChanges()).extracting(ProductChange::getSequence).containsExactly(1L, 2L, 3L);
+		assertThat(changes.getChanges()).extracting(ProductChange::getType)
+				.containsExactly("created", "updated", "deleted");
+		assertThat(changes.getChanges().get(1).getProduct().getProductName()).isEqualTo("Product 1");
+		assertThat(changes.getChanges().get(1).getProduct().getVersion()).isEqualTo(7L);
+		assertThat(changes.getChanges().get(2).getProduct()).isNull();
+		assertThat(changes.getVersion()).isEqualTo(catalogueVersion.getVersion());
+		assertThat(changes.isMore()).isFalse();
+	}
+
+	@Test
+	public void returnsTheChangesAfterTheVersionInBatches() {
+		publish(ProductChangeEvent.Type.CREATED, 1);
+		publish(ProductChangeEvent.Type.CREATED, 2);
+		publish(ProductChangeEvent.Type.CREATED, 3);
+
+		ProductChanges first = changeFeed.getChanges(catalogueVersion.getInstance(), 1, 1);
+		assertThat(first.getChanges()).extracting(ProductChange::getProductId).containsExactly(2);
+		assertThat(first.isMore()).isTrue();
+
+		ProductChanges rest = changeFeed.getChanges(null, first.getVersion(), 10);
+		assertThat(rest.getChanges()).extracting(ProductChange::getProductId).containsExactly(3);
+		assertThat(changeFeed.getChanges(null, rest.getVersion(), 10).getChanges()).isEmpty();
+	}
+
+	@Test
+	public void cannotResumeFromForgottenVersionsOrOtherInstances() {
+		for (int productId = 1; productId <= 5; productId++)
+			publish(ProductChangeEvent.Type.CREATED, productId);
+
+		assertThat(changeFeed.getChanges(null, 1, 10)).isNull();
+		assertThat(changeFeed.getChanges(null, 2, 10).getChanges()).hasSize(3);
+		assertThat(changeFeed.getChanges(null, 6, 10)).isNull();
+		assertThat(changeFeed.getChanges("other", 4, 10)).isNull();
+	}
+
+	@Test
+	public void numbersTheChangesOfAProductInTheOrderOfTheirWrites() throws Exception {
+		List<String> writes = new CopyOnWriteArrayList<>();
+		CountDownLatch firstWritten = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> catalogueVersion.publishInOrder(1, () -> {
+			writes.add("first");
+			firstWritten.countDown();
+			await(release);
+			publish(ProductChangeEvent.Type.UPDATED, 1);
+			return null;
+		}));
+		firstWritten.await();
+		CompletableFuture<Void> second = CompletableFuture.runAsync(() -> catalogueVersion.publishInOrder(1, () -> {
+			writes.add("second");
+			publish(ProductChangeEvent.Type.DELETED, 1);
+			return null;
+		}));
+		Thread.sleep(100);
+		assertThat(writes).containsExactly("first");
+
+		release.countDown();
+		CompletableFuture.allOf(first, second).get();
+		assertThat(changeFeed.getChanges(null, 0, 10).getChanges()).extracting(ProductChange::getType)
+				.containsExactly("updated", "deleted");
+	}
+
+	@Test
+	public void writesTheChangesOfOtherProductsMeanwhile() throws Exception {
+		CountDownLatch firstWritten = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> catalogueVersion.publishInOrder(1, () -> {
+			firstWritten.countDown();
+			await(release);
+			publish(ProductChangeEvent.Type.UPDATED, 1);
+			return null;
+		}));
+		firstWritten.await();
+		catalogueVersion.publishInOrder(2, () -> {
+			publish(ProductChangeEvent.Type.UPDATED, 2);
+			return null;
+		});
+		catalogueVersion.publishInOrder(null, () -> {
+			publish(ProductChangeEvent.Type.CREATED, 3);
+			return null;
+		});
+		CompletableFuture<Void> clear = CompletableFuture.runAsync(() -> catalogueVersion.publishAlone(() -> {
+			publish(ProductChangeEvent.Type.CLEARED, 0);
+			return null;
+		}));
+		Thread.sleep(100);
+		assertThat(clear.isDone()).isFalse();
+
+		release.countDown();
+		CompletableFuture.allOf(first, clear).get();
+		assertThat(changeFeed.getChanges(null, 1, 10).getChanges()).extracting(ProductChange::getProductId)
+				.containsExactly(3, 1, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsAnEmptyHistory() {
+		new ChangeFeed(catalogueVersion, 0, 60000, 0, 1);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void limitsTheOpenStreams() {
+		changeFeed.subscribe(null);
+		changeFeed.subscribe(catalogueVersion.getInstance() + "-0");
+	}
+
+	private void publish(ProductChangeEvent.Type type, int productId) {
+		Product product = new Product("Product " + productId, "shirts", BigDecimal.TEN, "red");
+		product.setProductId(productId);
+		product.setVersion(7L);
+		changeFeed.onProductChange(new ProductChangeEvent(this, type, productId, product));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.accenture.export;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import com.accenture.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = {PersistenceTestConfiguration.class, ProductExporter.class,
+		ProductExporterTests.ExporterConfiguration.class})
+@TestPropertySource(properties = "catalogue.export.flush-interval=2")
+public class ProductExporterTests {
+
+	/**
+	 * Provides the ObjectMapper of the tested beans
+	 */
+	@Configuration
+	static class ExporterConfiguration {
+
+		@Bean
+		public ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+	}
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductExporter productExporter;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	public void writesOneProductPerLineInIdOrder() throws Exception {
+		Product first = save("Nike Trainers");
+		Product second = save("Puma shirt");
+
+		String[] lines = export(null).split("\n");
+
+		assertThat(lines).hasSize(2);
+		assertThat(objectMapper.readValue(lines[0], Product.class).getProductId()).isEqualTo(first.getProductId());
+		assertThat(objectMapper.readValue(lines[1], Product.class).getProductName()).isEqualTo(second.getProductName());
+	}
+
+	@Test
+	public void resumesAfterTheLastExportedProduct() throws Exception {
+		Product first = save("Nike Trainers");
+		Product second = save("Puma shirt");
+
+		String[] lines = export(first.getProductId()).split("\n");
+
+		assertThat(lines).hasSize(1);
+		assertThat(objectMapper.readValue(lines[0], Product.class).getProductId()).isEqualTo(second.getProductId());
+		assertThat(export(second.getProductId())).isEmpty();
+	}
+
+	@Test
+	public void startsEveryLineWithAProductAndFlushesOnlyEveryInterval() {
+		for (int i = 0; i < 5; i++)
+			save("Nike Trainers " + i);
+		CountingOutputStream outputStream = new CountingOutputStream();
+
+		assertThat(productExporter.export(null, outputStream)).isEqualTo(5);
+
+		String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertThat(lines).hasSize(5);
+		for (String line : lines)
+			assertThat(line).startsWith("{");
+		assertThat(outputStream.flushes).isEqualTo(3);
+	}
+
+	private String export(Integer afterId) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		productExporter.export(afterId, outputStream);
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private Product save(String name) {
+		return productRepository.saveAndFlush(new Product(name, "shirts", BigDecimal.TEN, "orange"));
+	}
+
+	/**
+	 * Output stream counting the flushes of the export
+	 */
+	private static class CountingOutputStream extends ByteArrayOutputStream {
+
+		private int flushes;
+
+		@Override
+		public void flush() {
+			flushes++;
+		}
+	}
+}
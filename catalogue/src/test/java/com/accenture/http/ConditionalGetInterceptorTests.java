@@ -0,0 +1,68 @@
+package com.accenture.http;
+
+import com.accenture.event.CatalogueVersion;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConditionalGetInterceptorTests {
+
+	private final CatalogueVersion catalogueVersion = new CatalogueVersion();
+	private final ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(catalogueVersion,
+			new String[] {"/catalogue/categories/**:300", "/catalogue/**:0"});
+
+	@Test
+	public void tagsTheReadsWithTheCatalogueVersion() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThat(interceptor.preHandle(get("/catalogue/categories/counts", null), response, null)).isTrue();
+		assertThat(response.getHeader("ETag")).isEqualTo(catalogueVersion.getETag());
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("max-age=300");
+
+		response = new MockHttpServletResponse();
+		interceptor.preHandle(get("/catalogue/products", null), response, null);
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("max-age=0");
+	}
+
+	@Test
+	public void answersCurrentTagsWithNotModifiedUntilTheCatalogueChanges() {
+		String eTag = catalogueVersion.getETag();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThat(interceptor.preHandle(get("/catalogue/products", "\"other\", W/" + eTag), response, null)).isFalse();
+		assertThat(response.getStatus()).isEqualTo(304);
+
+		catalogueVersion.increment();
+		response = new MockHttpServletResponse();
+		assertThat(interceptor.preHandle(get("/catalogue/products", eTag), response, null)).isTrue();
+		assertThat(response.getHeader("ETag")).isNotEqualTo(eTag);
+	}
+
+	@Test
+	public void letsTheControllerAnswerAnyTag() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThat(interceptor.preHandle(get("/catalogue/products/id=999", "*"), response, null)).isTrue();
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader("ETag")).isEqualTo(catalogueVersion.getETag());
+	}
+
+	@Test
+	public void leavesTheWritesAlone() {
+		MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/catalogue/products/id=1");
+		request.addHeader("If-None-Match", "*");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThat(interceptor.preHandle(request, response, null)).isTrue();
+		assertThat(response.getHeader("ETag")).isNull();
+	}
+
+	private static MockHttpServletRequest get(String path, String ifNoneMatch) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		if (ifNoneMatch != null)
+			request.addHeader("If-None-Match", ifNoneMatch);
+		return request;
+	}
+}
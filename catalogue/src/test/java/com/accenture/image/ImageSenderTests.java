@@ -0,0 +1,119 @@
+package com.accenture.image;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageSenderTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ImageSender imageSender = new ImageSender(60);
+	private ProductImages.ImageFile image;
+	private byte[] content;
+
+	@Before
+	public void setUp() throws IOException {
+		ProductImages productImages = new ProductImages(folder.getRoot().getPath(), new int[] {100}, 1024 * 1024,
+				1000 * 1000, 0.85f, 0);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB), "png", output);
+		image = productImages.store(1, new ByteArrayInputStream(output.toByteArray()));
+		content = Files.readAllBytes(image.getPath());
+	}
+
+	@Test
+	public void sendsTheWholeFileWithItsEntityTag() throws IOException {
+		MockHttpServletResponse response = send(get(), null);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentType()).isEqualTo("image/png");
+		assertThat(response.getContentLength()).isEqualTo(content.length);
+		assertThat(response.getHeader("ETag")).isEqualTo(image.getETag());
+		assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("max-age=60");
+		assertThat(response.getContentAsByteArray()).isEqualTo(content);
+	}
+
+	@Test
+	public void answersTheCurrentTagWithNotModified() throws IOException {
+		MockHttpServletRequest request = get();
+		request.addHeader("If-None-Match", "\"other\", " + image.getETag());
+
+		MockHttpServletResponse response = send(request, null);
+		assertThat(response.getStatus()).isEqualTo(304);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	public void sendsASingleRange() throws IOException {
+		MockHttpServletResponse response = send(get(), "bytes=10-19");
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 10-19/" + content.length);
+		assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+
+		response = send(get(), "bytes=-5");
+		assertThat(response.getContentAsByteArray())
+				.isEqualTo(Arrays.copyOfRange(content, content.length - 5, content.length));
+
+		response = send(get(), "bytes=" + (content.length - 3) + "-");
+		assertThat(response.getContentLength()).isEqualTo(3);
+	}
+
+	@Test
+	public void sendsTheWholeFileForSeveralRangesOrAnotherVersion() throws IOException {
+		assertThat(send(get(), "bytes=0-1,5-6").getStatus()).isEqualTo(200);
+
+		MockHttpServletRequest request = get();
+		request.addHeader("If-Range", "\"another version\"");
+		MockHttpServletResponse response = send(request, "bytes=0-9");
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsByteArray()).isEqualTo(content);
+	}
+
+	@Test
+	public void rejectsRangesAfterTheEndOfTheFile() throws IOException {
+		MockHttpServletResponse response = send(get(), "bytes=" + content.length + "-");
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */" + content.length);
+	}
+
+	@Test
+	public void handsTheFileRegionToTheContainerWhenItSupportsSendfile() throws IOException {
+		MockHttpServletRequest request = get();
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+		MockHttpServletResponse response = send(request, "bytes=10-19");
+		assertThat(response.getContentLength()).isEqualTo(10);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(image.getPath().toString());
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(10L);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(20L);
+	}
+
+	private MockHttpServletResponse send(MockHttpServletRequest request, String range) throws IOException {
+		if (range != null)
+			request.addHeader("Range", range);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		imageSender.send(request, response, image);
+		return response;
+	}
+
+	private static MockHttpServletRequest get() {
+		return new MockHttpServletRequest("GET", "/catalogue/products/id=1/image");
+	}
+}
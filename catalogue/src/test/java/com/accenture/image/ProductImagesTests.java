@@ -0,0 +1,192 @@
+package com.accenture.image;
+
+import com.accenture.event.ProductChangeEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProductImagesTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ProductImages productImages;
+
+	@Before
+	public void setUp() throws IOException {
+		productImages = new ProductImages(folder.getRoot().getPath(), new int[] {320, 100}, 1024 * 1024,
+				1000 * 1000, 0.85f, 0);
+	}
+
+	@After
+	public void tearDown() {
+		productImages.stop();
+	}
+
+	@Test
+	public void storesTheUploadWithAThumbnailOfEverySize() throws IOException {
+		byte[] upload = image(800, 400, "png", Color.RED);
+
+		ProductImages.ImageFile original = productImages.store(1, new ByteArrayInputStream(upload));
+
+		assertThat(original.getMediaType()).isEqualTo("image/png");
+		assertThat(Files.readAllBytes(original.getPath())).isEqualTo(upload);
+		assertThat(productImages.getThumbnailSizes()).containsExactly(100, 320);
+		assertThat(dimensions(productImages.find(1, 320))).containsExactly(320, 160);
+		assertThat(dimensions(productImages.find(1, 100))).containsExactly(100, 50);
+		assertThat(productImages.find(1, 640)).isNull();
+		assertThat(productImages.find(2, null)).isNull();
+	}
+
+	@Test
+	public void tagsTheFilesWithTheDigestOfTheUpload() throws IOException {
+		byte[] upload = image(200, 200, "jpg", Color.BLUE);
+
+		String eTag = productImages.store(1, new ByteArrayInputStream(upload)).getETag();
+		assertThat(eTag).matches("\"[0-9a-f]{64}\"");
+		assertThat(productImages.find(1, 100).getETag()).isNotEqualTo(eTag).endsWith("-100\"");
+		assertThat(productImages.store(1, new ByteArrayInputStream(upload)).getETag()).isEqualTo(eTag);
+
+		Path previous = productImages.find(1, null).getPath();
+		String replaced = productImages.store(1, new ByteArrayInputStream(image(200, 200, "jpg", Color.GREEN)))
+				.getETag();
+		assertThat(replaced).isNotEqualTo(eTag);
+		assertThat(productImages.find(1, null).getETag()).isEqualTo(replaced);
+		assertThat(previous).doesNotExist();
+	}
+
+	@Test
+	public void keepsTheReplacedImagesForTheRetention() throws IOException {
+		ProductImages retaining = new ProductImages(folder.newFolder().getPath(), new int[] {100}, 1024 * 1024,
+				1000 * 1000, 0.85f, 60000);
+		try {
+			Path previous = retaining.store(1, new ByteArrayInputStream(image(50, 50, "png", Color.RED))).getPath();
+			retaining.store(1, new ByteArrayInputStream(image(50, 50, "png", Color.BLUE)));
+			assertThat(previous).exists();
+
+			Path current = retaining.find(1, null).getPath();
+			assertThat(retaining.delete(1)).isTrue();
+			assertThat(retaining.find(1, null)).isNull();
+			assertThat(current).exists();
+		}
+		finally {
+			retaining.stop();
+		}
+	}
+
+	@Test
+	public void forgetsTheImagesOfAPreviousRun() throws IOException {
+		productImages.store(1, new ByteArrayInputStream(image(50, 50, "gif", Color.BLACK)));
+
+		ProductImages restarted = new ProductImages(folder.getRoot().getPath(), new int[] {320, 100}, 1024 * 1024,
+				1000 * 1000, 0.85f, 0);
+		assertThat(restarted.find(1, null)).isNull();
+		assertThat(folder.getRoot().list()).isEmpty();
+		restarted.stop();
+	}
+
+	@Test
+	public void leavesWhatItDidNotCreateInTheDirectory() throws IOException {
+		productImages.store(1, new ByteArrayInputStream(image(50, 50, "png", Color.RED)));
+		Path notes = Files.write(folder.getRoot().toPath().resolve("notes.txt"), "keep".getBytes());
+		Path reports = Files.createDirectories(folder.getRoot().toPath().resolve("reports").resolve("2024"));
+		Path archive = Files.createDirectories(folder.getRoot().toPath().resolve("2024").resolve("archive"));
+		Path previous = productImages.find(1, null).getPath();
+
+		ProductImages restarted = new ProductImages(folder.getRoot().getPath(), new int[] {100}, 1024 * 1024,
+				1000 * 1000, 0.85f, 0);
+		try {
+			assertThat(previous).doesNotExist();
+			assertThat(previous.getParent().getParent()).doesNotExist();
+			assertThat(notes).exists();
+			assertThat(reports).exists();
+			assertThat(archive).exists();
+
+			restarted.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.CLEARED, null, null));
+			assertThat(archive).exists();
+		}
+		finally {
+			restarted.stop();
+		}
+	}
+
+	@Test
+	public void usesATemporaryDirectoryRemovedOnStop() throws IOException {
+		ProductImages temporary = new ProductImages("", new int[] {100}, 1024 * 1024, 1000 * 1000, 0.85f, 0);
+		Path path = temporary.store(1, new ByteArrayInputStream(image(50, 50, "png", Color.RED))).getPath();
+		assertThat(path).exists();
+
+		temporary.stop();
+		assertThat(path).doesNotExist();
+	}
+
+	@Test
+	public void rejectsWhatIsNotASupportedImage() throws IOException {
+		assertThatThrownBy(() -> productImages.store(1, new ByteArrayInputStream("not an image".getBytes())))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> productImages.store(1, new ByteArrayInputStream(new byte[2 * 1024 * 1024])))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> productImages.store(1, new ByteArrayInputStream(image(1001, 1000, "png",
+				Color.WHITE)))).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(productImages.find(1, null)).isNull();
+		assertThat(folder.getRoot().toPath().resolve("1").toFile().list()).isEmpty();
+	}
+
+	@Test
+	public void removesTheImagesOfTheRemovedProducts() throws IOException {
+		productImages.store(1, new ByteArrayInputStream(image(50, 50, "png", Color.RED)));
+		productImages.store(2, new ByteArrayInputStream(image(50, 50, "png", Color.RED)));
+
+		assertThat(productImages.delete(1)).isTrue();
+		assertThat(productImages.delete(1)).isFalse();
+		assertThat(productImages.find(1, null)).isNull();
+
+		productImages.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.CLEARED, null, null));
+		assertThat(productImages.find(2, null)).isNull();
+		assertThat(folder.getRoot().toPath().resolve("1").toFile().list()).isEmpty();
+		assertThat(folder.getRoot().toPath().resolve("2").toFile().list()).isEmpty();
+	}
+
+	@Test
+	public void leavesTheUploadsInProgressWhenRemovingTheImages() throws IOException {
+		productImages.store(1, new ByteArrayInputStream(image(50, 50, "png", Color.RED)));
+		Path staging = Files.createDirectory(folder.getRoot().toPath().resolve("1").resolve(".upload-pending"));
+
+		productImages.delete(1);
+		productImages.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.CLEARED, null, null));
+		assertThat(folder.getRoot().toPath().resolve("1").toFile().list()).containsExactly(".upload-pending");
+		assertThat(staging).exists();
+	}
+
+	private static byte[] image(int width, int height, String format, Color color) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(color);
+		graphics.fillRect(0, 0, width, height / 2);
+		graphics.dispose();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ImageIO.write(image, format, output);
+		return output.toByteArray();
+	}
+
+	private static int[] dimensions(ProductImages.ImageFile file) throws IOException {
+		BufferedImage image = ImageIO.read(file.getPath().toFile());
+		return new int[] {image.getWidth(), image.getHeight()};
+	}
+}
@@ -0,0 +1,156 @@
+package com.accenture.importer;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.cache.SecondLevelCache;
+import com.accenture.dictionary.ProductDictionaries;
+import com.accenture.dto.ImportReport;
+import com.accenture.entity.Product;
+import com.accenture.event.CatalogueVersion;
+import com.accenture.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductImporterTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private ProductDictionaries productDictionaries;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private ProductImporter productImporter;
+
+	@Before
+	public void setUp() {
+		productImporter = new ProductImporter(jdbcTemplate, transactionManager, eventPublisher, new ObjectMapper(),
+				productDictionaries, new SecondLevelCache(entityManagerFactory), new CatalogueVersion(), 2, 3, 1);
+	}
+
+	@After
+	public void tearDown() {
+		productImporter.stop();
+		productRepository.deleteAll();
+	}
+
+	@Test
+	public void importsTheValidCsvRowsInChunks() {
+		Product saved = productRepository.save(new Product("Existing", "shirts", BigDecimal.ONE, "red"));
+
+		ImportReport report = productImporter.importProducts(stream(
+				"productPrice,productName,productCategory,productColor\n"
+						+ "10.50,Nike Trainers,trainers,red\n"
+						+ "12,\"Adidas \"\"Samba\"\", white\",trainers,\n"
+						+ "-1,Broken,shirts,blue\n"
+						+ "\n"
+						+ "5,Puma shirt,shirts,orange\n"
+						+ "7,Vans cap,,black\n"),
+				ProductImporter.Format.CSV);
+
+		assertThat(report.getFailure()).isNull();
+		assertThat(report.getRowsRead()).isEqualTo(5);
+		assertThat(report.getRowsImported()).isEqualTo(4);
+		assertThat(report.getRowsRejected()).isEqualTo(1);
+		assertThat(report.getErrors()).hasSize(1);
+		assertThat(report.getErrors().get(0)).startsWith("Line 4:");
+		assertThat(report.getChunks()).extracting(ImportReport.Chunk::getRows).containsExactly(3, 1);
+		assertThat(report.getChunks()).extracting(ImportReport.Chunk::getLastLine).containsExactly(6L, 7L);
+
+		List<Product> products = productRepository.findAll();
+		assertThat(products).extracting(Product::getProductName).containsExactlyInAnyOrder("Existing",
+				"Nike Trainers", "Adidas \"Samba\", white", "Puma shirt", "Vans cap");
+		assertThat(products.stream().map(Product::getProductId).distinct().collect(Collectors.toList())).hasSize(5);
+
+		Product next = productRepository.save(new Product("After import", "shirts", BigDecimal.ONE, "red"));
+		assertThat(productRepository.findAll()).hasSize(6);
+		assertThat(next.getProductId()).isNotEqualTo(saved.getProductId());
+	}
+
+	@Test
+	public void importsNdjsonRows() {
+		assertThat(productRepository.findAllByProductCategory("trainers")).isEmpty();
+
+		ImportReport report = productImporter.importProducts(stream(
+				"{\"productName\":\"Nike Trainers\",\"productPrice\":10,\"productCategory\":\"trainers\"}\n"
+						+ "{\"productName\":\"\",\"productPrice\":10}\n"
+						+ "not json\n"),
+				ProductImporter.Format.NDJSON);
+
+		assertThat(report.getRowsImported()).isEqualTo(1);
+		assertThat(report.getRowsRejected()).isEqualTo(2);
+		assertThat(productRepository.findAllByProductCategory("trainers")).hasSize(1);
+	}
+
+	@Test
+	public void reportsAHeaderWithoutTheRequiredColumnsAsInvalidInput() {
+		ImportReport report = productImporter.importProducts(stream("name,price\nNike Trainers,10\n"),
+				ProductImporter.Format.CSV);
+
+		assertThat(report.isInvalidInput()).isTrue();
+		assertThat(report.getFailure()).contains("productName");
+		assertThat(productRepository.count()).isZero();
+	}
+
+	@Test
+	public void writesTheChunksAlreadyReadWhenTheReadingFails() {
+		StringBuilder rows = new StringBuilder("productName,productPrice\n");
+		for (int i = 1; i <= 7; i++)
+			rows.append("Product ").append(i).append(",").append(i).append("\n");
+		InputStream broken = new SequenceInputStream(stream(rows.toString()), new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset");
+			}
+		});
+
+		ImportReport report = productImporter.importProducts(broken, ProductImporter.Format.CSV);
+
+		assertThat(report.isInvalidInput()).isFalse();
+		assertThat(report.getFailure()).isEqualTo("Connection reset");
+		assertThat(report.getChunks()).extracting(ImportReport.Chunk::getLastLine).containsExactly(4L, 7L);
+		assertThat(productRepository.count()).isEqualTo(6);
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
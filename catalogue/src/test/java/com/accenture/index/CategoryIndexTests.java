@@ -0,0 +1,76 @@
+package com.accenture.index;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+public class CategoryIndexTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private CategoryIndex categoryIndex;
+
+	@Before
+	public void setUp() {
+		categoryIndex = new CategoryIndex(productRepository);
+	}
+
+	@Test
+	public void buildsTheIndexFromTheRepository() {
+		save("Nike Trainers", "trainers");
+		save("Adidas Trainers", "trainers");
+		save("Puma shirt", "shirts");
+		save("Gift card", null);
+
+		assertThat(categoryIndex.getCategoryCounts())
+				.containsExactly(entry("shirts", 1), entry("trainers", 2));
+	}
+
+	@Test
+	public void appliesTheProductChanges() {
+		Product trainers = save("Nike Trainers", "trainers");
+		categoryIndex.getCategoryCounts();
+
+		Product shirt = save("Puma shirt", "shirts");
+		publish(ProductChangeEvent.Type.CREATED, shirt, null);
+		assertThat(categoryIndex.getCategoryCounts())
+				.containsExactly(entry("shirts", 1), entry("trainers", 1));
+
+		Product previous = new Product("Puma shirt", "shirts", BigDecimal.TEN, "orange");
+		shirt.setProductCategory("trainers");
+		publish(ProductChangeEvent.Type.UPDATED, shirt, previous);
+		assertThat(categoryIndex.getCategoryCounts()).containsExactly(entry("trainers", 2));
+
+		publish(ProductChangeEvent.Type.DELETED, trainers, null);
+		assertThat(categoryIndex.getCategoryCounts()).containsExactly(entry("trainers", 1));
+
+		publish(ProductChangeEvent.Type.CLEARED, null, null);
+		assertThat(categoryIndex.getCategoryCounts()).isEmpty();
+	}
+
+	private Product save(String name, String category) {
+		return productRepository.save(new Product(name, category, BigDecimal.TEN, "orange"));
+	}
+
+	private void publish(ProductChangeEvent.Type type, Product product, Product previous) {
+		Integer productId = product == null ? null : product.getProductId();
+		categoryIndex.onProductChange(new ProductChangeEvent(this, type, productId, product, previous));
+	}
+}
@@ -0,0 +1,121 @@
+package com.accenture.index;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+public class FacetIndexTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private FacetIndex facetIndex;
+
+	@Before
+	public void setUp() {
+		facetIndex = new FacetIndex(productRepository, transactionManager);
+	}
+
+	@Test
+	public void combinesTheFiltersAndCountsTheOtherFacets() {
+		Product nike = save("Nike Trainers", "trainers", "10.00", "orange");
+		save("Adidas Trainers", "trainers", "30", "blue");
+		Product puma = save("Puma shirt", "shirts", "10", "orange");
+		save("Gift card", null, "50", null);
+
+		FacetIndex.Result result = facetIndex.search(null, "orange", new BigDecimal("5"), new BigDecimal("10"), 10);
+
+		assertThat(result.getProductIds()).containsExactly(nike.getProductId(), puma.getProductId());
+		assertThat(result.getTotal()).isEqualTo(2);
+		assertThat(result.getCategoryCounts()).containsExactly(entry("shirts", 1), entry("trainers", 1));
+		assertThat(result.getColorCounts()).containsExactly(entry("orange", 2));
+
+		result = facetIndex.search("trainers", "orange", null, null, 10);
+		assertThat(result.getProductIds()).containsExactly(nike.getProductId());
+		assertThat(result.getCategoryCounts()).containsExactly(entry("shirts", 1), entry("trainers", 1));
+		assertThat(result.getColorCounts()).containsExactly(entry("blue", 1), entry("orange", 1));
+
+		assertThat(facetIndex.search("hats", null, null, null, 10).getTotal()).isZero();
+		assertThat(facetIndex.search(null, null, null, null, 1).getProductIds()).containsExactly(nike.getProductId());
+	}
+
+	@Test
+	public void appliesTheProductChanges() {
+		Product nike = save("Nike Trainers", "trainers", "10", "orange");
+		facetIndex.search(null, null, null, null, 0);
+
+		Product puma = save("Puma shirt", "shirts", "20", "orange");
+		publish(ProductChangeEvent.Type.CREATED, puma, null);
+		assertThat(facetIndex.search(null, "orange", null, null, 10).getProductIds())
+				.containsExactly(nike.getProductId(), puma.getProductId());
+
+		Product previous = new Product("Puma shirt", "shirts", new BigDecimal("20"), "orange");
+		previous.setProductId(puma.getProductId());
+		puma.setProductColor("blue");
+		puma.setProductPrice(new BigDecimal("40"));
+		publish(ProductChangeEvent.Type.UPDATED, puma, previous);
+		assertThat(facetIndex.search(null, "orange", null, null, 10).getProductIds())
+				.containsExactly(nike.getProductId());
+		assertThat(facetIndex.search(null, null, new BigDecimal("30"), null, 10).getProductIds())
+				.containsExactly(puma.getProductId());
+
+		publish(ProductChangeEvent.Type.DELETED, nike, null);
+		assertThat(facetIndex.search(null, null, null, null, 10).getProductIds())
+				.containsExactly(puma.getProductId());
+
+		publish(ProductChangeEvent.Type.CLEARED, null, null);
+		assertThat(facetIndex.search(null, null, null, null, 10).getTotal()).isZero();
+	}
+
+	@Test
+	public void appliesTheChangesPublishedWhileItIsBuilt() {
+		Product nike = save("Nike Trainers", "trainers", "10", "orange");
+		Product puma = new Product("Puma shirt", "shirts", new BigDecimal("20"), "orange");
+		puma.setProductId(nike.getProductId() + 1);
+
+		// The change commits once the build query is reading, and is published before the build ends
+		ProductRepository committingDuringTheBuild = (ProductRepository)Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] {ProductRepository.class}, (proxy, method, args) -> {
+					Object result = method.invoke(productRepository, args);
+					if (!method.getName().equals("streamProductFacets"))
+						return result;
+					return ((Stream<?>)result).peek(row -> facetIndex.onProductChange(
+							new ProductChangeEvent(this, ProductChangeEvent.Type.CREATED, puma.getProductId(), puma)));
+				});
+		facetIndex = new FacetIndex(committingDuringTheBuild, transactionManager);
+
+		assertThat(facetIndex.search(null, "orange", null, null, 10).getProductIds())
+				.containsExactly(nike.getProductId(), puma.getProductId());
+	}
+
+	private Product save(String name, String category, String price, String color) {
+		return productRepository.save(new Product(name, category, new BigDecimal(price), color));
+	}
+
+	private void publish(ProductChangeEvent.Type type, Product product, Product previous) {
+		Integer productId = product == null ? null : product.getProductId();
+		facetIndex.onProductChange(new ProductChangeEvent(this, type, productId, product, previous));
+	}
+}
@@ -0,0 +1,88 @@
+package com.accenture.index;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Latency of the name index searches over a synthetic catalogue of 100k and 1M products.
+ * Run it from the test classpath with the main method; it is not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class NameIndexBenchmark {
+
+	private static final String[] BRANDS = {"Nike", "Adidas", "Puma", "Reebok", "Asics", "Vans", "Converse",
+			"Fila", "Umbro", "Kappa", "Salomon", "Mizuno", "Saucony", "Brooks", "Hoka", "Lacoste"};
+	private static final String[] ADJECTIVES = {"Classic", "Running", "Trail", "Retro", "Slim", "Light", "Pro",
+			"Sport", "Street", "Winter", "Summer", "Premium", "Essential", "Training", "Waterproof", "Vintage"};
+	private static final String[] TYPES = {"Trainers", "Shirt", "Shorts", "Jacket", "Hoodie", "Socks", "Cap",
+			"Backpack", "Leggings", "Sweatshirt", "Boots", "Sandals", "Gloves", "Vest", "Tracksuit", "Bag"};
+	private static final String[] COLORS = {"Black", "White", "Red", "Blue", "Green", "Orange", "Grey", "Navy"};
+
+	@Param({"100000", "1000000"})
+	private int products;
+
+	private NameIndex nameIndex;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		nameIndex = new NameIndex(null, null);
+		nameIndex.load(IntStream.rangeClosed(1, products).mapToObj(productId -> new Object[] {productId,
+				pick(random, BRANDS) + " " + pick(random, ADJECTIVES) + " " + pick(random, TYPES) + " "
+						+ pick(random, COLORS) + " " + random.nextInt(10000)}));
+
+		NameIndex.Stats stats = nameIndex.getStats();
+		System.out.println();
+		System.out.println(stats.getProducts() + " products, " + stats.getWords() + " words, "
+				+ stats.getBytes() / (1024 * 1024) + " MB, " + stats.getBytesPerProduct() + " bytes per product");
+	}
+
+	@Benchmark
+	public List<Integer> searchTwoWords() {
+		return nameIndex.search("nike trainers", 20);
+	}
+
+	@Benchmark
+	public List<Integer> searchRareWord() {
+		return nameIndex.search("salomon waterproof boots 1234", 20);
+	}
+
+	@Benchmark
+	public List<String> suggestShortPrefix() {
+		return nameIndex.suggest("ru", 10);
+	}
+
+	@Benchmark
+	public List<String> suggestLongPrefix() {
+		return nameIndex.suggest("adidas retro hood", 10);
+	}
+
+	private static String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(NameIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,79 @@
+package com.accenture.index;
+
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NameIndexTests {
+
+	private NameIndex nameIndex;
+
+	@Before
+	public void setUp() {
+		nameIndex = new NameIndex(null, null);
+		nameIndex.load(Stream.of(
+				new Object[] {1, "Nike Air Trainers"},
+				new Object[] {2, "Nike shirt"},
+				new Object[] {3, "Adidas Trainers"},
+				new Object[] {4, "Crème brûlée mug"},
+				new Object[] {5, null}));
+	}
+
+	@Test
+	public void splitsNamesIntoLowerCasedWordsWithoutAccents() {
+		assertThat(NameIndex.tokenize("Crème-Brûlée  MUG!")).containsExactly("creme", "brulee", "mug");
+	}
+
+	@Test
+	public void findsTheProductsContainingAllTheWords() {
+		assertThat(nameIndex.search("nike trainers", 10)).containsExactly(1);
+		assertThat(nameIndex.search("TRAINERS", 10)).containsExactly(3, 1);
+		assertThat(nameIndex.search("brulee", 10)).containsExactly(4);
+		assertThat(nameIndex.search("puma", 10)).isEmpty();
+		assertThat(nameIndex.search("  ", 10)).isEmpty();
+	}
+
+	@Test
+	public void completesTheLastWordFavouringExactMatches() {
+		assertThat(nameIndex.suggest("nike tr", 10)).containsExactly("Nike Air Trainers");
+		assertThat(nameIndex.suggest("n", 10)).containsExactly("Nike shirt", "Nike Air Trainers");
+		assertThat(nameIndex.suggest("train", 1)).containsExactly("Adidas Trainers");
+		assertThat(nameIndex.search("shirt", 10)).containsExactly(2);
+	}
+
+	@Test
+	public void appliesTheProductChanges() {
+		Product renamed = new Product("Puma shirt", "shirts", BigDecimal.TEN, "orange");
+		renamed.setProductId(2);
+		nameIndex.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.UPDATED, 2, renamed));
+		assertThat(nameIndex.search("nike", 10)).containsExactly(1);
+		assertThat(nameIndex.search("puma", 10)).containsExactly(2);
+
+		nameIndex.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.DELETED, 1, null));
+		assertThat(nameIndex.search("nike", 10)).isEmpty();
+		assertThat(nameIndex.getStats().getProducts()).isEqualTo(3);
+
+		nameIndex.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.CLEARED, null, null));
+		assertThat(nameIndex.getStats().getWords()).isZero();
+	}
+
+	@Test
+	public void appliesTheChangesPublishedWhileItIsBuilt() {
+		Product puma = new Product("Puma shirt", "shirts", BigDecimal.TEN, "orange");
+		puma.setProductId(2);
+
+		NameIndex building = new NameIndex(null, null);
+		building.load(Stream.of(new Object[] {1, "Nike Air Trainers"}, new Object[] {2, "Nike shirt"})
+				.peek(row -> building.onProductChange(
+						new ProductChangeEvent(this, ProductChangeEvent.Type.UPDATED, 2, puma))));
+
+		assertThat(building.search("nike", 10)).containsExactly(1);
+		assertThat(building.search("puma", 10)).containsExactly(2);
+	}
+}
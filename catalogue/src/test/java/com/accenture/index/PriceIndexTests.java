@@ -0,0 +1,100 @@
+package com.accenture.index;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+public class PriceIndexTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private PriceIndex priceIndex;
+	private Product cheap, middle, expensive;
+
+	@Before
+	public void setUp() {
+		priceIndex = new PriceIndex(productRepository, 2, 1);
+		cheap = save("Vans", "trainers", "25.00");
+		middle = save("Adidas", "trainers", "60.00");
+		expensive = save("Nike", "trainers", "90.00");
+		save("Puma", "trainers", null);
+		save("Reebok shirt", "shirts", "5.00");
+	}
+
+	@Test
+	public void indexesTheCategoriesOnceTheyAreRequestedEnough() {
+		assertThat(priceIndex.find("trainers", null, null, false, 10)).isNull();
+		assertThat(priceIndex.isIndexed("trainers")).isFalse();
+
+		assertThat(priceIndex.find("trainers", null, null, false, 10))
+				.containsExactly(cheap.getProductId(), middle.getProductId(), expensive.getProductId());
+		assertThat(priceIndex.isIndexed("trainers")).isTrue();
+
+		priceIndex.find("shirts", null, null, false, 10);
+		assertThat(priceIndex.find("shirts", null, null, false, 10)).isNull();
+	}
+
+	@Test
+	public void walksOnlyTheRequestedRange() {
+		priceIndex.find("trainers", null, null, false, 10);
+		priceIndex.find("trainers", null, null, false, 10);
+
+		assertThat(priceIndex.find("trainers", null, null, true, 2))
+				.containsExactly(expensive.getProductId(), middle.getProductId());
+		assertThat(priceIndex.find("trainers", new BigDecimal("25"), new BigDecimal("60.0"), false, 10))
+				.containsExactly(cheap.getProductId(), middle.getProductId());
+		assertThat(priceIndex.find("trainers", new BigDecimal("61"), null, true, 10))
+				.containsExactly(expensive.getProductId());
+	}
+
+	@Test
+	public void appliesTheProductChanges() {
+		priceIndex.find("trainers", null, null, false, 10);
+		priceIndex.find("trainers", null, null, false, 10);
+
+		Product previous = copy(expensive);
+		expensive.setProductPrice(new BigDecimal("10.00"));
+		priceIndex.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.UPDATED,
+				expensive.getProductId(), expensive, previous));
+		priceIndex.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.DELETED,
+				middle.getProductId(), middle));
+		Product created = copy(middle);
+		created.setProductId(middle.getProductId() + 100);
+		priceIndex.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.CREATED,
+				created.getProductId(), created));
+
+		assertThat(priceIndex.find("trainers", null, null, false, 10))
+				.containsExactly(expensive.getProductId(), cheap.getProductId(), created.getProductId());
+
+		priceIndex.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.CLEARED, null, null));
+		assertThat(priceIndex.find("trainers", null, null, false, 10)).isEmpty();
+	}
+
+	private Product save(String name, String category, String price) {
+		return productRepository.save(new Product(name, category, price == null ? null : new BigDecimal(price),
+				"black"));
+	}
+
+	private static Product copy(Product product) {
+		Product copy = new Product(product.getProductName(), product.getProductCategory(),
+				product.getProductPrice(), product.getProductColor());
+		copy.setProductId(product.getProductId());
+		return copy;
+	}
+}
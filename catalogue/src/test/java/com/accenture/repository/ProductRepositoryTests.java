@@ -0,0 +1,100 @@
+package com.accenture.repository;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+public class ProductRepositoryTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Test
+	public void walksTheListingPageByPage() {
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 7; i++)
+			expected.add(save("Product " + i, "shirts", BigDecimal.TEN, "orange").getProductId());
+		save("Other", "trainers", BigDecimal.TEN, "orange");
+
+		assertThat(readAll("shirts", null, ProductSort.ID, 3)).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	public void breaksTiesOfTheSortedValueWithTheId() {
+		Product a = save("Shirt", "shirts", new BigDecimal("20.00"), "blue");
+		Product b = save("Shirt", "shirts", new BigDecimal("10.00"), "orange");
+		Product c = save("Shirt", "shirts", new BigDecimal("10.00"), "orange");
+		Product d = save("Cap", "hats", new BigDecimal("5.00"), "orange");
+
+		assertThat(readAll(null, "orange", ProductSort.PRICE, 1))
+				.containsExactly(d.getProductId(), b.getProductId(), c.getProductId());
+		assertThat(readAll(null, null, ProductSort.NAME, 2))
+				.containsExactly(d.getProductId(), a.getProductId(), b.getProductId(), c.getProductId());
+	}
+
+	@Test
+	public void listsTheProductsWithoutTheSortedValueLast() {
+		Product a = save(null, "shirts", new BigDecimal("20.00"), "orange");
+		Product b = save("Shirt", "shirts", null, "orange");
+		Product c = save(null, "shirts", null, "orange");
+		Product d = save("Cap", "shirts", new BigDecimal("5.00"), "orange");
+
+		for (int size = 1; size <= 4; size++) {
+			assertThat(readAll("shirts", null, ProductSort.NAME, size))
+					.containsExactly(d.getProductId(), b.getProductId(), a.getProductId(), c.getProductId());
+			assertThat(readAll("shirts", null, ProductSort.PRICE, size))
+					.containsExactly(d.getProductId(), a.getProductId(), b.getProductId(), c.getProductId());
+		}
+	}
+
+	@Test
+	public void findsThePriceRangeInPriceOrder() {
+		Product a = save("Shirt", "shirts", new BigDecimal("20.00"), "blue");
+		Product b = save("Shirt", "shirts", new BigDecimal("10.00"), "orange");
+		Product c = save("Shirt", "shirts", new BigDecimal("50.00"), "orange");
+		save("Shirt", "shirts", null, "orange");
+		Product e = save("Cap", "hats", new BigDecimal("30.00"), "orange");
+
+		assertThat(productRepository.findByPriceRange(null, new BigDecimal("15"), new BigDecimal("50"), false, 10))
+				.containsExactly(a, e, c);
+		assertThat(productRepository.findByPriceRange("shirts", null, null, true, 2)).containsExactly(c, a);
+		assertThat(productRepository.findByPriceRange("shirts", null, new BigDecimal("10"), false, 10))
+				.containsExactly(b);
+	}
+
+	private List<Integer> readAll(String category, String color, ProductSort sort, int size) {
+		List<Integer> ids = new ArrayList<>();
+		Object afterValue = null;
+		Integer afterId = null;
+		List<Product> page;
+		do {
+			page = productRepository.findPage(category, color, sort, afterValue, afterId, size);
+			for (Product product : page)
+				ids.add(product.getProductId());
+			if (!page.isEmpty()) {
+				Product last = page.get(page.size() - 1);
+				afterValue = sort.valueOf(last);
+				afterId = last.getProductId();
+			}
+		} while (page.size() == size);
+		return ids;
+	}
+
+	private Product save(String name, String category, BigDecimal price, String color) {
+		return productRepository.save(new Product(name, category, price, color));
+	}
+}
@@ -0,0 +1,65 @@
+package com.accenture.repository;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductVersionTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@After
+	public void tearDown() {
+		productRepository.deleteAll();
+		// the rejected update leaves its entry locked in the second-level cache, which is shared between contexts
+		entityManagerFactory.getCache().evictAll();
+	}
+
+	@Test
+	public void rejectsTheUpdatesOfAStaleVersion() {
+		Product product = productRepository.save(new Product("Nike Trainers", "trainers", BigDecimal.TEN, "red"));
+		assertThat(product.getVersion()).isZero();
+
+		Product first = productRepository.findOne(product.getProductId());
+		Product second = productRepository.findOne(product.getProductId());
+
+		first.setProductPrice(new BigDecimal("12.00"));
+		assertThat(productRepository.save(first).getVersion()).isEqualTo(1L);
+
+		second.setProductColor("blue");
+		try {
+			productRepository.save(second);
+			fail("The stale update was applied");
+		}
+		catch (ObjectOptimisticLockingFailureException e) {
+			// expected
+		}
+
+		Product stored = productRepository.findOne(product.getProductId());
+		assertThat(stored.getProductPrice()).isEqualByComparingTo("12.00");
+		assertThat(stored.getProductColor()).isEqualTo("red");
+	}
+}
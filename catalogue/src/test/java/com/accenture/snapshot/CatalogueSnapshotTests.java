@@ -0,0 +1,122 @@
+package com.accenture.snapshot;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.entity.Product;
+import com.accenture.event.CatalogueVersion;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CatalogueSnapshotTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CatalogueVersion catalogueVersion = new CatalogueVersion();
+	private CatalogueSnapshot catalogueSnapshot;
+
+	@Before
+	public void setUp() {
+		productRepository.save(Arrays.asList(
+				new Product("Nike Trainers", "trainers", BigDecimal.TEN, "red"),
+				new Product("Puma shirt", "shirts", BigDecimal.ONE, "orange"),
+				new Product("Adidas Trainers", "trainers", BigDecimal.ONE, "blue")));
+		catalogueSnapshot = new CatalogueSnapshot(productRepository, catalogueVersion, objectMapper, true, true,
+				60000);
+	}
+
+	@After
+	public void tearDown() {
+		catalogueSnapshot.stop();
+		productRepository.deleteAll();
+	}
+
+	@Test
+	public void servesTheSerializedListingsOfTheCurrentVersion() throws Exception {
+		assertThat(catalogueSnapshot.getAllProducts()).isNull();
+		catalogueSnapshot.rebuild();
+
+		CatalogueSnapshot.Listing all = catalogueSnapshot.getAllProducts();
+		assertThat(all).isSameAs(catalogueSnapshot.getAllProducts());
+		assertThat(read(all.getJson())).extracting(Product::getProductName)
+				.containsExactly("Nike Trainers", "Puma shirt", "Adidas Trainers");
+		assertThat(read(gunzip(all.getGzipped()))).hasSize(3);
+
+		assertThat(read(catalogueSnapshot.getProductsByCategory("trainers").getJson()))
+				.extracting(Product::getProductName).containsExactly("Nike Trainers", "Adidas Trainers");
+		assertThat(catalogueSnapshot.getProductsByCategory("hats").isEmpty()).isTrue();
+	}
+
+	@Test
+	public void fallsBackToTheRepositoryUntilAChangeIsRebuilt() throws Exception {
+		catalogueSnapshot.rebuild();
+		Product product = productRepository.save(new Product("Vans cap", "caps", BigDecimal.ONE, "black"));
+		ProductChangeEvent event = new ProductChangeEvent(this, ProductChangeEvent.Type.CREATED,
+				product.getProductId(), product);
+		catalogueVersion.increment();
+		catalogueSnapshot.onProductChange(event);
+
+		assertThat(catalogueSnapshot.getAllProducts()).isNull();
+		assertThat(catalogueSnapshot.getProductsByCategory("caps")).isNull();
+
+		catalogueSnapshot.rebuild();
+		assertThat(read(catalogueSnapshot.getAllProducts().getJson())).hasSize(4);
+		assertThat(read(catalogueSnapshot.getProductsByCategory("caps").getJson())).hasSize(1);
+	}
+
+	@Test
+	public void rebuildsOnceTheBurstOfChangesIsOver() throws Exception {
+		catalogueSnapshot.stop();
+		catalogueSnapshot = new CatalogueSnapshot(productRepository, catalogueVersion, objectMapper, true, false,
+				100);
+		for (int i = 0; i < 10; i++) {
+			ProductChangeEvent event = new ProductChangeEvent(this, ProductChangeEvent.Type.CLEARED, null, null);
+			catalogueVersion.increment();
+			catalogueSnapshot.onProductChange(event);
+		}
+
+		long deadline = System.currentTimeMillis() + 10000;
+		while (catalogueSnapshot.getAllProducts() == null && System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+
+		assertThat(catalogueSnapshot.getAllProducts()).isNotNull();
+		assertThat(catalogueSnapshot.getAllProducts().getGzipped()).isNull();
+	}
+
+	private Product[] read(byte[] json) throws Exception {
+		return objectMapper.readValue(json, Product[].class);
+	}
+
+	private static byte[] gunzip(byte[] gzipped) throws Exception {
+		try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			for (int read; (read = gzipStream.read(buffer)) != -1; )
+				content.write(buffer, 0, read);
+			return content.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.accenture.stock;
+
+import com.accenture.PersistenceTestConfiguration;
+import com.accenture.dto.StockReservation;
+import com.accenture.entity.Product;
+import com.accenture.event.ProductChangeEvent;
+import com.accenture.repository.ProductRepository;
+import com.accenture.repository.ProductStockRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@ContextConfiguration(classes = PersistenceTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductStocksTests {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductStockRepository productStockRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private ProductStocks productStocks;
+	private Integer productId;
+
+	@Before
+	public void setUp() {
+		productId = productRepository.save(new Product("Nike Trainers", "trainers", BigDecimal.TEN, "red"))
+				.getProductId();
+		productStocks = stocks(60000);
+	}
+
+	@After
+	public void tearDown() {
+		productStocks.stop();
+		productStockRepository.deleteAll();
+		productRepository.deleteAll();
+	}
+
+	@Test
+	public void writesOnlyTheCommittedReservationsOnFlush() {
+		assertThat(productStocks.getAvailable(productId)).isZero();
+		assertThat(productStocks.addStock(productId, 5)).isTrue();
+
+		StockReservation committed = productStocks.reserve(productId, 2);
+		StockReservation released = productStocks.reserve(productId, 3);
+		assertThat(productStocks.reserve(productId, 1)).isNull();
+		assertThat(productStocks.getAvailable(productId)).isZero();
+
+		assertThat(productStocks.commit(committed.getReservationId())).isTrue();
+		assertThat(productStocks.release(released.getReservationId())).isTrue();
+		assertThat(productStocks.commit(committed.getReservationId())).isFalse();
+		assertThat(productStocks.release(released.getReservationId())).isFalse();
+		assertThat(productStocks.getAvailable(productId)).isEqualTo(3);
+
+		assertThat(stockQuantity()).isZero();
+		productStocks.flush();
+		assertThat(stockQuantity()).isEqualTo(3);
+
+		productStocks.stop();
+		productStocks = stocks(60000);
+		assertThat(productStocks.getAvailable(productId)).isEqualTo(3);
+	}
+
+	@Test
+	public void givesBackTheUnitsOfExpiredReservations() throws Exception {
+		productStocks.stop();
+		productStocks = stocks(0);
+		productStocks.addStock(productId, 2);
+
+		StockReservation abandoned = productStocks.reserve(productId, 1);
+		StockReservation late = productStocks.reserve(productId, 1);
+		Thread.sleep(5);
+
+		assertThat(productStocks.commit(late.getReservationId())).isFalse();
+		assertThat(productStocks.getAvailable(productId)).isEqualTo(1);
+		productStocks.expire();
+		assertThat(productStocks.getAvailable(productId)).isEqualTo(2);
+		assertThat(productStocks.release(abandoned.getReservationId())).isFalse();
+	}
+
+	@Test
+	public void rejectsUnknownProductsAndMissingUnits() {
+		assertThat(productStocks.getAvailable(productId + 1000)).isNull();
+		assertThat(productStocks.reserve(productId + 1000, 1)).isNull();
+		assertThat(productStocks.addStock(productId, -1)).isFalse();
+
+		productStocks.onProductChange(new ProductChangeEvent(this, ProductChangeEvent.Type.DELETED, productId, null));
+		assertThat(productStockRepository.exists(productId)).isFalse();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsReservationsOfNoUnits() {
+		productStocks.reserve(productId, 0);
+	}
+
+	private ProductStocks stocks(long reservationTimeout) {
+		return new ProductStocks(productRepository, productStockRepository, jdbcTemplate, transactionManager, 4,
+				reservationTimeout, 0, 0);
+	}
+
+	private long stockQuantity() {
+		return productStockRepository.findOne(productId).getStockQuantity();
+	}
+}
@@ -0,0 +1,58 @@
+package com.accenture.stock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of 2000 threads reserving and releasing units of the same product, with a single counter cell and
+ * with the counter split into stripes. Run it from the test classpath with the main method; it is not part of the
+ * unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xss256k")
+@Threads(2000)
+public class StockCounterBenchmark {
+
+	@Param({"1", "16", "64"})
+	private int stripes;
+
+	@Param({"1000000", "2000"})
+	private long stock;
+
+	private StockCounter counter;
+
+	@Setup
+	public void setUp() {
+		counter = new StockCounter(stripes, stock);
+	}
+
+	@Benchmark
+	public boolean reserveAndRelease() {
+		if (!counter.take(1))
+			return false;
+		counter.add(1);
+		return true;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(StockCounterBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,64 @@
+package com.accenture.stock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StockCounterTests {
+
+	@Test
+	public void takesAcrossTheStripesAndNeverBelowZero() {
+		StockCounter counter = new StockCounter(4, 10);
+		assertThat(counter.get()).isEqualTo(10);
+
+		assertThat(counter.take(7)).isTrue();
+		assertThat(counter.take(4)).isFalse();
+		assertThat(counter.get()).isEqualTo(3);
+		assertThat(counter.take(3)).isTrue();
+		assertThat(counter.take(1)).isFalse();
+
+		counter.add(2);
+		assertThat(counter.take(2)).isTrue();
+		assertThat(counter.get()).isZero();
+	}
+
+	@Test
+	public void sellsExactlyTheStockToThousandsOfThreads() throws Exception {
+		StockCounter counter = new StockCounter(16, 1000);
+		AtomicInteger sold = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Thread> buyers = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			Thread buyer = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				// buy one unit and return every other one, so the counter keeps being contended
+				for (int attempt = 0; attempt < 10; attempt++)
+					if (counter.take(1)) {
+						if (attempt % 2 == 0)
+							counter.add(1);
+						else
+							sold.incrementAndGet();
+					}
+			});
+			buyer.start();
+			buyers.add(buyer);
+		}
+		start.countDown();
+		for (Thread buyer : buyers)
+			buyer.join();
+
+		assertThat(sold.get() + counter.get()).isEqualTo(1000);
+		assertThat(counter.get()).isGreaterThanOrEqualTo(0);
+	}
+}
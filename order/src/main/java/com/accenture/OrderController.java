@@ -1,6 +1,7 @@
 package com.accenture;
 
 import com.accenture.entity.Order;
+import com.accenture.idempotency.IdempotencyStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,14 +19,17 @@ import java.util.List;
 public class OrderController {
 
     private OrderService orderService;
+    private IdempotencyStore idempotencyStore;
 
     /**
      * Default constructor to allow injecting the service class as dependency.
      * @param orderService dependency class.
+     * @param idempotencyStore the store of the responses to the requests with an Idempotency-Key header.
      */
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyStore idempotencyStore) {
         this.orderService = orderService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     /**
@@ -102,12 +106,28 @@ public class OrderController {
     /**
      * Maps the resource's route (/orders) to the createOrder() method.
      * Creates an order by calling the appropiate function in service class.
+     * When the request has an Idempotency-Key header, a repeated request with the same key gets the order
+     * created by the first one without creating it again. The keys are scoped by the authenticated account, or by
+     * the name of the service for the service tokens, so nobody can replay the key of someone else.
      * @param newOrder the new order to be created.
+     * @param idempotencyKey the optional key identifying the retries of the same request.
      * @return ResponseEntity with the new order.
      */
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody Order newOrder) {
-        Order order = orderService.createOrder(newOrder);
+    public ResponseEntity<?> createOrder(@RequestBody Order newOrder,
+                                         @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String authorities = authentication.getAuthorities().toString();
+        Object principal = authorities.contains("ROLE_SERVICE") ? authentication.getName() : authentication.getDetails();
+
+        SecurityContextHolder.getContext().setAuthentication(null);
+
+        if (idempotencyKey == null)
+            return new ResponseEntity<>(orderService.createOrder(newOrder), HttpStatus.OK);
+
+        Order order = idempotencyStore.execute(principal + ":" + idempotencyKey,
+                () -> orderService.createOrder(newOrder));
         return new ResponseEntity<>(order, HttpStatus.OK);
     }
 }
\ No newline at end of file
@@ -56,6 +56,12 @@ public class JwtAuthFilter implements Filter {
                     JwtAuthProfile jwtAuthAdminProfile = new JwtAuthProfile(username, id, "ROLE_ADMIN");
                     SecurityContextHolder.getContext().setAuthentication(jwtAuthAdminProfile);
                 }
+                else if (Boolean.TRUE.equals(claims.get("svc", Boolean.class))) {
+                    // the cart delivers the confirmed orders of its outbox with its own token; the service claim
+                    // is never set by the account logins, whatever the username
+                    JwtAuthProfile jwtAuthServiceProfile = new JwtAuthProfile(username, id, "ROLE_SERVICE");
+                    SecurityContextHolder.getContext().setAuthentication(jwtAuthServiceProfile);
+                }
                 else {
                     JwtAuthProfile jwtAuthUserProfile = new JwtAuthProfile(username, id, "ROLE_USER");
                     SecurityContextHolder.getContext().setAuthentication(jwtAuthUserProfile);
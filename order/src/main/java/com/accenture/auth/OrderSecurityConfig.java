@@ -39,7 +39,7 @@ public class OrderSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.GET, unsecuredUrls).permitAll()
                 .antMatchers(HttpMethod.GET, "/orders").hasAuthority("ROLE_USER")
                 .antMatchers(HttpMethod.DELETE, "/orders").hasAuthority("ROLE_USER")
-                .antMatchers(HttpMethod.POST, "/orders").hasAuthority("ROLE_USER")
+                .antMatchers(HttpMethod.POST, "/orders", "/orders/").hasAnyAuthority("ROLE_USER", "ROLE_SERVICE")
                 .antMatchers(HttpMethod.GET, "/**/*").hasAuthority("ROLE_USER")
                 .and()
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,180 @@
+package com.accenture.idempotency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring in-memory store of the results of the requests sent with an Idempotency-Key header.
+ *
+ * The first request with a key runs the action and stores its result; the repeated requests with the same key
+ * get the stored result without running the action again, waiting for it when the first request is still in
+ * progress. A repeated request waits for the first one a limited time only, and is answered with a conflict
+ * when it is still running after that, so a stuck request does not hold the threads of its retries. Failed
+ * actions are not stored, so they can be retried. The oldest keys are evicted once the maximum number of keys
+ * is reached.
+ *
+ * The cart and order microservices keep the same copy of this class, configured with the idempotency
+ * properties of each application.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private final int maxKeys;
+    private final long ttl;
+    private final long waitTimeout;
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Default constructor to allow injecting the store settings from the application properties.
+     * @param maxKeys maximum number of keys kept in the store.
+     * @param ttl milliseconds a key is kept in the store.
+     * @param waitTimeout milliseconds a repeated request waits for the first request with its key.
+     */
+    @Autowired
+    public IdempotencyStore(@Value("${idempotency.max-keys:10000}") int maxKeys,
+                            @Value("${idempotency.ttl:600000}") long ttl,
+                            @Value("${idempotency.wait-timeout:10000}") long waitTimeout) {
+        this.maxKeys = maxKeys;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.entries = new LinkedHashMap<String, Entry>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= IdempotencyStore.this.maxKeys)
+                    return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Runs an action only once per key, returning the stored result to the repeated requests
+     * @param key the idempotency key, already scoped to the caller
+     * @param action the work of the request
+     * @return the result of the first request with the key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> action) {
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        Entry entry;
+
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= now) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null)
+                entries.put(key, new Entry(result, now + ttl));
+        }
+
+        if (entry != null) {
+            replays.incrementAndGet();
+            return (T)await(entry.result);
+        }
+
+        try {
+            T value = action.get();
+            result.complete(value);
+            return value;
+        }
+        catch (RuntimeException | Error e) {
+            synchronized (entries) {
+                Entry current = entries.get(key);
+                if (current != null && current.result == result)
+                    entries.remove(key);
+            }
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of keys currently stored
+     * @return the size of the store
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Gets the number of repeated requests answered with a stored result
+     * @return the replays since the application started
+     */
+    public long getReplays() {
+        return replays.get();
+    }
+
+    /**
+     * Gets the number of keys evicted because the store was full
+     * @return the evictions since the application started
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get(waitTimeout, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            throw new RequestInProgressException();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request.");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new RuntimeException("The original request failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Exception threw when the first request with a key is still running after the wait timeout
+     */
+    @ResponseStatus(value = HttpStatus.CONFLICT, reason = "A request with the same Idempotency-Key is in progress")
+    public static class RequestInProgressException extends RuntimeException {
+
+        public RequestInProgressException() {
+            super("A request with the same Idempotency-Key is in progress.");
+        }
+    }
+
+    /**
+     * Result of the first request with a key together with its expiration time
+     */
+    private static class Entry {
+        private final CompletableFuture<Object> result;
+        private final long expiresAt;
+
+        private Entry(CompletableFuture<Object> result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}